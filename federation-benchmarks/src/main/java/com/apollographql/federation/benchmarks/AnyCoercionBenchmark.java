@@ -0,0 +1,64 @@
+package com.apollographql.federation.benchmarks;
+
+import com.apollographql.federation.graphqljava.SyntheticSchema;
+import com.apollographql.federation.graphqljava._Any;
+import graphql.schema.Coercing;
+import graphql.schema.GraphQLScalarType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coercing a batch of {@code _entities} representations with the {@code _Any} scalar of a built
+ * schema, as graphql-java does for the variables of every {@code _entities} call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnyCoercionBenchmark {
+    private static final int ENTITY_TYPES = 20;
+
+    @Param({"100", "10000"})
+    public int batchSize;
+
+    @Param({"default", "entityRepresentation"})
+    public String coercing;
+
+    private Coercing<?, ?> anyCoercing;
+    private List<Map<String, Object>> representations;
+
+    @Setup
+    public void setUp() {
+        final SyntheticSchema synthetic = SyntheticSchema.newBuilder().seed(1).entityTypes(ENTITY_TYPES).build();
+        final GraphQLScalarType anyType = (GraphQLScalarType) ("default".equals(coercing)
+                ? synthetic.transformer()
+                : synthetic.transformer().coercingForAny(_Any.entityRepresentationCoercing()))
+                .build()
+                .getType(_Any.typeName);
+        anyCoercing = anyType.getCoercing();
+        representations = synthetic.representations(batchSize);
+    }
+
+    @Benchmark
+    public void coerceBatch(Blackhole blackhole) {
+        for (Map<String, Object> representation : representations) {
+            blackhole.consume(anyCoercing.parseValue(representation));
+        }
+    }
+}
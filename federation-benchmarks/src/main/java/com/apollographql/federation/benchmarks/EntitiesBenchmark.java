@@ -0,0 +1,58 @@
+package com.apollographql.federation.benchmarks;
+
+import com.apollographql.federation.graphqljava.SyntheticSchema;
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executing an {@code _entities} query end to end: coercing the representations, grouping them
+ * by type for the batch loaders, and completing the entities.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntitiesBenchmark {
+    private static final int ENTITY_TYPES = 20;
+
+    @Param({"100", "1000", "10000"})
+    public int batchSize;
+
+    private GraphQL graphql;
+    private ExecutionInput input;
+
+    @Setup
+    public void setUp() {
+        final SyntheticSchema synthetic = SyntheticSchema.newBuilder().seed(1).entityTypes(ENTITY_TYPES).build();
+        graphql = GraphQL.newGraphQL(synthetic.build()).build();
+        input = ExecutionInput.newExecutionInput(synthetic.entitiesQuery())
+                .variables(Collections.singletonMap("representations", synthetic.representations(batchSize)))
+                .build();
+        final ExecutionResult result = graphql.execute(input);
+        if (!result.getErrors().isEmpty()) {
+            throw new IllegalStateException("_entities failed: " + result.getErrors());
+        }
+    }
+
+    @Benchmark
+    public ExecutionResult entities() {
+        return graphql.execute(input);
+    }
+}
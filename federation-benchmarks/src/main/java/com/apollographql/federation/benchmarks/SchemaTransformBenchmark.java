@@ -0,0 +1,51 @@
+package com.apollographql.federation.benchmarks;
+
+import com.apollographql.federation.graphqljava.SchemaTransformer;
+import com.apollographql.federation.graphqljava.SyntheticSchema;
+import graphql.schema.GraphQLSchema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building a federated schema from SDL, and printing the SDL served by {@code _service}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SchemaTransformBenchmark {
+    @Param({"10", "100", "1000", "5000"})
+    public int entityTypes;
+
+    private SyntheticSchema synthetic;
+    private GraphQLSchema schema;
+
+    @Setup
+    public void setUp() {
+        synthetic = SyntheticSchema.newBuilder().seed(1).entityTypes(entityTypes).build();
+        schema = synthetic.build();
+    }
+
+    @Benchmark
+    public GraphQLSchema transformAndBuild() {
+        return synthetic.build();
+    }
+
+    @Benchmark
+    public String sdl() {
+        return SchemaTransformer.sdl(schema);
+    }
+}
@@ -0,0 +1,97 @@
+package com.apollographql.federation.benchmarks;
+
+import com.apollographql.federation.graphqljava.tracing.FederatedTracingInstrumentation;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executing the same query with and without {@link FederatedTracingInstrumentation}. Scores are
+ * per resolved field, so the difference between them is the tracing overhead per traced field.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TracingBenchmark {
+    private static final int ITEMS = 100;
+    // items, and the three fields of each item
+    static final int FIELDS = 1 + 3 * ITEMS;
+
+    static final String SDL = "type Query { items: [Item!]! }\n"
+            + "type Item { id: ID! name: String count: Int }\n";
+    static final String QUERY = "{ items { id name count } }";
+
+    private GraphQL untraced;
+    private GraphQL traced;
+    private GraphQL tracedColumnar;
+
+    @Setup
+    public void setUp() {
+        final GraphQLSchema schema = schema();
+        untraced = GraphQL.newGraphQL(schema).build();
+        traced = GraphQL.newGraphQL(schema)
+                .instrumentation(new FederatedTracingInstrumentation())
+                .build();
+        tracedColumnar = GraphQL.newGraphQL(schema)
+                .instrumentation(new FederatedTracingInstrumentation(
+                        FederatedTracingInstrumentation.Options.newOptions().columnarFieldRecording(true)))
+                .build();
+    }
+
+    static GraphQLSchema schema() {
+        final List<Map<String, Object>> items = new ArrayList<>(ITEMS);
+        for (int i = 0; i < ITEMS; i++) {
+            final Map<String, Object> item = new LinkedHashMap<>();
+            item.put("id", Integer.toString(i));
+            item.put("name", "Item " + i);
+            item.put("count", i);
+            items.add(item);
+        }
+        return new SchemaGenerator().makeExecutableSchema(
+                new SchemaParser().parse(SDL),
+                RuntimeWiring.newRuntimeWiring()
+                        .type("Query", type -> type.dataFetcher("items", env -> items))
+                        .build());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FIELDS)
+    public ExecutionResult untraced() {
+        return untraced.execute(QUERY);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FIELDS)
+    public ExecutionResult traced() {
+        return traced.execute(QUERY);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FIELDS)
+    public ExecutionResult tracedColumnar() {
+        return tracedColumnar.execute(QUERY);
+    }
+}
@@ -0,0 +1,324 @@
+package com.apollographql.federation.benchmarks;
+
+import com.apollographql.federation.graphqljava.SyntheticSchema;
+import com.apollographql.federation.graphqljava.tracing.FederatedTracingInstrumentation;
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.execution.instrumentation.Instrumentation;
+import graphql.schema.GraphQLSchema;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Measures the overhead of {@link FederatedTracingInstrumentation} on representative queries, and
+ * fails when it exceeds the given thresholds.
+ * <p>
+ * Every query is executed without tracing and with each field recorder, to compare the CPU time
+ * and the bytes allocated per request on a single thread, and the 99th percentile latency of
+ * requests executed concurrently. The variants are measured in turns over several rounds, each
+ * starting with a different variant, so that they share the state of the JVM and the machine,
+ * and the median of each measurement is compared. The ratios of the traced to the untraced
+ * medians are written as JSON, and the process exits with status 1 if any ratio exceeds its
+ * threshold.
+ * <p>
+ * Arguments, all optional, are {@code --name=value} pairs: {@code output} (a file, rather than
+ * standard output), {@code max-cpu-ratio}, {@code max-allocation-ratio}, {@code max-p99-ratio},
+ * {@code warmup-requests}, {@code rounds}, {@code requests} (per round) and {@code threads}.
+ */
+public final class TracingOverheadGate {
+    private static final String UNTRACED = "untraced";
+
+    private final int warmupRequests;
+    private final int rounds;
+    private final int requests;
+    private final int threads;
+    private final Map<String, Double> maxRatios = new LinkedHashMap<>();
+
+    private TracingOverheadGate(Map<String, String> arguments) {
+        warmupRequests = Integer.parseInt(arguments.getOrDefault("warmup-requests", "2000"));
+        rounds = Integer.parseInt(arguments.getOrDefault("rounds", "5"));
+        requests = Integer.parseInt(arguments.getOrDefault("requests", "2000"));
+        threads = Integer.parseInt(arguments.getOrDefault("threads", "4"));
+        if (warmupRequests < 0 || rounds <= 0 || threads <= 0) {
+            throw new IllegalArgumentException("Expected non-negative warmup requests and positive rounds and threads");
+        }
+        if (requests < threads) {
+            throw new IllegalArgumentException("Expected at least one request per thread, got "
+                    + requests + " requests for " + threads + " threads");
+        }
+        maxRatios.put("cpu", Double.parseDouble(arguments.getOrDefault("max-cpu-ratio", "3")));
+        maxRatios.put("allocation", Double.parseDouble(arguments.getOrDefault("max-allocation-ratio", "2")));
+        maxRatios.put("p99", Double.parseDouble(arguments.getOrDefault("max-p99-ratio", "3")));
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Map<String, String> arguments = new LinkedHashMap<>();
+        for (String arg : args) {
+            final int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            arguments.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+
+        final List<String> violations = new ArrayList<>();
+        final String report = new TracingOverheadGate(arguments).run(violations);
+        final String output = arguments.get("output");
+        if (output != null) {
+            final Path path = Paths.get(output);
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            Files.write(path, report.getBytes(StandardCharsets.UTF_8));
+        } else {
+            System.out.println(report);
+        }
+
+        for (String violation : violations) {
+            System.err.println("Tracing overhead exceeds its threshold: " + violation);
+        }
+        System.exit(violations.isEmpty() ? 0 : 1);
+    }
+
+    private String run(List<String> violations) throws Exception {
+        final Map<String, Supplier<Instrumentation>> variants = new LinkedHashMap<>();
+        variants.put(UNTRACED, () -> null);
+        variants.put("traced", FederatedTracingInstrumentation::new);
+        variants.put("tracedColumnar", () -> new FederatedTracingInstrumentation(
+                FederatedTracingInstrumentation.Options.newOptions().columnarFieldRecording(true)));
+
+        final SyntheticSchema synthetic = SyntheticSchema.newBuilder().seed(1).entityTypes(20).build();
+        final Map<String, Workload> workloads = new LinkedHashMap<>();
+        workloads.put("listOfObjects", new Workload(
+                TracingBenchmark.schema(),
+                ExecutionInput.newExecutionInput(TracingBenchmark.QUERY).build()));
+        workloads.put("entities", new Workload(
+                synthetic.build(),
+                ExecutionInput.newExecutionInput(synthetic.entitiesQuery())
+                        .variables(Collections.singletonMap("representations", synthetic.representations(100)))
+                        .build()));
+
+        final StringBuilder json = new StringBuilder("{\n  \"workloads\": {");
+        String workloadSeparator = "\n";
+        for (Map.Entry<String, Workload> workload : workloads.entrySet()) {
+            final Map<String, Measurement> measurements = measure(workload.getValue(), variants);
+
+            json.append(workloadSeparator).append("    \"").append(workload.getKey()).append("\": {\n");
+            json.append("      \"measurements\": {");
+            String separator = "\n";
+            for (Map.Entry<String, Measurement> measurement : measurements.entrySet()) {
+                json.append(separator).append("        \"").append(measurement.getKey()).append("\": ")
+                        .append(measurement.getValue().toJson());
+                separator = ",\n";
+            }
+            json.append("\n      },\n      \"ratios\": {");
+            separator = "\n";
+            final Measurement untraced = measurements.get(UNTRACED);
+            for (String variant : variants.keySet()) {
+                if (variant.equals(UNTRACED)) {
+                    continue;
+                }
+                final Map<String, Double> ratios = measurements.get(variant).ratiosTo(untraced);
+                json.append(separator).append("        \"").append(variant).append("\": {");
+                String ratioSeparator = "";
+                for (Map.Entry<String, Double> ratio : ratios.entrySet()) {
+                    json.append(ratioSeparator).append('"').append(ratio.getKey()).append("\": ")
+                            .append(number(ratio.getValue()));
+                    ratioSeparator = ", ";
+                    final double max = maxRatios.get(ratio.getKey());
+                    if (!Double.isNaN(ratio.getValue()) && ratio.getValue() > max) {
+                        violations.add(String.format(Locale.ROOT, "%s %s %s ratio %.2f > %.2f",
+                                workload.getKey(), variant, ratio.getKey(), ratio.getValue(), max));
+                    }
+                }
+                json.append('}');
+                separator = ",\n";
+            }
+            json.append("\n      }\n    }");
+            workloadSeparator = ",\n";
+        }
+
+        json.append("\n  },\n  \"thresholds\": {");
+        String separator = "";
+        for (Map.Entry<String, Double> max : maxRatios.entrySet()) {
+            json.append(separator).append('"').append(max.getKey()).append("\": ").append(number(max.getValue()));
+            separator = ", ";
+        }
+        json.append("},\n  \"violations\": [");
+        separator = "";
+        for (String violation : violations) {
+            json.append(separator).append('"').append(violation).append('"');
+            separator = ", ";
+        }
+        return json.append("],\n  \"passed\": ").append(violations.isEmpty()).append("\n}").toString();
+    }
+
+    // The median measurement of each variant over the rounds
+    private Map<String, Measurement> measure(Workload workload, Map<String, Supplier<Instrumentation>> variants)
+            throws Exception {
+        final List<String> names = new ArrayList<>(variants.keySet());
+        final Map<String, GraphQL> graphqls = new LinkedHashMap<>();
+        for (String name : names) {
+            final GraphQL.Builder builder = GraphQL.newGraphQL(workload.schema);
+            final Instrumentation instrumentation = variants.get(name).get();
+            if (instrumentation != null) {
+                builder.instrumentation(instrumentation);
+            }
+            final GraphQL graphql = builder.build();
+            for (int i = 0; i < warmupRequests; i++) {
+                workload.execute(graphql);
+            }
+            graphqls.put(name, graphql);
+        }
+
+        final Map<String, List<Measurement>> byVariant = new LinkedHashMap<>();
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < names.size(); i++) {
+                final String name = names.get((round + i) % names.size());
+                byVariant.computeIfAbsent(name, key -> new ArrayList<>()).add(measure(workload, graphqls.get(name)));
+            }
+        }
+        final Map<String, Measurement> medians = new LinkedHashMap<>();
+        for (String name : names) {
+            medians.put(name, Measurement.median(byVariant.get(name)));
+        }
+        return medians;
+    }
+
+    private Measurement measure(Workload workload, GraphQL graphql) throws Exception {
+        // CPU time and allocations of requests executed one after the other on this thread.
+        final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        final long startCpu = threadBean.getCurrentThreadCpuTime();
+        final long startAllocated = allocatedBytes(threadBean);
+        for (int i = 0; i < requests; i++) {
+            workload.execute(graphql);
+        }
+        final long cpuNs = threadBean.getCurrentThreadCpuTime() - startCpu;
+        final long allocated = startAllocated < 0 ? -1 : allocatedBytes(threadBean) - startAllocated;
+
+        // Latencies of requests executed concurrently.
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final long[] latencies = new long[requests - requests % threads];
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            final int perThread = latencies.length / threads;
+            for (int t = 0; t < threads; t++) {
+                final int offset = t * perThread;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        final long start = System.nanoTime();
+                        workload.execute(graphql);
+                        latencies[offset + i] = System.nanoTime() - start;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Arrays.sort(latencies);
+
+        return new Measurement(
+                (double) cpuNs / requests,
+                allocated < 0 ? Double.NaN : (double) allocated / requests,
+                latencies[(int) Math.ceil(0.99 * latencies.length) - 1]);
+    }
+
+    // Only some JVMs can count the bytes allocated by a thread.
+    private static long allocatedBytes(ThreadMXBean threadBean) {
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            final com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+            if (allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled()) {
+                return allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private static double median(double[] values) {
+        Arrays.sort(values);
+        final int middle = values.length / 2;
+        return values.length % 2 == 1 ? values[middle] : (values[middle - 1] + values[middle]) / 2;
+    }
+
+    private static String number(double value) {
+        return Double.isNaN(value) ? "null" : String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static final class Workload {
+        private final GraphQLSchema schema;
+        private final ExecutionInput input;
+
+        private Workload(GraphQLSchema schema, ExecutionInput input) {
+            this.schema = schema;
+            this.input = input;
+        }
+
+        private void execute(GraphQL graphql) {
+            final ExecutionResult result = graphql.execute(input);
+            if (!result.getErrors().isEmpty()) {
+                throw new IllegalStateException("Query failed: " + result.getErrors());
+            }
+        }
+    }
+
+    private static final class Measurement {
+        private final double cpuNsPerRequest;
+        private final double allocatedBytesPerRequest;
+        private final long p99LatencyNs;
+
+        private Measurement(double cpuNsPerRequest, double allocatedBytesPerRequest, long p99LatencyNs) {
+            this.cpuNsPerRequest = cpuNsPerRequest;
+            this.allocatedBytesPerRequest = allocatedBytesPerRequest;
+            this.p99LatencyNs = p99LatencyNs;
+        }
+
+        private static Measurement median(List<Measurement> measurements) {
+            final double[] cpu = new double[measurements.size()];
+            final double[] allocated = new double[measurements.size()];
+            final double[] p99 = new double[measurements.size()];
+            for (int i = 0; i < measurements.size(); i++) {
+                cpu[i] = measurements.get(i).cpuNsPerRequest;
+                allocated[i] = measurements.get(i).allocatedBytesPerRequest;
+                p99[i] = measurements.get(i).p99LatencyNs;
+            }
+            return new Measurement(
+                    TracingOverheadGate.median(cpu),
+                    TracingOverheadGate.median(allocated),
+                    Math.round(TracingOverheadGate.median(p99)));
+        }
+
+        private Map<String, Double> ratiosTo(Measurement baseline) {
+            final Map<String, Double> ratios = new LinkedHashMap<>();
+            ratios.put("cpu", cpuNsPerRequest / baseline.cpuNsPerRequest);
+            ratios.put("allocation", allocatedBytesPerRequest / baseline.allocatedBytesPerRequest);
+            ratios.put("p99", (double) p99LatencyNs / baseline.p99LatencyNs);
+            return ratios;
+        }
+
+        private String toJson() {
+            return "{\"cpuNsPerRequest\": " + number(cpuNsPerRequest)
+                    + ", \"allocatedBytesPerRequest\": " + number(allocatedBytesPerRequest)
+                    + ", \"p99LatencyNs\": " + p99LatencyNs + "}";
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.apollographql.federation.graphqljava;
+
+import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+import graphql.execution.DataFetcherResult;
+import graphql.execution.ExecutionPath;
+import graphql.schema.DataFetcher;
+import graphql.schema.DataFetchingEnvironment;
+import org.dataloader.DataLoader;
+import org.dataloader.DataLoaderOptions;
+import org.dataloader.DataLoaderRegistry;
+import org.dataloader.Try;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+import static graphql.execution.instrumentation.dataloader.DataLoaderDispatcherInstrumentationState.EMPTY_DATALOADER_REGISTRY;
+
+/**
+ * Resolves {@code _entities} by partitioning the representations by {@code __typename}, calling
+ * each type's {@link EntityBatchLoader} once, and reassembling the results in their original
+ * order.
+ * <p>
+ * Given an {@link Executor}, the loaders of different types are called concurrently on it, so that
+ * a call spanning several types costs the slowest loader rather than the sum of all of them.
+ * <p>
+ * When backed by a {@link DataLoader}, identical representations are only loaded once, both
+ * within one {@code _entities} field and across aliased {@code _entities} fields of the same
+ * operation (provided the operation runs with its own {@link DataLoaderRegistry}).
+ */
+final class EntitiesDataFetcher implements DataFetcher<CompletableFuture<DataFetcherResult<List<Object>>>> {
+    static final String typenameKey = "__typename";
+    static final String dataLoaderName = "com.apollographql.federation._entities";
+
+    private final Map<String, EntityBatchLoader> batchLoaders;
+    private final Map<String, EntityKeyExtractor> keyExtractors;
+    private final boolean useDataLoader;
+    private final @Nullable Executor executor;
+    private final @Nullable EntityCache cache;
+
+    EntitiesDataFetcher(
+            Map<String, EntityBatchLoader> batchLoaders,
+            Map<String, EntityKeyExtractor> keyExtractors,
+            boolean useDataLoader,
+            @Nullable Executor executor,
+            @Nullable EntityCache cache
+    ) {
+        this.batchLoaders = batchLoaders;
+        this.keyExtractors = keyExtractors;
+        this.useDataLoader = useDataLoader;
+        this.executor = executor;
+        this.cache = cache;
+    }
+
+    @Override
+    public CompletableFuture<DataFetcherResult<List<Object>>> get(DataFetchingEnvironment environment) {
+        final List<Map<String, Object>> representations = environment.getArgument(_Entity.argumentName);
+        final CompletableFuture<List<Object>> loaded = useDataLoader
+                ? loadThroughDataLoader(environment.getDataLoaderRegistry(), representations)
+                : loadBatches(representations);
+        return loaded.thenApply(values -> toResult(environment, values));
+    }
+
+    @NotNull
+    private CompletableFuture<List<Object>> loadThroughDataLoader(
+            DataLoaderRegistry registry,
+            List<Map<String, Object>> representations
+    ) {
+        // Without a registry of its own, the operation is never dispatched by graphql-java, so we
+        // fall back to a loader that only deduplicates within this field and dispatch it ourselves.
+        final boolean shared = registry != null && registry != EMPTY_DATALOADER_REGISTRY;
+        final DataLoader<Map<String, Object>, Object> dataLoader = shared
+                ? registry.computeIfAbsent(dataLoaderName, name -> newDataLoader())
+                : newDataLoader();
+
+        final Object[] values = new Object[representations.size()];
+        final CompletableFuture<?>[] pending = new CompletableFuture<?>[representations.size()];
+        for (int i = 0; i < representations.size(); i++) {
+            final int position = i;
+            pending[i] = dataLoader.load(representations.get(i)).handle((value, throwable) -> {
+                values[position] = throwable == null ? value : Try.failed(unwrap(throwable));
+                return null;
+            });
+        }
+        if (!shared) {
+            dataLoader.dispatch();
+        }
+        return CompletableFuture.allOf(pending).thenApply(ignored -> Arrays.asList(values));
+    }
+
+    @NotNull
+    private DataLoader<Map<String, Object>, Object> newDataLoader() {
+        return DataLoader.newDataLoader(
+                this::loadBatches,
+                DataLoaderOptions.newOptions().setCacheKeyFunction(this::cacheKey));
+    }
+
+    /**
+     * Identify a representation made up of only its key by its compiled {@link EntityKey}, which
+     * is cheaper to hash and compare. Representations without a matching key, or carrying other
+     * fields such as {@code @requires} ones, fall back to being compared as maps, so that only
+     * representations with the same fields are loaded once.
+     */
+    @NotNull
+    private Object cacheKey(Object input) {
+        @SuppressWarnings("unchecked") final Map<String, Object> representation = (Map<String, Object>) input;
+        final EntityKey key = cacheableKeyOf(representation);
+        return key != null ? key : representation;
+    }
+
+    @Nullable
+    private EntityKey keyOf(Map<String, Object> representation) {
+        if (representation instanceof EntityRepresentation) {
+            return ((EntityRepresentation) representation).getKey();
+        }
+        final EntityKeyExtractor keyExtractor = keyExtractors.get(representation.get(typenameKey));
+        return keyExtractor == null ? null : keyExtractor.extract(representation);
+    }
+
+    /**
+     * @return the key to cache the representation's entity under, or null if it has none or also
+     * carries fields outside it, such as {@code @requires} fields the entity may be computed from
+     */
+    @Nullable
+    private EntityKey cacheableKeyOf(Map<String, Object> representation) {
+        final EntityKey key = keyOf(representation);
+        if (key == null) {
+            return null;
+        }
+        final EntityKeyExtractor keyExtractor = keyExtractors.get(key.getTypename());
+        return keyExtractor != null && keyExtractor.isKeyOnly(representation, key) ? key : null;
+    }
+
+    /**
+     * Load the given representations, one batch per {@code __typename}. Representations that
+     * could not be loaded are represented as a failed {@link Try} in the returned list.
+     * <p>
+     * With a cache, entities found in it are served from it, and only the others are loaded.
+     * Representations carrying fields outside their key bypass the cache altogether.
+     */
+    @NotNull
+    private CompletableFuture<List<Object>> loadBatches(List<Map<String, Object>> representations) {
+        final Object[] values = new Object[representations.size()];
+
+        // Partition the representations by __typename, remembering where each one came from.
+        final Map<String, Batch> batches = new LinkedHashMap<>();
+        for (int i = 0; i < representations.size(); i++) {
+            final Map<String, Object> representation = representations.get(i);
+            final Object typename = representation.get(typenameKey);
+            EntityKey key = null;
+            if (cache != null && (key = cacheableKeyOf(representation)) != null) {
+                final Object cached = cache.get(key);
+                if (cached != null) {
+                    values[i] = cached;
+                    continue;
+                }
+            }
+            Batch batch = batches.get(typename);
+            if (batch == null) {
+                final EntityBatchLoader batchLoader = batchLoaders.get(typename);
+                if (batchLoader == null) {
+                    values[i] = Try.failed(new MissingBatchLoaderException(typename));
+                    continue;
+                }
+                batch = new Batch((String) typename, batchLoader, cache);
+                batches.put((String) typename, batch);
+            }
+            batch.add(i, representation, key);
+        }
+
+        final CompletableFuture<?>[] pending = new CompletableFuture<?>[batches.size()];
+        int index = 0;
+        for (Batch batch : batches.values()) {
+            pending[index++] = batch.load(values, executor);
+        }
+        return CompletableFuture.allOf(pending).thenApply(ignored -> Arrays.asList(values));
+    }
+
+    @NotNull
+    private static DataFetcherResult<List<Object>> toResult(DataFetchingEnvironment environment, List<Object> values) {
+        final ExecutionPath path = environment.getExecutionStepInfo().getPath();
+        final List<GraphQLError> errors = new ArrayList<>();
+        // A failed batch fails all of its representations with the same exception; report it once.
+        Set<Throwable> reported = null;
+        for (int i = 0; i < values.size(); i++) {
+            final Object value = values.get(i);
+            if (!(value instanceof Try)) {
+                continue;
+            }
+            values.set(i, null);
+            final Throwable throwable = ((Try<?>) value).getThrowable();
+            if (throwable instanceof MissingBatchLoaderException) {
+                errors.add(GraphqlErrorBuilder.newError(environment)
+                        .message("%s", throwable.getMessage())
+                        .path(path.segment(i))
+                        .build());
+                continue;
+            }
+            if (reported == null) {
+                reported = Collections.newSetFromMap(new IdentityHashMap<>());
+            }
+            if (reported.add(throwable)) {
+                errors.add(GraphqlErrorBuilder.newError(environment)
+                        .message("%s", throwable.getMessage())
+                        .build());
+            }
+        }
+        return DataFetcherResult.<List<Object>>newResult()
+                .data(values)
+                .errors(errors)
+                .build();
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        if (throwable instanceof CompletionException && throwable.getCause() != null) {
+            return throwable.getCause();
+        }
+        return throwable;
+    }
+
+    /**
+     * The representations of a single entity type, along with their positions in the list being
+     * loaded.
+     */
+    private static final class Batch {
+        private final String typename;
+        private final EntityBatchLoader batchLoader;
+        private final @Nullable EntityCache cache;
+        private final List<Map<String, Object>> representations = new ArrayList<>();
+        private int[] positions = new int[8];
+        private EntityKey[] keys;
+
+        private Batch(String typename, EntityBatchLoader batchLoader, @Nullable EntityCache cache) {
+            this.typename = typename;
+            this.batchLoader = batchLoader;
+            this.cache = cache;
+            this.keys = cache == null ? null : new EntityKey[8];
+        }
+
+        private void add(int position, Map<String, Object> representation, @Nullable EntityKey key) {
+            final int size = representations.size();
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+                if (keys != null) {
+                    keys = Arrays.copyOf(keys, size * 2);
+                }
+            }
+            positions[size] = position;
+            if (keys != null) {
+                keys[size] = key;
+            }
+            representations.add(representation);
+        }
+
+        @NotNull
+        private CompletableFuture<Void> load(Object[] values, @Nullable Executor executor) {
+            return invokeLoader(executor).handle((results, throwable) -> {
+                throwable = throwable == null ? null : unwrap(throwable);
+                if (throwable == null && (results == null || results.size() != representations.size())) {
+                    throwable = new IllegalStateException("Expected " + representations.size() +
+                            " results but got " + (results == null ? "null" : results.size()));
+                }
+                if (throwable != null) {
+                    final Try<Object> failure = Try.failed(new BatchLoadException(typename, throwable));
+                    for (int i = 0; i < representations.size(); i++) {
+                        values[positions[i]] = failure;
+                    }
+                    return null;
+                }
+                for (int i = 0; i < results.size(); i++) {
+                    final Object result = results.get(i);
+                    values[positions[i]] = result;
+                    if (cache != null && keys[i] != null && result != null && !(result instanceof Try)) {
+                        cache.put(keys[i], result);
+                    }
+                }
+                return null;
+            });
+        }
+
+        @NotNull
+        private CompletableFuture<List<Object>> invokeLoader(@Nullable Executor executor) {
+            if (executor == null) {
+                return invokeLoader();
+            }
+            try {
+                return CompletableFuture.supplyAsync(this::invokeLoader, executor).thenCompose(Function.identity());
+            } catch (RejectedExecutionException e) {
+                // Only fail this batch, rather than every entity of the request.
+                return failed(e);
+            }
+        }
+
+        @NotNull
+        private CompletableFuture<List<Object>> invokeLoader() {
+            try {
+                return batchLoader.load(representations);
+            } catch (RuntimeException e) {
+                return failed(e);
+            }
+        }
+
+        @NotNull
+        private static CompletableFuture<List<Object>> failed(Throwable throwable) {
+            final CompletableFuture<List<Object>> failed = new CompletableFuture<>();
+            failed.completeExceptionally(throwable);
+            return failed;
+        }
+    }
+
+    private static final class MissingBatchLoaderException extends RuntimeException {
+        private MissingBatchLoaderException(Object typename) {
+            super("No entity batch loader registered for __typename " + typename, null, false, false);
+        }
+    }
+
+    private static final class BatchLoadException extends RuntimeException {
+        private BatchLoadException(String typename, Throwable cause) {
+            super("Failed to load entities of type " + typename + ": " + cause.getMessage(), cause, false, false);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.apollographql.federation.graphqljava;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Resolves a batch of entity representations of a single type, as registered with
+ * {@link SchemaTransformer#fetchEntities(String, EntityBatchLoader)}.
+ */
+@FunctionalInterface
+public interface EntityBatchLoader {
+    /**
+     * Resolve all given representations in one go.
+     *
+     * @param representations the representations of a single entity type, in the order they
+     *                        appeared in the {@code _entities} call
+     * @return one result per representation, in the same order ({@code null} for entities that
+     * could not be found)
+     */
+    @NotNull
+    CompletableFuture<List<Object>> load(@NotNull List<Map<String, Object>> representations);
+}
@@ -0,0 +1,27 @@
+package com.apollographql.federation.graphqljava;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Caches resolved entities in front of the {@link EntityBatchLoader}s, as installed with
+ * {@link SchemaTransformer#entityCache(EntityCache)}.
+ * <p>
+ * Only representations that match one of their type's {@code @key}s, and carry no other fields, are
+ * cached: an entity resolved from {@code @requires} fields may differ between representations of
+ * the same key. Only non-null results are stored. Implementations must be thread-safe.
+ */
+public interface EntityCache {
+    /**
+     * @param key the key of the requested entity
+     * @return the cached entity, or null if it is not cached
+     */
+    @Nullable
+    Object get(@NotNull EntityKey key);
+
+    /**
+     * @param key    the key of a freshly loaded entity
+     * @param entity the entity, as returned by its batch loader
+     */
+    void put(@NotNull EntityKey key, @NotNull Object entity);
+}
@@ -0,0 +1,280 @@
+package com.apollographql.federation.graphqljava;
+
+import graphql.parser.InvalidSyntaxException;
+import graphql.schema.GraphQLSchema;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The entities of a federated schema, as discovered by {@link SchemaTransformer#build()}: the
+ * object and interface types annotated with {@code @key}, and the concrete types that make up the
+ * {@code _Entity} union, along with their compiled {@link EntityKeyExtractor}s.
+ * <p>
+ * Catalogs are immutable, and are computed once per built schema, so resolvers and caches can use
+ * them rather than inspecting the schema's directives themselves.
+ */
+public final class EntityCatalog {
+    /**
+     * An object or interface type annotated with {@code @key}.
+     */
+    public static final class EntityType {
+        private final String name;
+        private final boolean isInterface;
+        private final boolean isExtension;
+        private final List<String> keyFieldSets;
+        private final Set<String> concreteTypeNames;
+
+        private EntityType(String name,
+                           boolean isInterface,
+                           boolean isExtension,
+                           List<String> keyFieldSets,
+                           Set<String> concreteTypeNames) {
+            this.name = name;
+            this.isInterface = isInterface;
+            this.isExtension = isExtension;
+            this.keyFieldSets = keyFieldSets;
+            this.concreteTypeNames = concreteTypeNames;
+        }
+
+        @NotNull
+        public String getName() {
+            return name;
+        }
+
+        public boolean isInterface() {
+            return isInterface;
+        }
+
+        /**
+         * @return whether the type is annotated with {@code @extends}, i.e. is owned by another
+         * service
+         */
+        public boolean isExtension() {
+            return isExtension;
+        }
+
+        /**
+         * @return the {@code fields} of each of the type's own {@code @key} directives
+         */
+        @NotNull
+        public List<String> getKeyFieldSets() {
+            return keyFieldSets;
+        }
+
+        /**
+         * @return the names of the object types this entity resolves to: the type itself, or the
+         * object types implementing the interface
+         */
+        @NotNull
+        public Set<String> getConcreteTypeNames() {
+            return concreteTypeNames;
+        }
+
+        @Override
+        public String toString() {
+            return name + keyFieldSets;
+        }
+    }
+
+    private static final EntityCatalog empty = new EntityCatalog(
+            Collections.emptyMap(), Collections.emptySet(), Collections.emptyMap(), Collections.emptyMap());
+
+    private final Map<String, EntityType> entityTypes;
+    private final Set<String> concreteTypeNames;
+    private final Map<String, EntityKeyExtractor> keyExtractors;
+    private final Map<String, String> keyErrors;
+
+    private EntityCatalog(Map<String, EntityType> entityTypes,
+                          Set<String> concreteTypeNames,
+                          Map<String, EntityKeyExtractor> keyExtractors,
+                          Map<String, String> keyErrors) {
+        this.entityTypes = entityTypes;
+        this.concreteTypeNames = concreteTypeNames;
+        this.keyExtractors = keyExtractors;
+        this.keyErrors = keyErrors;
+    }
+
+    /**
+     * @param schema a schema built by {@link SchemaTransformer#build()}
+     * @return the entities of the schema, or null if it was not built by this library
+     */
+    @Nullable
+    public static EntityCatalog from(@NotNull GraphQLSchema schema) {
+        final ServiceSdlDataFetcher dataFetcher = ServiceSdlDataFetcher.from(schema);
+        return dataFetcher != null ? dataFetcher.getEntityCatalog() : null;
+    }
+
+    /**
+     * @return the object and interface types annotated with {@code @key}, by name
+     */
+    @NotNull
+    public Collection<EntityType> getEntityTypes() {
+        return entityTypes.values();
+    }
+
+    @Nullable
+    public EntityType getEntityType(@NotNull String name) {
+        return entityTypes.get(name);
+    }
+
+    /**
+     * @return the names of the members of the {@code _Entity} union, sorted
+     */
+    @NotNull
+    public Set<String> getConcreteTypeNames() {
+        return concreteTypeNames;
+    }
+
+    /**
+     * @param concreteTypeName the name of a member of the {@code _Entity} union
+     * @return the extractor of the type's keys: its own {@code @key}s, or those of the keyed
+     * interfaces it implements; or null if the type is not an entity, or if its keys use anything
+     * {@link EntityKeyExtractor} does not support
+     */
+    @Nullable
+    public EntityKeyExtractor getKeyExtractor(@NotNull String concreteTypeName) {
+        return keyExtractors.get(concreteTypeName);
+    }
+
+    Map<String, EntityKeyExtractor> getKeyExtractors() {
+        return keyExtractors;
+    }
+
+    /**
+     * @return why the keys of the concrete entity types without an extractor could not be
+     * compiled, by type name
+     */
+    Map<String, String> getKeyErrors() {
+        return keyErrors;
+    }
+
+    boolean isEmpty() {
+        return concreteTypeNames.isEmpty();
+    }
+
+    static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Collects the object and interface types of a schema, or of a type registry, in a single pass
+     * over them, and then resolves which object types are entities.
+     */
+    static final class Builder {
+        private final Map<String, Candidate> keyedTypes = new TreeMap<>();
+        private final Map<String, Candidate> objectTypes = new TreeMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * @param keyFieldSets   the {@code fields} of the type's {@code @key} directives
+         * @param isExtension    whether the type is annotated with {@code @extends}
+         * @param interfaceNames the interfaces an object type implements
+         */
+        @NotNull
+        Builder type(@NotNull String name,
+                     boolean isInterface,
+                     @NotNull List<String> keyFieldSets,
+                     boolean isExtension,
+                     @NotNull List<String> interfaceNames) {
+            // Only keyed types, and object types that may implement a keyed interface, matter.
+            if (keyFieldSets.isEmpty() && (isInterface || interfaceNames.isEmpty())) {
+                return this;
+            }
+            final Candidate candidate = new Candidate(name, isInterface, keyFieldSets, isExtension, interfaceNames);
+            if (!keyFieldSets.isEmpty()) {
+                keyedTypes.put(name, candidate);
+            }
+            if (!isInterface) {
+                objectTypes.put(name, candidate);
+            }
+            return this;
+        }
+
+        /**
+         * Types whose {@code @key}s cannot be compiled are still entities, but are left out of the
+         * catalog's key extractors; it is up to the features relying on keys to report them.
+         */
+        @NotNull
+        EntityCatalog build() {
+            if (keyedTypes.isEmpty()) {
+                return empty;
+            }
+
+            final Set<String> concreteTypeNames = new TreeSet<>();
+            final Map<String, EntityKeyExtractor> keyExtractors = new LinkedHashMap<>();
+            final Map<String, String> keyErrors = new LinkedHashMap<>();
+            for (Candidate type : objectTypes.values()) {
+                final List<String> interfaceFieldSets = new ArrayList<>();
+                boolean implementsEntity = false;
+                for (String interfaceName : type.interfaceNames) {
+                    final Candidate itf = keyedTypes.get(interfaceName);
+                    if (itf != null && itf.isInterface) {
+                        implementsEntity = true;
+                        itf.concreteTypeNames.add(type.name);
+                        interfaceFieldSets.addAll(itf.keyFieldSets);
+                    }
+                }
+                if (!type.keyFieldSets.isEmpty()) {
+                    type.concreteTypeNames.add(type.name);
+                } else if (!implementsEntity) {
+                    continue;
+                }
+
+                // Parse the @key field sets of every entity type once, rather than per representation.
+                concreteTypeNames.add(type.name);
+                final List<String> fieldSets = type.keyFieldSets.isEmpty() ? interfaceFieldSets : type.keyFieldSets;
+                try {
+                    keyExtractors.put(type.name, EntityKeyExtractor.compile(type.name, fieldSets));
+                } catch (InvalidSyntaxException | IllegalArgumentException e) {
+                    keyErrors.put(type.name, e.getMessage());
+                }
+            }
+
+            final Map<String, EntityType> entityTypes = new LinkedHashMap<>();
+            keyedTypes.forEach((name, type) -> entityTypes.put(name, new EntityType(
+                    name,
+                    type.isInterface,
+                    type.isExtension,
+                    Collections.unmodifiableList(new ArrayList<>(type.keyFieldSets)),
+                    Collections.unmodifiableSet(type.concreteTypeNames))));
+            return new EntityCatalog(
+                    Collections.unmodifiableMap(entityTypes),
+                    Collections.unmodifiableSet(concreteTypeNames),
+                    Collections.unmodifiableMap(keyExtractors),
+                    Collections.unmodifiableMap(keyErrors));
+        }
+    }
+
+    private static final class Candidate {
+        private final String name;
+        private final boolean isInterface;
+        private final List<String> keyFieldSets;
+        private final boolean isExtension;
+        private final List<String> interfaceNames;
+        private final Set<String> concreteTypeNames = new TreeSet<>();
+
+        private Candidate(String name,
+                          boolean isInterface,
+                          List<String> keyFieldSets,
+                          boolean isExtension,
+                          List<String> interfaceNames) {
+            this.name = name;
+            this.isInterface = isInterface;
+            this.keyFieldSets = keyFieldSets;
+            this.isExtension = isExtension;
+            this.interfaceNames = interfaceNames;
+        }
+    }
+}
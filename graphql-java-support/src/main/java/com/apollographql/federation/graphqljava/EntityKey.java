@@ -0,0 +1,70 @@
+package com.apollographql.federation.graphqljava;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The identity of an entity, as extracted from a representation by an {@link EntityKeyExtractor}:
+ * its {@code __typename}, which of its {@code @key}s matched, and the values of that key's fields
+ * in selection order (nested selections flattened depth-first).
+ * <p>
+ * Keys are immutable and implement {@link #equals(Object)} and {@link #hashCode()}, so they can be
+ * used to deduplicate or cache entities.
+ */
+public final class EntityKey {
+    private final String typename;
+    private final int keyIndex;
+    private final Object[] values;
+    private final int hashCode;
+
+    EntityKey(@NotNull String typename, int keyIndex, @NotNull Object[] values) {
+        this.typename = typename;
+        this.keyIndex = keyIndex;
+        this.values = values;
+        this.hashCode = 31 * (31 * typename.hashCode() + keyIndex) + Arrays.hashCode(values);
+    }
+
+    @NotNull
+    public String getTypename() {
+        return typename;
+    }
+
+    /**
+     * @return the index of the matching {@code @key} among the type's {@code @key} directives
+     */
+    public int getKeyIndex() {
+        return keyIndex;
+    }
+
+    /**
+     * @return the values of the key's leaf fields, in selection order
+     */
+    @NotNull
+    public List<Object> getValues() {
+        return Collections.unmodifiableList(Arrays.asList(values));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) return true;
+        if (!(o instanceof EntityKey)) return false;
+        final EntityKey other = (EntityKey) o;
+        return hashCode == other.hashCode &&
+                keyIndex == other.keyIndex &&
+                typename.equals(other.typename) &&
+                Arrays.equals(values, other.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return typename + Arrays.toString(values);
+    }
+}
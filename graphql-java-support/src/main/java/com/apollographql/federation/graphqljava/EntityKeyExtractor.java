@@ -0,0 +1,197 @@
+package com.apollographql.federation.graphqljava;
+
+import graphql.language.Document;
+import graphql.language.Field;
+import graphql.language.OperationDefinition;
+import graphql.language.Selection;
+import graphql.language.SelectionSet;
+import graphql.parser.InvalidSyntaxException;
+import graphql.parser.Parser;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Extracts {@link EntityKey}s from representations of one entity type, following the type's
+ * {@code @key(fields: ...)} selections. The selections are parsed once, when the extractor is
+ * compiled, so extraction only has to look up the selected fields.
+ */
+public final class EntityKeyExtractor {
+    private final String typename;
+    private final List<String> fieldSets;
+    private final KeyField[][] keys;
+    private final int[] leafCounts;
+    private final String[] topLevelFieldNames;
+
+    private EntityKeyExtractor(String typename, List<String> fieldSets, KeyField[][] keys) {
+        this.typename = typename;
+        this.fieldSets = fieldSets;
+        this.keys = keys;
+        this.leafCounts = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            leafCounts[i] = countLeaves(keys[i]);
+        }
+        final Set<String> names = new LinkedHashSet<>();
+        for (KeyField[] key : keys) {
+            for (KeyField field : key) {
+                names.add(field.name);
+            }
+        }
+        this.topLevelFieldNames = names.toArray(new String[0]);
+    }
+
+    /**
+     * Compile an extractor for the given entity type.
+     *
+     * @param typename  the entity type's name
+     * @param fieldSets the {@code fields} of each of the type's {@code @key} directives, e.g.
+     *                  {@code "id organization { id }"}
+     * @return the compiled extractor
+     * @throws InvalidSyntaxException   if a field set cannot be parsed
+     * @throws IllegalArgumentException if a field set uses anything but plain field selections
+     */
+    @NotNull
+    public static EntityKeyExtractor compile(@NotNull String typename, @NotNull List<String> fieldSets) {
+        final KeyField[][] keys = new KeyField[fieldSets.size()][];
+        for (int i = 0; i < keys.length; i++) {
+            final Document document = new Parser().parseDocument("{" + fieldSets.get(i) + "}");
+            final OperationDefinition operation = (OperationDefinition) document.getDefinitions().get(0);
+            keys[i] = compileSelectionSet(fieldSets.get(i), operation.getSelectionSet());
+        }
+        return new EntityKeyExtractor(typename, fieldSets, keys);
+    }
+
+    @NotNull
+    public String getTypename() {
+        return typename;
+    }
+
+    /**
+     * @return the {@code fields} of each {@code @key} this extractor was compiled from
+     */
+    @NotNull
+    public List<String> getFieldSets() {
+        return fieldSets;
+    }
+
+    /**
+     * @return the names of the top-level fields selected by any of the {@code @key}s, in order of
+     * first appearance
+     */
+    String[] getTopLevelFieldNames() {
+        return topLevelFieldNames;
+    }
+
+    /**
+     * Extract the key of a representation, using the first {@code @key} whose fields are all
+     * present.
+     *
+     * @param representation the representation, as passed to {@code _entities}
+     * @return the key, or null if no {@code @key} matches the representation
+     */
+    @Nullable
+    public EntityKey extract(@NotNull Map<String, Object> representation) {
+        for (int i = 0; i < keys.length; i++) {
+            final Object[] values = new Object[leafCounts[i]];
+            if (fill(representation, keys[i], values, 0) >= 0) {
+                return new EntityKey(typename, i, values);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param representation a representation the given key was extracted from
+     * @param key            the key extracted from it
+     * @return whether the representation holds nothing but {@code __typename}s and the fields
+     * selected by the key, i.e. no fields another service provides for {@code @requires}
+     */
+    boolean isKeyOnly(@NotNull Map<String, Object> representation, @NotNull EntityKey key) {
+        return selectsExactly(representation, keys[key.getKeyIndex()]);
+    }
+
+    private static boolean selectsExactly(Map<?, ?> object, KeyField[] fields) {
+        final int typename = object.containsKey(EntitiesDataFetcher.typenameKey) ? 1 : 0;
+        if (object.size() != fields.length + typename) {
+            return false;
+        }
+        for (KeyField field : fields) {
+            if (field.selections != null && !selectsExactly((Map<?, ?>) object.get(field.name), field.selections)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copy the leaf values selected by {@code fields} out of {@code object} into {@code values},
+     * starting at {@code index}.
+     *
+     * @return the index after the last copied value, or -1 if a selected field is missing
+     */
+    private static int fill(Map<?, ?> object, KeyField[] fields, Object[] values, int index) {
+        for (KeyField field : fields) {
+            final Object value = object.get(field.name);
+            if (field.selections == null) {
+                if (value == null && !object.containsKey(field.name)) {
+                    return -1;
+                }
+                values[index++] = value;
+            } else {
+                if (!(value instanceof Map)) {
+                    return -1;
+                }
+                index = fill((Map<?, ?>) value, field.selections, values, index);
+                if (index < 0) {
+                    return -1;
+                }
+            }
+        }
+        return index;
+    }
+
+    private static KeyField[] compileSelectionSet(String fieldSet, SelectionSet selectionSet) {
+        final List<Selection> selections = selectionSet.getSelections();
+        final KeyField[] fields = new KeyField[selections.size()];
+        for (int i = 0; i < fields.length; i++) {
+            final Selection selection = selections.get(i);
+            if (!(selection instanceof Field)) {
+                throw new IllegalArgumentException("Only field selections are supported in @key(fields: \"" + fieldSet + "\")");
+            }
+            final Field field = (Field) selection;
+            if (field.getAlias() != null || !field.getArguments().isEmpty() || !field.getDirectives().isEmpty()) {
+                throw new IllegalArgumentException("Aliases, arguments and directives are not supported in @key(fields: \"" + fieldSet + "\")");
+            }
+            final SelectionSet subSelections = field.getSelectionSet();
+            fields[i] = new KeyField(
+                    field.getName(),
+                    subSelections == null || subSelections.getSelections().isEmpty()
+                            ? null
+                            : compileSelectionSet(fieldSet, subSelections)
+            );
+        }
+        return fields;
+    }
+
+    private static int countLeaves(KeyField[] fields) {
+        int count = 0;
+        for (KeyField field : fields) {
+            count += field.selections == null ? 1 : countLeaves(field.selections);
+        }
+        return count;
+    }
+
+    private static final class KeyField {
+        private final String name;
+        private final @Nullable KeyField[] selections;
+
+        private KeyField(String name, @Nullable KeyField[] selections) {
+            this.name = name;
+            this.selections = selections;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.apollographql.federation.graphqljava;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A representation of an entity, as decoded by {@link _Any#entityRepresentationCoercing()}.
+ * <p>
+ * The fields selected by the type's {@code @key}s are stored in fixed slots rather than in a hash
+ * map, and the representation's {@link EntityKey} is available without re-reading the map. It is
+ * still a read-only {@link Map}, so existing entity fetchers keep working unchanged.
+ */
+public final class EntityRepresentation extends AbstractMap<String, Object> {
+    private static final Object ABSENT = new Object();
+
+    private final String typename;
+    private final Layout layout;
+    private final Object[] slots;
+    private @Nullable Map<String, Object> overflow;
+    private @Nullable EntityKey key;
+
+    EntityRepresentation(@NotNull String typename, @NotNull Layout layout) {
+        this.typename = typename;
+        this.layout = layout;
+        this.slots = new Object[layout.fieldNames.length];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = ABSENT;
+        }
+    }
+
+    /**
+     * Set a field while decoding. Must not be called once the representation has been handed out.
+     */
+    void set(String name, @Nullable Object value) {
+        final int slot = layout.slotOf(name);
+        if (slot >= 0) {
+            slots[slot] = value;
+        } else {
+            if (overflow == null) {
+                overflow = new LinkedHashMap<>();
+            }
+            overflow.put(name, value);
+        }
+    }
+
+    @NotNull
+    public String getTypename() {
+        return typename;
+    }
+
+    /**
+     * @return the key of this representation, or null if none of the type's {@code @key}s matches
+     */
+    @Nullable
+    public EntityKey getKey() {
+        if (key == null) {
+            key = layout.keyExtractor.extract(this);
+        }
+        return key;
+    }
+
+    @Override
+    public Object get(Object name) {
+        if (EntitiesDataFetcher.typenameKey.equals(name)) {
+            return typename;
+        }
+        final int slot = name instanceof String ? layout.slotOf((String) name) : -1;
+        if (slot >= 0) {
+            return slots[slot] == ABSENT ? null : slots[slot];
+        }
+        return overflow == null ? null : overflow.get(name);
+    }
+
+    @Override
+    public boolean containsKey(Object name) {
+        if (EntitiesDataFetcher.typenameKey.equals(name)) {
+            return true;
+        }
+        final int slot = name instanceof String ? layout.slotOf((String) name) : -1;
+        if (slot >= 0) {
+            return slots[slot] != ABSENT;
+        }
+        return overflow != null && overflow.containsKey(name);
+    }
+
+    @Override
+    public int size() {
+        int size = 1;
+        for (Object value : slots) {
+            if (value != ABSENT) {
+                size++;
+            }
+        }
+        return overflow == null ? size : size + overflow.size();
+    }
+
+    @NotNull
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @NotNull
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return EntityRepresentation.this.size();
+            }
+        };
+    }
+
+    /**
+     * Iterates over {@code __typename}, then the present key slots, then the remaining fields.
+     */
+    private final class EntryIterator implements Iterator<Entry<String, Object>> {
+        // -1 for __typename, then slot indexes; slots.length switches over to the overflow map.
+        private int position = -1;
+        private @Nullable Iterator<Entry<String, Object>> overflowIterator;
+
+        @Override
+        public boolean hasNext() {
+            if (position < 0) {
+                return true;
+            }
+            while (position < slots.length && slots[position] == ABSENT) {
+                position++;
+            }
+            if (position < slots.length) {
+                return true;
+            }
+            if (overflowIterator == null && overflow != null) {
+                overflowIterator = overflow.entrySet().iterator();
+            }
+            return overflowIterator != null && overflowIterator.hasNext();
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (position < 0) {
+                position++;
+                return new SimpleImmutableEntry<>(EntitiesDataFetcher.typenameKey, typename);
+            }
+            if (position < slots.length) {
+                final int slot = position++;
+                return new SimpleImmutableEntry<>(layout.fieldNames[slot], slots[slot]);
+            }
+            final Entry<String, Object> entry = overflowIterator.next();
+            return new SimpleImmutableEntry<>(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * The slot layout shared by all representations of one entity type.
+     */
+    static final class Layout {
+        private final EntityKeyExtractor keyExtractor;
+        private final String[] fieldNames;
+
+        Layout(@NotNull EntityKeyExtractor keyExtractor) {
+            this.keyExtractor = keyExtractor;
+            this.fieldNames = keyExtractor.getTopLevelFieldNames();
+        }
+
+        private int slotOf(String name) {
+            // Keys rarely select more than a handful of fields, so a scan beats hashing.
+            for (int i = 0; i < fieldNames.length; i++) {
+                if (fieldNames[i].equals(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
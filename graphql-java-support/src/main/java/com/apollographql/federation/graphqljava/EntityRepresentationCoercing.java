@@ -0,0 +1,137 @@
+package com.apollographql.federation.graphqljava;
+
+import graphql.Assert;
+import graphql.language.ArrayValue;
+import graphql.language.BooleanValue;
+import graphql.language.EnumValue;
+import graphql.language.FloatValue;
+import graphql.language.IntValue;
+import graphql.language.NullValue;
+import graphql.language.ObjectField;
+import graphql.language.ObjectValue;
+import graphql.language.StringValue;
+import graphql.language.Value;
+import graphql.schema.Coercing;
+import graphql.schema.CoercingParseLiteralException;
+import graphql.schema.CoercingParseValueException;
+import graphql.schema.CoercingSerializeException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes representations of known entity types into {@link EntityRepresentation}s. Anything else
+ * is decoded like {@link _Any#defaultCoercing} does.
+ * <p>
+ * An instance starts out unbound; {@link SchemaTransformer#build()} binds it to the key extractors
+ * of the schema being built.
+ */
+final class EntityRepresentationCoercing implements Coercing<Object, Object> {
+    private final Map<String, EntityRepresentation.Layout> layouts;
+
+    EntityRepresentationCoercing() {
+        this(Collections.emptyMap());
+    }
+
+    private EntityRepresentationCoercing(Map<String, EntityRepresentation.Layout> layouts) {
+        this.layouts = layouts;
+    }
+
+    @NotNull
+    EntityRepresentationCoercing bind(@NotNull Map<String, EntityKeyExtractor> keyExtractors) {
+        final Map<String, EntityRepresentation.Layout> layouts = new HashMap<>();
+        keyExtractors.forEach((typename, keyExtractor) ->
+                layouts.put(typename, new EntityRepresentation.Layout(keyExtractor)));
+        return new EntityRepresentationCoercing(layouts);
+    }
+
+    @Override
+    public Object serialize(Object dataFetcherResult) throws CoercingSerializeException {
+        return dataFetcherResult;
+    }
+
+    @Override
+    public Object parseValue(Object input) throws CoercingParseValueException {
+        if (!(input instanceof Map)) {
+            return input;
+        }
+        final Map<?, ?> map = (Map<?, ?>) input;
+        final Object typename = map.get(EntitiesDataFetcher.typenameKey);
+        final EntityRepresentation.Layout layout = layouts.get(typename);
+        if (layout == null) {
+            return input;
+        }
+        final EntityRepresentation representation = new EntityRepresentation((String) typename, layout);
+        map.forEach((name, value) -> {
+            if (!EntitiesDataFetcher.typenameKey.equals(name)) {
+                representation.set((String) name, value);
+            }
+        });
+        return representation;
+    }
+
+    @Nullable
+    @Override
+    public Object parseLiteral(Object input) throws CoercingParseLiteralException {
+        if (input instanceof ObjectValue) {
+            final List<ObjectField> fields = ((ObjectValue) input).getObjectFields();
+            final EntityRepresentation.Layout layout = layoutOf(fields);
+            if (layout != null) {
+                final EntityRepresentation representation = new EntityRepresentation(typenameOf(fields), layout);
+                for (ObjectField field : fields) {
+                    if (!EntitiesDataFetcher.typenameKey.equals(field.getName())) {
+                        representation.set(field.getName(), parseLiteral(field.getValue()));
+                    }
+                }
+                return representation;
+            }
+            final Map<String, Object> object = new LinkedHashMap<>();
+            for (ObjectField field : fields) {
+                object.put(field.getName(), parseLiteral(field.getValue()));
+            }
+            return object;
+        } else if (input instanceof ArrayValue) {
+            final List<Value> values = ((ArrayValue) input).getValues();
+            final List<Object> list = new ArrayList<>(values.size());
+            for (Value value : values) {
+                list.add(parseLiteral(value));
+            }
+            return list;
+        } else if (input instanceof NullValue) {
+            return null;
+        } else if (input instanceof FloatValue) {
+            return ((FloatValue) input).getValue();
+        } else if (input instanceof StringValue) {
+            return ((StringValue) input).getValue();
+        } else if (input instanceof IntValue) {
+            return ((IntValue) input).getValue();
+        } else if (input instanceof BooleanValue) {
+            return ((BooleanValue) input).isValue();
+        } else if (input instanceof EnumValue) {
+            return ((EnumValue) input).getName();
+        }
+        return Assert.assertShouldNeverHappen();
+    }
+
+    @Nullable
+    private EntityRepresentation.Layout layoutOf(List<ObjectField> fields) {
+        final String typename = typenameOf(fields);
+        return typename == null ? null : layouts.get(typename);
+    }
+
+    @Nullable
+    private static String typenameOf(List<ObjectField> fields) {
+        for (ObjectField field : fields) {
+            if (EntitiesDataFetcher.typenameKey.equals(field.getName())) {
+                return field.getValue() instanceof StringValue ? ((StringValue) field.getValue()).getValue() : null;
+            }
+        }
+        return null;
+    }
+}
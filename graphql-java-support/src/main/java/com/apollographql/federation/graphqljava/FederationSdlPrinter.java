@@ -1,6 +1,7 @@
 package com.apollographql.federation.graphqljava;
 
 import graphql.Assert;
+import graphql.introspection.Introspection;
 import graphql.language.AstPrinter;
 import graphql.language.AstValueHelper;
 import graphql.language.Description;
@@ -21,6 +22,7 @@ import graphql.schema.GraphQLDirective;
 import graphql.schema.GraphQLEnumType;
 import graphql.schema.GraphQLEnumValueDefinition;
 import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLFieldsContainer;
 import graphql.schema.GraphQLInputObjectField;
 import graphql.schema.GraphQLInputObjectType;
 import graphql.schema.GraphQLInputType;
@@ -43,17 +45,22 @@ import graphql.schema.idl.TypeDefinitionRegistry;
 import graphql.schema.idl.UnExecutableSchemaGenerator;
 import graphql.schema.visibility.GraphqlFieldVisibility;
 
-import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiPredicate;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import static graphql.Directives.DeprecatedDirective;
 import static graphql.introspection.Introspection.DirectiveLocation.ENUM_VALUE;
@@ -61,7 +68,6 @@ import static graphql.introspection.Introspection.DirectiveLocation.FIELD_DEFINI
 import static graphql.schema.visibility.DefaultGraphqlFieldVisibility.DEFAULT_FIELD_VISIBILITY;
 import static graphql.util.EscapeUtil.escapeJsonString;
 import static java.util.Optional.ofNullable;
-import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
 
 /**
@@ -100,8 +106,12 @@ public class FederationSdlPrinter {
 
         private final Predicate<GraphQLNamedType> includeTypeDefinition;
 
+        private final BiPredicate<GraphQLFieldsContainer, GraphQLFieldDefinition> includeFieldDefinition;
+
         private final GraphqlTypeComparatorRegistry comparatorRegistry;
 
+        private final ForkJoinPool typePrintingPool;
+
         private Options(boolean includeIntrospectionTypes,
                         boolean includeScalars,
                         boolean includeSchemaDefinition,
@@ -111,7 +121,9 @@ public class FederationSdlPrinter {
                         Predicate<GraphQLDirective> includeDirective,
                         Predicate<GraphQLDirective> includeDirectiveDefinition,
                         Predicate<GraphQLNamedType> includeTypeDefinition,
-                        GraphqlTypeComparatorRegistry comparatorRegistry) {
+                        BiPredicate<GraphQLFieldsContainer, GraphQLFieldDefinition> includeFieldDefinition,
+                        GraphqlTypeComparatorRegistry comparatorRegistry,
+                        ForkJoinPool typePrintingPool) {
             this.includeIntrospectionTypes = includeIntrospectionTypes;
             this.includeScalars = includeScalars;
             this.includeSchemaDefinition = includeSchemaDefinition;
@@ -119,9 +131,11 @@ public class FederationSdlPrinter {
             this.includeDirective = includeDirective;
             this.includeDirectiveDefinition = includeDirectiveDefinition;
             this.includeTypeDefinition = includeTypeDefinition;
+            this.includeFieldDefinition = includeFieldDefinition;
             this.useAstDefinitions = useAstDefinitions;
             this.descriptionsAsHashComments = descriptionsAsHashComments;
             this.comparatorRegistry = comparatorRegistry;
+            this.typePrintingPool = typePrintingPool;
         }
 
         public boolean isIncludeIntrospectionTypes() {
@@ -152,6 +166,10 @@ public class FederationSdlPrinter {
             return includeTypeDefinition;
         }
 
+        public BiPredicate<GraphQLFieldsContainer, GraphQLFieldDefinition> getIncludeFieldDefinition() {
+            return includeFieldDefinition;
+        }
+
         public boolean isDescriptionsAsHashComments() {
             return descriptionsAsHashComments;
         }
@@ -164,11 +182,16 @@ public class FederationSdlPrinter {
             return useAstDefinitions;
         }
 
+        public ForkJoinPool getTypePrintingPool() {
+            return typePrintingPool;
+        }
+
         public static Options defaultOptions() {
             return new Options(false, true,
                     false, true, false, false,
                     directive -> true, directiveDefinition -> true, typeDefinition -> true,
-                    DefaultGraphqlTypeComparatorRegistry.defaultComparators());
+                    (container, fieldDefinition) -> true,
+                    DefaultGraphqlTypeComparatorRegistry.defaultComparators(), null);
         }
 
         /**
@@ -178,7 +201,7 @@ public class FederationSdlPrinter {
          * @return options
          */
         public Options includeIntrospectionTypes(boolean flag) {
-            return new Options(flag, this.includeScalars, this.includeSchemaDefinition, this.includeDirectiveDefinitions, this.useAstDefinitions, this.descriptionsAsHashComments, this.includeDirective, this.includeDirectiveDefinition, this.includeTypeDefinition, this.comparatorRegistry);
+            return new Options(flag, this.includeScalars, this.includeSchemaDefinition, this.includeDirectiveDefinitions, this.useAstDefinitions, this.descriptionsAsHashComments, this.includeDirective, this.includeDirectiveDefinition, this.includeTypeDefinition, this.includeFieldDefinition, this.comparatorRegistry, this.typePrintingPool);
         }
 
         /**
@@ -188,7 +211,7 @@ public class FederationSdlPrinter {
          * @return options
          */
         public Options includeScalarTypes(boolean flag) {
-            return new Options(this.includeIntrospectionTypes, flag, this.includeSchemaDefinition, this.includeDirectiveDefinitions, this.useAstDefinitions, this.descriptionsAsHashComments, this.includeDirective, this.includeDirectiveDefinition, this.includeTypeDefinition, this.comparatorRegistry);
+            return new Options(this.includeIntrospectionTypes, flag, this.includeSchemaDefinition, this.includeDirectiveDefinitions, this.useAstDefinitions, this.descriptionsAsHashComments, this.includeDirective, this.includeDirectiveDefinition, this.includeTypeDefinition, this.includeFieldDefinition, this.comparatorRegistry, this.typePrintingPool);
         }
 
         /**
@@ -201,7 +224,7 @@ public class FederationSdlPrinter {
          * @return options
          */
         public Options includeSchemaDefinition(boolean flag) {
-            return new Options(this.includeIntrospectionTypes, this.includeScalars, flag, this.includeDirectiveDefinitions, this.useAstDefinitions, this.descriptionsAsHashComments, this.includeDirective, this.includeDirectiveDefinition, this.includeTypeDefinition, this.comparatorRegistry);
+            return new Options(this.includeIntrospectionTypes, this.includeScalars, flag, this.includeDirectiveDefinitions, this.useAstDefinitions, this.descriptionsAsHashComments, this.includeDirective, this.includeDirectiveDefinition, this.includeTypeDefinition, this.includeFieldDefinition, this.comparatorRegistry, this.typePrintingPool);
         }
 
         /**
@@ -216,7 +239,7 @@ public class FederationSdlPrinter {
          * @return new instance of options
          */
         public Options includeDirectiveDefinitions(boolean flag) {
-            return new Options(this.includeIntrospectionTypes, this.includeScalars, this.includeSchemaDefinition, flag, this.useAstDefinitions, this.descriptionsAsHashComments, this.includeDirective, this.includeDirectiveDefinition, this.includeTypeDefinition, this.comparatorRegistry);
+            return new Options(this.includeIntrospectionTypes, this.includeScalars, this.includeSchemaDefinition, flag, this.useAstDefinitions, this.descriptionsAsHashComments, this.includeDirective, this.includeDirectiveDefinition, this.includeTypeDefinition, this.includeFieldDefinition, this.comparatorRegistry, this.typePrintingPool);
         }
 
         /**
@@ -227,11 +250,11 @@ public class FederationSdlPrinter {
          * @return new instance of options
          */
         public Options includeDirectives(boolean flag) {
-            return new Options(this.includeIntrospectionTypes, this.includeScalars, this.includeSchemaDefinition, this.includeDirectiveDefinitions, this.useAstDefinitions, this.descriptionsAsHashComments, directive -> flag, this.includeDirectiveDefinition, this.includeTypeDefinition, this.comparatorRegistry);
+            return new Options(this.includeIntrospectionTypes, this.includeScalars, this.includeSchemaDefinition, this.includeDirectiveDefinitions, this.useAstDefinitions, this.descriptionsAsHashComments, directive -> flag, this.includeDirectiveDefinition, this.includeTypeDefinition, this.includeFieldDefinition, this.comparatorRegistry, this.typePrintingPool);
         }
 
         public Options includeDirectives(Predicate<GraphQLDirective> includeDirective) {
-            return new Options(this.includeIntrospectionTypes, this.includeScalars, this.includeSchemaDefinition, this.includeDirectiveDefinitions, this.useAstDefinitions, this.descriptionsAsHashComments, includeDirective, this.includeDirectiveDefinition, this.includeTypeDefinition, this.comparatorRegistry);
+            return new Options(this.includeIntrospectionTypes, this.includeScalars, this.includeSchemaDefinition, this.includeDirectiveDefinitions, this.useAstDefinitions, this.descriptionsAsHashComments, includeDirective, this.includeDirectiveDefinition, this.includeTypeDefinition, this.includeFieldDefinition, this.comparatorRegistry, this.typePrintingPool);
         }
 
         /**
@@ -245,7 +268,7 @@ public class FederationSdlPrinter {
          * @return new instance of options
          */
         public Options includeDirectiveDefinitions(Predicate<GraphQLDirective> includeDirectiveDefinition) {
-            return new Options(this.includeIntrospectionTypes, this.includeScalars, this.includeSchemaDefinition, this.includeDirectiveDefinitions, this.useAstDefinitions, this.descriptionsAsHashComments, this.includeDirective, includeDirectiveDefinition, this.includeTypeDefinition, this.comparatorRegistry);
+            return new Options(this.includeIntrospectionTypes, this.includeScalars, this.includeSchemaDefinition, this.includeDirectiveDefinitions, this.useAstDefinitions, this.descriptionsAsHashComments, this.includeDirective, includeDirectiveDefinition, this.includeTypeDefinition, this.includeFieldDefinition, this.comparatorRegistry, this.typePrintingPool);
         }
 
         /**
@@ -257,7 +280,20 @@ public class FederationSdlPrinter {
          * @return new instance of options
          */
         public Options includeTypeDefinitions(Predicate<GraphQLNamedType> includeTypeDefinition) {
-            return new Options(this.includeIntrospectionTypes, this.includeScalars, this.includeSchemaDefinition, this.includeDirectiveDefinitions, this.useAstDefinitions, this.descriptionsAsHashComments, this.includeDirective, this.includeDirectiveDefinition, includeTypeDefinition, this.comparatorRegistry);
+            return new Options(this.includeIntrospectionTypes, this.includeScalars, this.includeSchemaDefinition, this.includeDirectiveDefinitions, this.useAstDefinitions, this.descriptionsAsHashComments, this.includeDirective, this.includeDirectiveDefinition, includeTypeDefinition, this.includeFieldDefinition, this.comparatorRegistry, this.typePrintingPool);
+        }
+
+        /**
+         * Filter printing of the field definitions of object and interface types. In Apollo
+         * Federation, the fields the library adds to the query type need to be hidden, and this
+         * predicate allows filtering out such definitions. Prints all definitions by default.
+         *
+         * @param includeFieldDefinition returns true if the field definition of the given type
+         *                               should be printed
+         * @return new instance of options
+         */
+        public Options includeFieldDefinitions(BiPredicate<GraphQLFieldsContainer, GraphQLFieldDefinition> includeFieldDefinition) {
+            return new Options(this.includeIntrospectionTypes, this.includeScalars, this.includeSchemaDefinition, this.includeDirectiveDefinitions, this.useAstDefinitions, this.descriptionsAsHashComments, this.includeDirective, this.includeDirectiveDefinition, this.includeTypeDefinition, includeFieldDefinition, this.comparatorRegistry, this.typePrintingPool);
         }
 
         /**
@@ -268,7 +304,7 @@ public class FederationSdlPrinter {
          * @return new instance of options
          */
         public Options useAstDefinitions(boolean flag) {
-            return new Options(this.includeIntrospectionTypes, this.includeScalars, this.includeSchemaDefinition, this.includeDirectiveDefinitions, flag, this.descriptionsAsHashComments, this.includeDirective, this.includeDirectiveDefinition, this.includeTypeDefinition, this.comparatorRegistry);
+            return new Options(this.includeIntrospectionTypes, this.includeScalars, this.includeSchemaDefinition, this.includeDirectiveDefinitions, flag, this.descriptionsAsHashComments, this.includeDirective, this.includeDirectiveDefinition, this.includeTypeDefinition, this.includeFieldDefinition, this.comparatorRegistry, this.typePrintingPool);
         }
 
         /**
@@ -281,7 +317,7 @@ public class FederationSdlPrinter {
          * @return new instance of options
          */
         public Options descriptionsAsHashComments(boolean flag) {
-            return new Options(this.includeIntrospectionTypes, this.includeScalars, this.includeSchemaDefinition, this.includeDirectiveDefinitions, this.useAstDefinitions, flag, this.includeDirective, this.includeDirectiveDefinition, this.includeTypeDefinition, this.comparatorRegistry);
+            return new Options(this.includeIntrospectionTypes, this.includeScalars, this.includeSchemaDefinition, this.includeDirectiveDefinitions, this.useAstDefinitions, flag, this.includeDirective, this.includeDirectiveDefinition, this.includeTypeDefinition, this.includeFieldDefinition, this.comparatorRegistry, this.typePrintingPool);
         }
 
         /**
@@ -293,14 +329,49 @@ public class FederationSdlPrinter {
          * @return options
          */
         public Options setComparators(GraphqlTypeComparatorRegistry comparatorRegistry) {
-            return new Options(this.includeIntrospectionTypes, this.includeScalars, this.includeSchemaDefinition, this.includeDirectiveDefinitions, this.useAstDefinitions, this.descriptionsAsHashComments, this.includeDirective, this.includeDirectiveDefinition, this.includeTypeDefinition, comparatorRegistry);
+            return new Options(this.includeIntrospectionTypes, this.includeScalars, this.includeSchemaDefinition, this.includeDirectiveDefinitions, this.useAstDefinitions, this.descriptionsAsHashComments, this.includeDirective, this.includeDirectiveDefinition, this.includeTypeDefinition, this.includeFieldDefinition, comparatorRegistry, this.typePrintingPool);
+        }
+
+        /**
+         * Print the text of each type definition in parallel on the common {@link ForkJoinPool}. The
+         * output is identical to printing sequentially, but the predicates and comparators in these
+         * options must then be safe to call from several threads at once. Off by default.
+         *
+         * @param flag whether to print type definitions in parallel
+         * @return new instance of options
+         */
+        public Options printTypesInParallel(boolean flag) {
+            return printTypesInParallel(flag ? ForkJoinPool.commonPool() : null);
+        }
+
+        /**
+         * Print the text of each type definition in parallel on the given pool, as with
+         * {@link #printTypesInParallel(boolean)}.
+         *
+         * @param pool the pool to print type definitions on, or null to print them sequentially
+         * @return new instance of options
+         */
+        public Options printTypesInParallel(ForkJoinPool pool) {
+            return new Options(this.includeIntrospectionTypes, this.includeScalars, this.includeSchemaDefinition, this.includeDirectiveDefinitions, this.useAstDefinitions, this.descriptionsAsHashComments, this.includeDirective, this.includeDirectiveDefinition, this.includeTypeDefinition, this.includeFieldDefinition, this.comparatorRegistry, pool);
         }
     }
 
-    private final Map<Class, TypePrinter<?>> printers = new LinkedHashMap<>();
+    // Parallel type printing looks printers up from several threads.
+    private final Map<Class, TypePrinter<?>> printers = new ConcurrentHashMap<>();
 
     private final Options options;
 
+    private static final List<Class<?>> TYPE_PRINTING_ORDER = Arrays.asList(
+            GraphQLInterfaceType.class,
+            GraphQLUnionType.class,
+            GraphQLObjectType.class,
+            GraphQLEnumType.class,
+            GraphQLScalarType.class,
+            GraphQLInputObjectType.class);
+
+    // Below this, splitting the work costs more than printing the types one after the other.
+    private static final int MIN_TYPES_TO_PRINT_IN_PARALLEL = 64;
+
     public FederationSdlPrinter() {
         this(Options.defaultOptions());
     }
@@ -337,9 +408,44 @@ public class FederationSdlPrinter {
      * @return the logical schema definition
      */
     public String print(GraphQLSchema schema) {
-        StringWriter sw = new StringWriter();
-        PrintWriter out = new PrintWriter(sw);
+        StringBuilder sb = new StringBuilder();
+        print(schema, sb);
+        return sb.toString();
+    }
 
+    /**
+     * This prints an in memory GraphQL schema as a logical schema definition straight to the given
+     * output, without building the definition in memory first
+     *
+     * @param schema the schema in play
+     * @param out    where to write the logical schema definition
+     * @throws UncheckedIOException if writing to the output fails
+     */
+    public void print(GraphQLSchema schema, Appendable out) {
+        SdlWriter writer = new SdlWriter(out);
+        print(writer, schema);
+        writer.finish(true);
+    }
+
+    /**
+     * This prints an in memory GraphQL schema as a UTF-8 encoded logical schema definition straight
+     * to the given stream. The stream is flushed but not closed.
+     *
+     * @param schema the schema in play
+     * @param out    where to write the logical schema definition
+     * @throws UncheckedIOException if writing to the stream fails
+     */
+    public void print(GraphQLSchema schema, OutputStream out) {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        print(schema, writer);
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void print(SdlWriter out, GraphQLSchema schema) {
         GraphqlFieldVisibility visibility = schema.getCodeRegistry().getFieldVisibility();
 
         printer(schema.getClass()).print(out, schema, visibility);
@@ -350,26 +456,113 @@ public class FederationSdlPrinter {
                 .filter(options.getIncludeTypeDefinition())
                 .collect(toList());
 
-        printType(out, typesAsList, GraphQLInterfaceType.class, visibility);
-        printType(out, typesAsList, GraphQLUnionType.class, visibility);
-        printType(out, typesAsList, GraphQLObjectType.class, visibility);
-        printType(out, typesAsList, GraphQLEnumType.class, visibility);
-        printType(out, typesAsList, GraphQLScalarType.class, visibility);
-        printType(out, typesAsList, GraphQLInputObjectType.class, visibility);
+        ForkJoinPool pool = options.getTypePrintingPool();
+        if (pool == null || typesAsList.size() < MIN_TYPES_TO_PRINT_IN_PARALLEL) {
+            printType(out, typesAsList, GraphQLInterfaceType.class, visibility);
+            printType(out, typesAsList, GraphQLUnionType.class, visibility);
+            printType(out, typesAsList, GraphQLObjectType.class, visibility);
+            printType(out, typesAsList, GraphQLEnumType.class, visibility);
+            printType(out, typesAsList, GraphQLScalarType.class, visibility);
+            printType(out, typesAsList, GraphQLInputObjectType.class, visibility);
+            return;
+        }
 
-        String result = sw.toString();
-        if (result.endsWith("\n\n")) {
-            result = result.substring(0, result.length() - 1);
+        List<GraphQLType> orderedTypes = new ArrayList<>(typesAsList.size());
+        for (Class<?> typeClazz : TYPE_PRINTING_ORDER) {
+            for (GraphQLType type : typesAsList) {
+                if (typeClazz.isAssignableFrom(type.getClass())) {
+                    orderedTypes.add(type);
+                }
+            }
+        }
+        // A parallel stream started from within a pool runs its tasks on that pool, and an ordered
+        // collect keeps the definitions in the same order as when printing sequentially.
+        List<String> definitions = pool.submit(() -> orderedTypes.parallelStream()
+                .map(type -> {
+                    StringBuilder sb = new StringBuilder();
+                    SdlWriter writer = new SdlWriter(sb);
+                    printType(writer, type, visibility);
+                    writer.finish(false);
+                    return sb.toString();
+                })
+                .collect(toList()))
+                .join();
+        for (String definition : definitions) {
+            out.append(definition);
         }
-        return result;
     }
 
     private interface TypePrinter<T> {
 
-        void print(PrintWriter out, T type, GraphqlFieldVisibility visibility);
+        void print(SdlWriter out, T type, GraphqlFieldVisibility visibility);
 
     }
 
+    /**
+     * Writes to an {@link Appendable} without going through {@link java.util.Formatter}, and holds
+     * back trailing newlines so that the last one can be dropped without copying the output.
+     */
+    private static final class SdlWriter {
+        private final Appendable out;
+        private int pendingNewlines;
+
+        private SdlWriter(Appendable out) {
+            this.out = out;
+        }
+
+        private SdlWriter append(String s) {
+            int end = s.length();
+            while (end > 0 && s.charAt(end - 1) == '\n') {
+                end--;
+            }
+            if (end == 0) {
+                pendingNewlines += s.length();
+                return this;
+            }
+            try {
+                flushNewlines(pendingNewlines);
+                out.append(s, 0, end);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            pendingNewlines = s.length() - end;
+            return this;
+        }
+
+        private SdlWriter append(char c) {
+            if (c == '\n') {
+                pendingNewlines++;
+                return this;
+            }
+            try {
+                flushNewlines(pendingNewlines);
+                out.append(c);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+
+        /**
+         * @param dropTrailingNewline whether to drop the last newline if the output ends with a
+         *                            blank line
+         */
+        private void finish(boolean dropTrailingNewline) {
+            try {
+                flushNewlines(dropTrailingNewline && pendingNewlines > 1 ? pendingNewlines - 1 : pendingNewlines);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void flushNewlines(int count) throws IOException {
+            for (int i = 0; i < count; i++) {
+                out.append('\n');
+            }
+            pendingNewlines = 0;
+        }
+    }
+
     private boolean isIntrospectionType(GraphQLNamedType type) {
         return !options.isIncludeIntrospectionTypes() && type.getName().startsWith("__");
     }
@@ -394,7 +587,9 @@ public class FederationSdlPrinter {
                     printAsAst(out, type.getDefinition(), type.getExtensionDefinitions());
                 } else {
                     printComments(out, type, "");
-                    out.format("scalar %s%s\n\n", type.getName(), directivesString(GraphQLScalarType.class, type.getDirectives()));
+                    out.append("scalar ").append(type.getName());
+                    printDirectives(out, GraphQLScalarType.class, type.getDirectives());
+                    out.append("\n\n");
                 }
             }
         };
@@ -417,34 +612,44 @@ public class FederationSdlPrinter {
                 printAsAst(out, type.getDefinition(), type.getExtensionDefinitions());
             } else {
                 printComments(out, type, "");
-                out.format("enum %s%s", type.getName(), directivesString(GraphQLEnumType.class, type.getDirectives()));
+                out.append("enum ").append(type.getName());
+                printDirectives(out, GraphQLEnumType.class, type.getDirectives());
                 List<GraphQLEnumValueDefinition> values = type.getValues()
                         .stream()
                         .sorted(comparator)
                         .collect(toList());
                 if (values.size() > 0) {
-                    out.format(" {\n");
+                    out.append(" {\n");
                     for (GraphQLEnumValueDefinition enumValueDefinition : values) {
                         printComments(out, enumValueDefinition, "  ");
                         List<GraphQLDirective> enumValueDirectives = enumValueDefinition.getDirectives();
                         if (enumValueDefinition.isDeprecated()) {
                             enumValueDirectives = addDeprecatedDirectiveIfNeeded(enumValueDirectives);
                         }
-                        out.format("  %s%s\n", enumValueDefinition.getName(), directivesString(GraphQLEnumValueDefinition.class, enumValueDirectives));
+                        out.append("  ").append(enumValueDefinition.getName());
+                        printDirectives(out, GraphQLEnumValueDefinition.class, enumValueDirectives);
+                        out.append('\n');
                     }
-                    out.format("}");
+                    out.append('}');
                 }
-                out.format("\n\n");
+                out.append("\n\n");
             }
         };
     }
 
-    private void printFieldDefinitions(PrintWriter out, Comparator<? super GraphQLSchemaElement> comparator, List<GraphQLFieldDefinition> fieldDefinitions) {
+    private List<GraphQLFieldDefinition> fieldDefinitions(GraphQLFieldsContainer type, GraphqlFieldVisibility visibility) {
+        return visibility.getFieldDefinitions(type)
+                .stream()
+                .filter(fd -> options.getIncludeFieldDefinition().test(type, fd))
+                .collect(toList());
+    }
+
+    private void printFieldDefinitions(SdlWriter out, Comparator<? super GraphQLSchemaElement> comparator, List<GraphQLFieldDefinition> fieldDefinitions) {
         if (fieldDefinitions.size() == 0) {
             return;
         }
 
-        out.format(" {\n");
+        out.append(" {\n");
         fieldDefinitions
                 .stream()
                 .sorted(comparator)
@@ -455,11 +660,13 @@ public class FederationSdlPrinter {
                         fieldDirectives = addDeprecatedDirectiveIfNeeded(fieldDirectives);
                     }
 
-                    out.format("  %s%s: %s%s\n",
-                            fd.getName(), argsString(GraphQLFieldDefinition.class, fd.getArguments()), typeString(fd.getType()),
-                            directivesString(GraphQLFieldDefinition.class, fieldDirectives));
+                    out.append("  ").append(fd.getName());
+                    printArgs(out, GraphQLFieldDefinition.class, fd.getArguments());
+                    out.append(": ").append(typeString(fd.getType()));
+                    printDirectives(out, GraphQLFieldDefinition.class, fieldDirectives);
+                    out.append('\n');
                 });
-        out.format("}");
+        out.append('}');
     }
 
     private TypePrinter<GraphQLInterfaceType> interfacePrinter() {
@@ -472,25 +679,17 @@ public class FederationSdlPrinter {
                 printAsAst(out, type.getDefinition(), type.getExtensionDefinitions());
             } else {
                 printComments(out, type, "");
-                if (type.getInterfaces().isEmpty()) {
-                    out.format("interface %s%s", type.getName(), directivesString(GraphQLInterfaceType.class, type.getDirectives()));
-                } else {
-
+                out.append("interface ").append(type.getName());
+                if (!type.getInterfaces().isEmpty()) {
                     GraphqlTypeComparatorEnvironment environment = GraphqlTypeComparatorEnvironment.newEnvironment()
                             .parentType(GraphQLInterfaceType.class)
                             .elementType(GraphQLOutputType.class)
                             .build();
                     Comparator<? super GraphQLSchemaElement> implementsComparator = options.comparatorRegistry.getComparator(environment);
 
-                    Stream<String> interfaceNames = type.getInterfaces()
-                            .stream()
-                            .sorted(implementsComparator)
-                            .map(GraphQLNamedType::getName);
-                    out.format("interface %s implements %s%s",
-                            type.getName(),
-                            interfaceNames.collect(joining(" & ")),
-                            directivesString(GraphQLInterfaceType.class, type.getDirectives()));
+                    printImplements(out, type.getInterfaces(), implementsComparator);
                 }
+                printDirectives(out, GraphQLInterfaceType.class, type.getDirectives());
 
                 GraphqlTypeComparatorEnvironment environment = GraphqlTypeComparatorEnvironment.newEnvironment()
                         .parentType(GraphQLInterfaceType.class)
@@ -498,12 +697,26 @@ public class FederationSdlPrinter {
                         .build();
                 Comparator<? super GraphQLSchemaElement> comparator = options.comparatorRegistry.getComparator(environment);
 
-                printFieldDefinitions(out, comparator, visibility.getFieldDefinitions(type));
-                out.format("\n\n");
+                printFieldDefinitions(out, comparator, fieldDefinitions(type, visibility));
+                out.append("\n\n");
             }
         };
     }
 
+    private void printImplements(SdlWriter out, List<GraphQLNamedOutputType> interfaces, Comparator<? super GraphQLSchemaElement> comparator) {
+        out.append(" implements ");
+        List<GraphQLNamedOutputType> sorted = interfaces
+                .stream()
+                .sorted(comparator)
+                .collect(toList());
+        for (int i = 0; i < sorted.size(); i++) {
+            if (i > 0) {
+                out.append(" & ");
+            }
+            out.append(sorted.get(i).getName());
+        }
+    }
+
     private TypePrinter<GraphQLUnionType> unionPrinter() {
         return (out, type, visibility) -> {
             if (isIntrospectionType(type)) {
@@ -520,7 +733,9 @@ public class FederationSdlPrinter {
                 printAsAst(out, type.getDefinition(), type.getExtensionDefinitions());
             } else {
                 printComments(out, type, "");
-                out.format("union %s%s = ", type.getName(), directivesString(GraphQLUnionType.class, type.getDirectives()));
+                out.append("union ").append(type.getName());
+                printDirectives(out, GraphQLUnionType.class, type.getDirectives());
+                out.append(" = ");
                 List<GraphQLNamedOutputType> types = type.getTypes()
                         .stream()
                         .sorted(comparator)
@@ -528,11 +743,11 @@ public class FederationSdlPrinter {
                 for (int i = 0; i < types.size(); i++) {
                     GraphQLNamedOutputType objectType = types.get(i);
                     if (i > 0) {
-                        out.format(" | ");
+                        out.append(" | ");
                     }
-                    out.format("%s", objectType.getName());
+                    out.append(objectType.getName());
                 }
-                out.format("\n\n");
+                out.append("\n\n");
             }
         };
     }
@@ -546,25 +761,17 @@ public class FederationSdlPrinter {
                 printAsAst(out, type.getDefinition(), type.getExtensionDefinitions());
             } else {
                 printComments(out, type, "");
-                if (type.getInterfaces().isEmpty()) {
-                    out.format("type %s%s", type.getName(), directivesString(GraphQLObjectType.class, type.getDirectives()));
-                } else {
-
+                out.append("type ").append(type.getName());
+                if (!type.getInterfaces().isEmpty()) {
                     GraphqlTypeComparatorEnvironment environment = GraphqlTypeComparatorEnvironment.newEnvironment()
                             .parentType(GraphQLObjectType.class)
                             .elementType(GraphQLOutputType.class)
                             .build();
                     Comparator<? super GraphQLSchemaElement> implementsComparator = options.comparatorRegistry.getComparator(environment);
 
-                    Stream<String> interfaceNames = type.getInterfaces()
-                            .stream()
-                            .sorted(implementsComparator)
-                            .map(GraphQLNamedType::getName);
-                    out.format("type %s implements %s%s",
-                            type.getName(),
-                            interfaceNames.collect(joining(" & ")),
-                            directivesString(GraphQLObjectType.class, type.getDirectives()));
+                    printImplements(out, type.getInterfaces(), implementsComparator);
                 }
+                printDirectives(out, GraphQLObjectType.class, type.getDirectives());
 
                 GraphqlTypeComparatorEnvironment environment = GraphqlTypeComparatorEnvironment.newEnvironment()
                         .parentType(GraphQLObjectType.class)
@@ -572,8 +779,8 @@ public class FederationSdlPrinter {
                         .build();
                 Comparator<? super GraphQLSchemaElement> comparator = options.comparatorRegistry.getComparator(environment);
 
-                printFieldDefinitions(out, comparator, visibility.getFieldDefinitions(type));
-                out.format("\n\n");
+                printFieldDefinitions(out, comparator, fieldDefinitions(type, visibility));
+                out.append("\n\n");
             }
         };
     }
@@ -593,28 +800,27 @@ public class FederationSdlPrinter {
                         .build();
                 Comparator<? super GraphQLSchemaElement> comparator = options.comparatorRegistry.getComparator(environment);
 
-                out.format("input %s%s", type.getName(), directivesString(GraphQLInputObjectType.class, type.getDirectives()));
+                out.append("input ").append(type.getName());
+                printDirectives(out, GraphQLInputObjectType.class, type.getDirectives());
                 List<GraphQLInputObjectField> inputObjectFields = visibility.getFieldDefinitions(type);
                 if (inputObjectFields.size() > 0) {
-                    out.format(" {\n");
+                    out.append(" {\n");
                     inputObjectFields
                         .stream()
                         .sorted(comparator)
                         .forEach(fd -> {
                             printComments(out, fd, "  ");
-                            out.format("  %s: %s",
-                                fd.getName(), typeString(fd.getType()));
+                            out.append("  ").append(fd.getName()).append(": ").append(typeString(fd.getType()));
                             Object defaultValue = fd.getDefaultValue();
                             if (defaultValue != null) {
-                                String astValue = printAst(defaultValue, fd.getType());
-                                out.format(" = %s", astValue);
+                                out.append(" = ").append(printAst(defaultValue, fd.getType()));
                             }
-                            out.format(directivesString(GraphQLInputObjectField.class, fd.getDirectives()));
-                            out.format("\n");
+                            printDirectives(out, GraphQLInputObjectField.class, fd.getDirectives());
+                            out.append('\n');
                         });
-                    out.format("}");
+                    out.append('}');
                 }
-                out.format("\n\n");
+                out.append("\n\n");
             }
         };
     }
@@ -637,15 +843,15 @@ public class FederationSdlPrinter {
      * @param definition the AST type definition
      * @param extensions a list of type definition extensions
      */
-    private void printAsAst(PrintWriter out, TypeDefinition definition, List<? extends
+    private void printAsAst(SdlWriter out, TypeDefinition definition, List<? extends
             TypeDefinition> extensions) {
-        out.printf("%s\n", AstPrinter.printAst(definition));
+        out.append(AstPrinter.printAst(definition)).append('\n');
         if (extensions != null) {
             for (TypeDefinition extension : extensions) {
-                out.printf("\n%s\n", AstPrinter.printAst(extension));
+                out.append('\n').append(AstPrinter.printAst(extension)).append('\n');
             }
         }
-        out.println();
+        out.append('\n');
     }
 
     private static String printAst(Object value, GraphQLInputType type) {
@@ -675,23 +881,23 @@ public class FederationSdlPrinter {
             }
 
             if (needsSchemaPrinted) {
-                out.format("schema {\n");
+                out.append("schema {\n");
                 if (queryType != null) {
-                    out.format("  query: %s\n", queryType.getName());
+                    out.append("  query: ").append(queryType.getName()).append('\n');
                 }
                 if (mutationType != null) {
-                    out.format("  mutation: %s\n", mutationType.getName());
+                    out.append("  mutation: ").append(mutationType.getName()).append('\n');
                 }
                 if (subscriptionType != null) {
-                    out.format("  subscription: %s\n", subscriptionType.getName());
+                    out.append("  subscription: ").append(subscriptionType.getName()).append('\n');
                 }
-                out.format("}\n\n");
+                out.append("}\n\n");
             }
 
             if (options.isIncludeDirectiveDefinitions()) {
                 List<GraphQLDirective> directives = getSchemaDirectives(schema);
                 if (!directives.isEmpty()) {
-                    out.format("%s", directiveDefinitions(directives));
+                    printDirectiveDefinitions(out, directives);
                 }
             }
         };
@@ -713,11 +919,21 @@ public class FederationSdlPrinter {
     }
 
     String argsString(Class<? extends GraphQLSchemaElement> parent, List<GraphQLArgument> arguments) {
+        StringBuilder sb = new StringBuilder();
+        SdlWriter out = new SdlWriter(sb);
+        printArgs(out, parent, arguments);
+        out.finish(false);
+        return sb.toString();
+    }
+
+    private void printArgs(SdlWriter out, Class<? extends GraphQLSchemaElement> parent, List<GraphQLArgument> arguments) {
+        if (arguments.isEmpty()) {
+            return;
+        }
         boolean hasDescriptions = arguments.stream().anyMatch(this::hasDescription);
         String halfPrefix = hasDescriptions ? "  " : "";
         String prefix = hasDescriptions ? "    " : "";
         int count = 0;
-        StringBuilder sb = new StringBuilder();
 
         GraphqlTypeComparatorEnvironment environment = GraphqlTypeComparatorEnvironment.newEnvironment()
                 .parentType(parent)
@@ -731,51 +947,60 @@ public class FederationSdlPrinter {
                 .collect(toList());
         for (GraphQLArgument argument : arguments) {
             if (count == 0) {
-                sb.append("(");
+                out.append('(');
             } else {
-                sb.append(", ");
+                out.append(", ");
             }
             if (hasDescriptions) {
-                sb.append("\n");
+                out.append('\n');
             }
-            sb.append(printComments(argument, prefix));
+            printComments(out, argument, prefix);
 
-            sb.append(prefix).append(argument.getName()).append(": ").append(typeString(argument.getType()));
+            out.append(prefix).append(argument.getName()).append(": ").append(typeString(argument.getType()));
             Object defaultValue = argument.getDefaultValue();
             if (defaultValue != null) {
-                sb.append(" = ");
-                sb.append(printAst(defaultValue, argument.getType()));
+                out.append(" = ");
+                out.append(printAst(defaultValue, argument.getType()));
             }
 
-            argument.getDirectives().stream()
-                    .map(this::directiveString)
-                    .filter(it -> !it.isEmpty())
-                    .forEach(directiveString -> sb.append(" ").append(directiveString));
+            for (GraphQLDirective directive : argument.getDirectives()) {
+                if (isPrinted(directive)) {
+                    out.append(' ');
+                    printDirective(out, directive);
+                }
+            }
 
             count++;
         }
         if (count > 0) {
             if (hasDescriptions) {
-                sb.append("\n");
+                out.append('\n');
             }
-            sb.append(halfPrefix).append(")");
+            out.append(halfPrefix).append(')');
         }
-        return sb.toString();
     }
 
     String directivesString(Class<? extends GraphQLSchemaElement> parent, List<GraphQLDirective> directives) {
+        StringBuilder sb = new StringBuilder();
+        SdlWriter out = new SdlWriter(sb);
+        printDirectives(out, parent, directives);
+        out.finish(false);
+        return sb.toString();
+    }
+
+    private void printDirectives(SdlWriter out, Class<? extends GraphQLSchemaElement> parent, List<GraphQLDirective> directives) {
+        if (directives.isEmpty()) {
+            return;
+        }
         directives = directives.stream()
                 // @deprecated is special - we always print it if something is deprecated
-                .filter(directive -> options.getIncludeDirective().test(directive) || isDeprecatedDirective(directive))
+                .filter(this::isPrinted)
                 .collect(toList());
 
         if (directives.isEmpty()) {
-            return "";
-        }
-        StringBuilder sb = new StringBuilder();
-        if (!directives.isEmpty()) {
-            sb.append(" ");
+            return;
         }
+        out.append(' ');
 
         GraphqlTypeComparatorEnvironment environment = GraphqlTypeComparatorEnvironment.newEnvironment()
                 .parentType(parent)
@@ -789,24 +1014,20 @@ public class FederationSdlPrinter {
                 .collect(toList());
         for (int i = 0; i < directives.size(); i++) {
             GraphQLDirective directive = directives.get(i);
-            sb.append(directiveString(directive));
+            printDirective(out, directive);
             if (i < directives.size() - 1) {
-                sb.append(" ");
+                out.append(' ');
             }
         }
-        return sb.toString();
     }
 
-    private String directiveString(GraphQLDirective directive) {
-        if (!options.getIncludeDirective().test(directive)) {
-            // @deprecated is special - we always print it if something is deprecated
-            if (!isDeprecatedDirective(directive)) {
-                return "";
-            }
-        }
+    private boolean isPrinted(GraphQLDirective directive) {
+        // @deprecated is special - we always print it if something is deprecated
+        return options.getIncludeDirective().test(directive) || isDeprecatedDirective(directive);
+    }
 
-        StringBuilder sb = new StringBuilder();
-        sb.append("@").append(directive.getName());
+    private void printDirective(SdlWriter out, GraphQLDirective directive) {
+        out.append('@').append(directive.getName());
 
         GraphqlTypeComparatorEnvironment environment = GraphqlTypeComparatorEnvironment.newEnvironment()
                 .parentType(GraphQLDirective.class)
@@ -820,7 +1041,7 @@ public class FederationSdlPrinter {
                 .sorted(comparator)
                 .collect(toList());
         if (!args.isEmpty()) {
-            sb.append("(");
+            out.append('(');
             for (int i = 0; i < args.size(); i++) {
                 GraphQLArgument arg = args.get(i);
                 String argValue = null;
@@ -830,17 +1051,16 @@ public class FederationSdlPrinter {
                     argValue = printAst(arg.getDefaultValue(), arg.getType());
                 }
                 if (!isNullOrEmpty(argValue)) {
-                    sb.append(arg.getName());
-                    sb.append(" : ");
-                    sb.append(argValue);
+                    out.append(arg.getName());
+                    out.append(" : ");
+                    out.append(argValue);
                     if (i < args.size() - 1) {
-                        sb.append(", ");
+                        out.append(", ");
                     }
                 }
             }
-            sb.append(")");
+            out.append(')');
         }
-        return sb.toString();
     }
 
     private boolean isDeprecatedDirective(GraphQLDirective directive) {
@@ -861,24 +1081,17 @@ public class FederationSdlPrinter {
         return directives;
     }
 
-    private String directiveDefinitions(List<GraphQLDirective> directives) {
-        StringBuilder sb = new StringBuilder();
+    private void printDirectiveDefinitions(SdlWriter out, List<GraphQLDirective> directives) {
         for (GraphQLDirective directive : directives) {
-            sb.append(directiveDefinition(directive));
-            sb.append("\n\n");
+            printDirectiveDefinition(out, directive);
+            out.append("\n\n");
         }
-        return sb.toString();
     }
 
-    private String directiveDefinition(GraphQLDirective directive) {
-        StringBuilder sb = new StringBuilder();
-
-        StringWriter sw = new StringWriter();
-        printComments(new PrintWriter(sw), directive, "");
-
-        sb.append(sw.toString());
+    private void printDirectiveDefinition(SdlWriter out, GraphQLDirective directive) {
+        printComments(out, directive, "");
 
-        sb.append("directive @").append(directive.getName());
+        out.append("directive @").append(directive.getName());
 
         GraphqlTypeComparatorEnvironment environment = GraphqlTypeComparatorEnvironment.newEnvironment()
                 .parentType(GraphQLDirective.class)
@@ -892,14 +1105,17 @@ public class FederationSdlPrinter {
                 .sorted(comparator)
                 .collect(toList());
 
-        sb.append(argsString(GraphQLDirective.class, args));
+        printArgs(out, GraphQLDirective.class, args);
 
-        sb.append(" on ");
+        out.append(" on ");
 
-        String locations = directive.validLocations().stream().map(Enum::name).collect(Collectors.joining(" | "));
-        sb.append(locations);
-
-        return sb.toString();
+        List<Introspection.DirectiveLocation> locations = new ArrayList<>(directive.validLocations());
+        for (int i = 0; i < locations.size(); i++) {
+            if (i > 0) {
+                out.append(" | ");
+            }
+            out.append(locations.get(i).name());
+        }
     }
 
 
@@ -911,44 +1127,41 @@ public class FederationSdlPrinter {
             if (superClazz != Object.class) {
                 typePrinter = printer(superClazz);
             } else {
-                typePrinter = (out, type, visibility) -> out.println("Type not implemented : " + type);
+                typePrinter = (out, type, visibility) -> out.append("Type not implemented : " + type).append('\n');
+            }
+            TypePrinter raced = printers.putIfAbsent(clazz, typePrinter);
+            if (raced != null) {
+                typePrinter = raced;
             }
-            printers.put(clazz, typePrinter);
         }
         return (TypePrinter<T>) typePrinter;
     }
 
 
     public String print(GraphQLType type) {
-        StringWriter sw = new StringWriter();
-        PrintWriter out = new PrintWriter(sw);
+        StringBuilder sb = new StringBuilder();
+        SdlWriter out = new SdlWriter(sb);
 
         printType(out, type, DEFAULT_FIELD_VISIBILITY);
 
-        return sw.toString();
+        out.finish(false);
+        return sb.toString();
     }
 
     @SuppressWarnings("unchecked")
-    private void printType(PrintWriter out, List<GraphQLType> typesAsList, Class
+    private void printType(SdlWriter out, List<GraphQLType> typesAsList, Class
             typeClazz, GraphqlFieldVisibility visibility) {
         typesAsList.stream()
                 .filter(type -> typeClazz.isAssignableFrom(type.getClass()))
                 .forEach(type -> printType(out, type, visibility));
     }
 
-    private void printType(PrintWriter out, GraphQLType type, GraphqlFieldVisibility visibility) {
+    private void printType(SdlWriter out, GraphQLType type, GraphqlFieldVisibility visibility) {
         TypePrinter<Object> printer = printer(type.getClass());
         printer.print(out, type, visibility);
     }
 
-    private String printComments(Object graphQLType, String prefix) {
-        StringWriter sw = new StringWriter();
-        PrintWriter pw = new PrintWriter(sw);
-        printComments(pw, graphQLType, prefix);
-        return sw.toString();
-    }
-
-    private void printComments(PrintWriter out, Object graphQLType, String prefix) {
+    private void printComments(SdlWriter out, Object graphQLType, String prefix) {
 
         String descriptionText = getDescription(graphQLType);
         if (isNullOrEmpty(descriptionText)) {
@@ -969,20 +1182,20 @@ public class FederationSdlPrinter {
         }
     }
 
-    private void printMultiLineHashDescription(PrintWriter out, String prefix, List<String> lines) {
-        lines.forEach(l -> out.printf("%s#%s\n", prefix, l));
+    private void printMultiLineHashDescription(SdlWriter out, String prefix, List<String> lines) {
+        lines.forEach(l -> out.append(prefix).append('#').append(l).append('\n'));
     }
 
-    private void printMultiLineDescription(PrintWriter out, String prefix, List<String> lines) {
-        out.printf("%s\"\"\"\n", prefix);
-        lines.forEach(l -> out.printf("%s%s\n", prefix, l));
-        out.printf("%s\"\"\"\n", prefix);
+    private void printMultiLineDescription(SdlWriter out, String prefix, List<String> lines) {
+        out.append(prefix).append("\"\"\"\n");
+        lines.forEach(l -> out.append(prefix).append(l).append('\n'));
+        out.append(prefix).append("\"\"\"\n");
     }
 
-    private void printSingleLineDescription(PrintWriter out, String prefix, String s) {
+    private void printSingleLineDescription(SdlWriter out, String prefix, String s) {
         // See: https://github.com/graphql/graphql-spec/issues/148
         String desc = escapeJsonString(s);
-        out.printf("%s\"%s\"\n", prefix, desc);
+        out.append(prefix).append('"').append(desc).append("\"\n");
     }
 
     private boolean hasDescription(Object descriptionHolder) {
@@ -0,0 +1,174 @@
+package com.apollographql.federation.graphqljava;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * An {@link EntityCache} holding up to a fixed number of entities for a fixed time, evicting the
+ * least recently used entity when full.
+ * <p>
+ * Since every lookup reorders the entries, reads take a lock as well as writes. To keep concurrent
+ * requests from serializing on it, caches holding enough entities are split into up to 16 segments
+ * by key hash, each with its own lock and its own share of the maximum size; least recently used
+ * order is then only kept within each segment. Lookups of keys falling into the same segment, such
+ * as one very hot entity, still contend on its lock.
+ */
+public final class InMemoryEntityCache implements EntityCache {
+    private static final int maximumSegments = 16;
+    // Small caches are not split, so that they evict in exact least recently used order.
+    private static final int minimumSegmentSize = 64;
+
+    private final long timeToLiveNanos;
+    private final LongSupplier nanoTime;
+    private final Segment[] segments;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    InMemoryEntityCache(int maximumSize, @NotNull Duration timeToLive, @NotNull LongSupplier nanoTime) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive");
+        }
+        if (timeToLive.isNegative() || timeToLive.isZero()) {
+            throw new IllegalArgumentException("timeToLive must be positive");
+        }
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.nanoTime = nanoTime;
+        int segmentCount = 1;
+        while (segmentCount < maximumSegments && maximumSize / (segmentCount * 2) >= minimumSegmentSize) {
+            segmentCount *= 2;
+        }
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(maximumSize / segmentCount + (i < maximumSize % segmentCount ? 1 : 0));
+        }
+    }
+
+    /**
+     * @param maximumSize the maximum number of entities to hold
+     * @param timeToLive  how long an entity is served from the cache after being loaded
+     * @return a new, empty cache
+     */
+    @NotNull
+    public static InMemoryEntityCache newCache(int maximumSize, @NotNull Duration timeToLive) {
+        return new InMemoryEntityCache(maximumSize, timeToLive, System::nanoTime);
+    }
+
+    @Nullable
+    @Override
+    public Object get(@NotNull EntityKey key) {
+        final long now = nanoTime.getAsLong();
+        final Segment segment = segmentOf(key);
+        synchronized (segment) {
+            final Entry entry = segment.get(key);
+            if (entry != null) {
+                if (now - entry.expiresAt < 0) {
+                    hits.increment();
+                    return entry.entity;
+                }
+                segment.remove(key);
+                evictions.increment();
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    @Override
+    public void put(@NotNull EntityKey key, @NotNull Object entity) {
+        final Entry entry = new Entry(entity, nanoTime.getAsLong() + timeToLiveNanos);
+        final Segment segment = segmentOf(key);
+        synchronized (segment) {
+            segment.put(key, entry);
+        }
+    }
+
+    /**
+     * Remove all entities from the cache. Counters are left untouched.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * @return the number of entities currently held, including expired ones not yet evicted
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of entities removed because the cache was full or they had expired
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the number of independently locked segments the cache is split into
+     */
+    int segmentCount() {
+        return segments.length;
+    }
+
+    private Segment segmentOf(EntityKey key) {
+        final int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    /**
+     * The entries of one segment, in least recently used order.
+     */
+    private final class Segment extends LinkedHashMap<EntityKey, Entry> {
+        private final int maximumSize;
+
+        private Segment(int maximumSize) {
+            super(16, 0.75f, true);
+            this.maximumSize = maximumSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<EntityKey, Entry> eldest) {
+            if (size() > maximumSize) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class Entry {
+        private final Object entity;
+        private final long expiresAt;
+
+        private Entry(Object entity, long expiresAt) {
+            this.entity = entity;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
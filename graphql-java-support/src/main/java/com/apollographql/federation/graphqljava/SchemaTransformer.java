@@ -1,25 +1,45 @@
 package com.apollographql.federation.graphqljava;
 
 import graphql.GraphQLError;
+import graphql.language.Directive;
+import graphql.language.FieldDefinition;
+import graphql.language.InterfaceTypeDefinition;
+import graphql.language.ObjectTypeDefinition;
+import graphql.language.ObjectTypeExtensionDefinition;
+import graphql.language.StringValue;
+import graphql.language.TypeDefinition;
+import graphql.language.TypeName;
 import graphql.schema.Coercing;
 import graphql.schema.DataFetcher;
 import graphql.schema.DataFetcherFactory;
 import graphql.schema.FieldCoordinates;
 import graphql.schema.GraphQLCodeRegistry;
 import graphql.schema.GraphQLDirectiveContainer;
+import graphql.schema.GraphQLInterfaceType;
 import graphql.schema.GraphQLNamedType;
 import graphql.schema.GraphQLObjectType;
 import graphql.schema.GraphQLSchema;
 import graphql.schema.GraphQLType;
+import graphql.schema.GraphQLTypeReference;
+import graphql.schema.GraphQLUnionType;
 import graphql.schema.TypeResolver;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.TypeDefinitionRegistry;
+import graphql.schema.idl.TypeRuntimeWiring;
 import graphql.schema.idl.errors.SchemaProblem;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 public final class SchemaTransformer {
@@ -27,14 +47,30 @@ public final class SchemaTransformer {
     // Apollo Gateway will fail composition if it sees standard directive definitions.
     private static final Set<String> STANDARD_DIRECTIVES =
             new HashSet<>(Arrays.asList("deprecated", "include", "skip", "specifiedBy"));
+    private static final SchemaGenerator.Options generatorOptions = SchemaGenerator.Options.defaultOptions();
+    // Either the schema to transform, or the type registry and wiring to generate one from.
     private final GraphQLSchema originalSchema;
+    private final TypeDefinitionRegistry typeRegistry;
+    private final RuntimeWiring runtimeWiring;
     private TypeResolver entityTypeResolver = null;
     private DataFetcher entitiesDataFetcher = null;
     private DataFetcherFactory entitiesDataFetcherFactory = null;
+    private final Map<String, EntityBatchLoader> entityBatchLoaders = new LinkedHashMap<>();
+    private boolean useEntityDataLoader = false;
+    private Executor entityBatchLoaderExecutor = null;
+    private EntityCache entityCache = null;
     private Coercing coercingForAny = _Any.defaultCoercing;
 
     SchemaTransformer(GraphQLSchema originalSchema) {
         this.originalSchema = originalSchema;
+        this.typeRegistry = null;
+        this.runtimeWiring = null;
+    }
+
+    SchemaTransformer(TypeDefinitionRegistry typeRegistry, RuntimeWiring runtimeWiring) {
+        this.originalSchema = null;
+        this.typeRegistry = typeRegistry;
+        this.runtimeWiring = runtimeWiring;
     }
 
     @NotNull
@@ -47,6 +83,7 @@ public final class SchemaTransformer {
     public SchemaTransformer fetchEntities(DataFetcher entitiesDataFetcher) {
         this.entitiesDataFetcher = entitiesDataFetcher;
         this.entitiesDataFetcherFactory = null;
+        this.entityBatchLoaders.clear();
         return this;
     }
 
@@ -54,6 +91,73 @@ public final class SchemaTransformer {
     public SchemaTransformer fetchEntitiesFactory(DataFetcherFactory entitiesDataFetcherFactory) {
         this.entitiesDataFetcher = null;
         this.entitiesDataFetcherFactory = entitiesDataFetcherFactory;
+        this.entityBatchLoaders.clear();
+        return this;
+    }
+
+    /**
+     * Resolve the representations of the given entity type in bulk. When at least one batch
+     * loader is registered, the library provides the {@code _entities} data fetcher itself: it
+     * partitions the representations by {@code __typename}, calls each loader once per
+     * {@code _entities} call, and reassembles the results in their original order.
+     *
+     * @param typeName    the name of the entity type
+     * @param batchLoader the loader for representations of that type
+     * @return this transformer
+     */
+    @NotNull
+    public SchemaTransformer fetchEntities(@NotNull String typeName, @NotNull EntityBatchLoader batchLoader) {
+        this.entitiesDataFetcher = null;
+        this.entitiesDataFetcherFactory = null;
+        this.entityBatchLoaders.put(typeName, batchLoader);
+        return this;
+    }
+
+    /**
+     * Route the representations handled by {@link EntityBatchLoader}s through a {@link
+     * org.dataloader.DataLoader}, so that identical representations (same {@code __typename} and
+     * fields) are only loaded once per operation, even across aliased {@code _entities} fields.
+     * <p>
+     * Deduplication across fields requires the operation to be executed with its own {@link
+     * org.dataloader.DataLoaderRegistry} (see {@link graphql.ExecutionInput.Builder#dataLoaderRegistry});
+     * otherwise representations are only deduplicated within each {@code _entities} field.
+     *
+     * @param useEntityDataLoader whether to load entities through a data loader
+     * @return this transformer
+     */
+    @NotNull
+    public SchemaTransformer useEntityDataLoader(boolean useEntityDataLoader) {
+        this.useEntityDataLoader = useEntityDataLoader;
+        return this;
+    }
+
+    /**
+     * Call the {@link EntityBatchLoader}s of the different entity types requested by one
+     * {@code _entities} call concurrently on the given executor, rather than one after the other
+     * on the calling thread. Any executor works, including a virtual-thread-per-task executor on
+     * JDK 21 and later.
+     *
+     * @param executor the executor to call batch loaders on, or null to call them on the calling
+     *                 thread
+     * @return this transformer
+     */
+    @NotNull
+    public SchemaTransformer entityBatchLoaderExecutor(Executor executor) {
+        this.entityBatchLoaderExecutor = executor;
+        return this;
+    }
+
+    /**
+     * Serve entities from the given cache when possible, and only call the entity batch loaders
+     * for the others. Entities are cached by {@link EntityKey}, so representations that do not
+     * match any of their type's {@code @key}s, or that carry fields outside it, are always loaded.
+     *
+     * @param cache the cache, or null to always call the batch loaders
+     * @return this transformer
+     */
+    @NotNull
+    public SchemaTransformer entityCache(EntityCache cache) {
+        this.entityCache = cache;
         return this;
     }
 
@@ -62,8 +166,21 @@ public final class SchemaTransformer {
         return this;
     }
 
+    /**
+     * Build the federated schema. Given a type registry, this is where the executable schema is
+     * generated, so its {@link SchemaProblem}s are thrown from here. Schemas built by the same
+     * transformer from a type registry share one printed SDL, so the registry must not be changed
+     * between builds.
+     *
+     * @return the federated schema
+     * @throws SchemaProblem if the schema is invalid
+     */
     @NotNull
     public final GraphQLSchema build() throws SchemaProblem {
+        return originalSchema != null ? transformSchema(originalSchema) : generateSchema();
+    }
+
+    private GraphQLSchema transformSchema(GraphQLSchema originalSchema) {
         final List<GraphQLError> errors = new ArrayList<>();
 
         // Make new Schema
@@ -74,46 +191,44 @@ public final class SchemaTransformer {
         final GraphQLCodeRegistry.Builder newCodeRegistry =
                 GraphQLCodeRegistry.newCodeRegistry(originalSchema.getCodeRegistry());
 
-        // Print the original schema as sdl and expose it as query { _service { sdl } }
-        final String sdl = sdl(originalSchema);
-        final GraphQLObjectType.Builder newQueryType = GraphQLObjectType.newObject(originalQueryType)
-                .field(_Service.field);
-        newCodeRegistry.dataFetcher(FieldCoordinates.coordinates(
-                originalQueryType.getName(),
-                _Service.fieldName
-                ),
-                (DataFetcher<Object>) environment -> DUMMY);
-        newCodeRegistry.dataFetcher(FieldCoordinates.coordinates(
-                _Service.typeName,
-                _Service.sdlFieldName
-                ),
-                (DataFetcher<String>) environment -> sdl);
-
         // Collecting all entity types: Types with @key directive and all types that implement them
-        final Set<String> entityTypeNames = originalSchema.getAllTypesAsList().stream()
-                .filter(t -> t instanceof GraphQLDirectiveContainer &&
-                        ((GraphQLDirectiveContainer) t).getDirective(FederationDirectives.keyName) != null)
-                .map(GraphQLNamedType::getName)
-                .collect(Collectors.toSet());
-
-        final Set<String> entityConcreteTypeNames = originalSchema.getAllTypesAsList()
-                .stream()
-                .filter(type -> type instanceof GraphQLObjectType)
-                .filter(type -> entityTypeNames.contains(type.getName()) ||
-                        ((GraphQLObjectType) type).getInterfaces()
+        final EntityCatalog.Builder catalog = EntityCatalog.newBuilder();
+        for (GraphQLNamedType type : originalSchema.getAllTypesAsList()) {
+            if (type instanceof GraphQLObjectType) {
+                final GraphQLObjectType objectType = (GraphQLObjectType) type;
+                catalog.type(objectType.getName(), false,
+                        keyFieldSets(objectType),
+                        objectType.getDirective(FederationDirectives.extendsName) != null,
+                        objectType.getInterfaces()
                                 .stream()
-                                .anyMatch(itf -> entityTypeNames.contains(itf.getName())))
-                .map(GraphQLNamedType::getName)
-                .collect(Collectors.toSet());
+                                .map(GraphQLNamedType::getName)
+                                .collect(Collectors.toList()));
+            } else if (type instanceof GraphQLInterfaceType) {
+                final GraphQLInterfaceType interfaceType = (GraphQLInterfaceType) type;
+                catalog.type(interfaceType.getName(), true,
+                        keyFieldSets(interfaceType),
+                        interfaceType.getDirective(FederationDirectives.extendsName) != null,
+                        Collections.emptyList());
+            }
+        }
+        final EntityCatalog entityCatalog = catalog.build();
+
+        // Expose the original schema as sdl through query { _service { sdl } }, printing it on first use
+        final GraphQLObjectType.Builder newQueryType = GraphQLObjectType.newObject(originalQueryType)
+                .field(_Service.field);
+        fetchService(newCodeRegistry, originalQueryType.getName(), new ServiceSdlDataFetcher(originalSchema, entityCatalog));
 
         // If there are entity types install: Query._entities(representations: [_Any!]!): [_Entity]!
-        if (!entityConcreteTypeNames.isEmpty()) {
-            newQueryType.field(_Entity.field(entityConcreteTypeNames));
+        if (!entityCatalog.isEmpty()) {
+            newQueryType.field(_Entity.field(entityCatalog.getConcreteTypeNames()));
 
+            // When transforming a federated schema again, the entity types and _Any may only be
+            // reachable through the _entities field being replaced.
+            entityCatalog.getConcreteTypeNames().forEach(name -> newSchema.additionalType(originalSchema.getType(name)));
             final GraphQLType originalAnyType = originalSchema.getType(_Any.typeName);
-            if (originalAnyType == null) {
-                newSchema.additionalType(_Any.type(coercingForAny));
-            }
+            newSchema.additionalType(originalAnyType != null
+                    ? originalAnyType
+                    : _Any.type(coercingForAny(entityCatalog, errors)));
 
             if (entityTypeResolver != null) {
                 newCodeRegistry.typeResolver(_Entity.typeName, entityTypeResolver);
@@ -124,13 +239,7 @@ public final class SchemaTransformer {
             }
 
             final FieldCoordinates _entities = FieldCoordinates.coordinates(originalQueryType.getName(), _Entity.fieldName);
-            if (entitiesDataFetcher != null) {
-                newCodeRegistry.dataFetcher(_entities, entitiesDataFetcher);
-            } else if (entitiesDataFetcherFactory != null) {
-                newCodeRegistry.dataFetcher(_entities, entitiesDataFetcherFactory);
-            } else if (!newCodeRegistry.hasDataFetcher(_entities)) {
-                errors.add(new FederationError("Missing a data fetcher for _entities"));
-            }
+            fetchEntities(newCodeRegistry, _entities, entityCatalog, newCodeRegistry.hasDataFetcher(_entities), errors);
         }
 
         if (!errors.isEmpty()) {
@@ -143,6 +252,264 @@ public final class SchemaTransformer {
                 .build();
     }
 
+    private GraphQLSchema generateSchema() {
+        final List<GraphQLError> errors = new ArrayList<>();
+
+        // Work on a copy, so that the given registry is left as is and the schema can be built again.
+        final TypeDefinitionRegistry registry = new TypeDefinitionRegistry().merge(typeRegistry);
+
+        final String queryTypeName = registry.schemaDefinition()
+                .flatMap(sdef -> sdef.getOperationTypeDefinitions()
+                        .stream()
+                        .filter(op -> "query".equals(op.getName()))
+                        .findFirst()
+                        .map(def -> def.getTypeName().getName()))
+                .orElse("Query");
+        if (!registry.getType(queryTypeName).isPresent()) {
+            registry.add(ObjectTypeDefinition.newObjectTypeDefinition().name(queryTypeName).build());
+        }
+
+        // Add Federation directives if they don't exist.
+        FederationDirectives.allDefinitions
+                .stream()
+                .filter(def -> !registry.getDirectiveDefinition(def.getName()).isPresent())
+                .forEachOrdered(registry::add);
+
+        // Add scalar type for _FieldSet, since the directives depend on it.
+        if (!registry.getType(_FieldSet.typeName).isPresent()) {
+            registry.add(_FieldSet.definition);
+        }
+
+        // graphql-java has no way to add to a RuntimeWiring, so everything federation needs goes
+        // into a single copy of it, and the schema is only generated once.
+        final RuntimeWiring.Builder wiring = copyRuntimeWiring(runtimeWiring);
+        if (!runtimeWiring.getScalars().containsKey(_FieldSet.typeName)) {
+            wiring.scalar(_FieldSet.type);
+        }
+        final GraphQLCodeRegistry.Builder codeRegistry =
+                GraphQLCodeRegistry.newCodeRegistry(runtimeWiring.getCodeRegistry());
+
+        // Collecting all entity types: Types with @key directive and all types that implement them
+        final EntityCatalog.Builder catalog = EntityCatalog.newBuilder();
+        for (TypeDefinition<?> type : registry.types().values()) {
+            if (type instanceof ObjectTypeDefinition || type instanceof InterfaceTypeDefinition) {
+                final List<TypeDefinition<?>> definitions = withExtensions(registry, type);
+                final List<Directive> directives = definitions.stream()
+                        .flatMap(definition -> definition.getDirectives().stream())
+                        .collect(Collectors.toList());
+                catalog.type(type.getName(), type instanceof InterfaceTypeDefinition,
+                        keyFieldSets(directives),
+                        directives.stream().anyMatch(directive -> FederationDirectives.extendsName.equals(directive.getName())),
+                        definitions.stream()
+                                .filter(definition -> definition instanceof ObjectTypeDefinition)
+                                .flatMap(definition -> ((ObjectTypeDefinition) definition).getImplements().stream())
+                                .map(itf -> ((TypeName) itf).getName())
+                                .collect(Collectors.toList()));
+            }
+        }
+        final EntityCatalog entityCatalog = catalog.build();
+
+        // Expose the schema as sdl through query { _service { sdl } }, printing it on first use
+        final List<FieldDefinition> queryFields = new ArrayList<>();
+        queryFields.add(_Service.fieldDefinition);
+        registry.add(_Service.definition).ifPresent(errors::add);
+        final ServiceSdlDataFetcher serviceSdlDataFetcher = new ServiceSdlDataFetcher(entityCatalog);
+        fetchService(codeRegistry, queryTypeName, serviceSdlDataFetcher);
+
+        // If there are entity types install: Query._entities(representations: [_Any!]!): [_Entity]!
+        if (!entityCatalog.isEmpty()) {
+            queryFields.add(_Entity.fieldDefinition);
+            registry.add(_Entity.definition(entityCatalog.getConcreteTypeNames())).ifPresent(errors::add);
+
+            if (!registry.getType(_Any.typeName).isPresent()) {
+                registry.add(_Any.definition);
+                wiring.scalar(_Any.type(coercingForAny(entityCatalog, errors)));
+            }
+
+            // Schema generation only looks for the type resolvers of unions in the wiring.
+            if (entityTypeResolver != null) {
+                wiring.type(TypeRuntimeWiring.newTypeWiring(_Entity.typeName).typeResolver(entityTypeResolver));
+                codeRegistry.typeResolver(_Entity.typeName, entityTypeResolver);
+            } else if (!runtimeWiring.getTypeResolvers().containsKey(_Entity.typeName)) {
+                if (codeRegistry.hasTypeResolver(_Entity.typeName)) {
+                    wiring.type(TypeRuntimeWiring.newTypeWiring(_Entity.typeName)
+                            .typeResolver(registeredEntityTypeResolver(codeRegistry)));
+                } else {
+                    errors.add(new FederationError("Missing a type resolver for _Entity"));
+                }
+            }
+
+            final FieldCoordinates _entities = FieldCoordinates.coordinates(queryTypeName, _Entity.fieldName);
+            fetchEntities(codeRegistry, _entities, entityCatalog,
+                    codeRegistry.hasDataFetcher(_entities) ||
+                            runtimeWiring.getDataFetcherForType(queryTypeName).containsKey(_Entity.fieldName),
+                    errors);
+        }
+
+        // Leave the query type's own definitions of the fields, if any, to fail or pass validation.
+        final Set<String> queryFieldNames = new HashSet<>();
+        withExtensions(registry, registry.getType(queryTypeName).get())
+                .forEach(definition -> ((ObjectTypeDefinition) definition).getFieldDefinitions()
+                        .forEach(field -> queryFieldNames.add(field.getName())));
+        queryFields.removeIf(field -> queryFieldNames.contains(field.getName()));
+        registry.add(ObjectTypeExtensionDefinition.newObjectTypeExtensionDefinition()
+                .name(queryTypeName)
+                .fieldDefinitions(queryFields)
+                .build());
+
+        if (!errors.isEmpty()) {
+            throw new SchemaProblem(errors);
+        }
+
+        final GraphQLSchema schema = new SchemaGenerator().makeExecutableSchema(
+                generatorOptions,
+                registry,
+                wiring.codeRegistry(codeRegistry.build()).build());
+        // Every build generates the same SDL, so print it once per transformer.
+        serviceSdlDataFetcher.bind(schema, this);
+        return schema;
+    }
+
+    private static TypeResolver registeredEntityTypeResolver(GraphQLCodeRegistry.Builder codeRegistry) {
+        // Code registries only hand out the type resolvers of unions by union, so ask with a
+        // stand-in for _Entity.
+        return codeRegistry.getTypeResolver(GraphQLUnionType.newUnionType()
+                .name(_Entity.typeName)
+                .possibleType(GraphQLTypeReference.typeRef(_Any.typeName))
+                .build());
+    }
+
+    private static void fetchService(GraphQLCodeRegistry.Builder codeRegistry,
+                                     String queryTypeName,
+                                     ServiceSdlDataFetcher serviceSdlDataFetcher) {
+        codeRegistry.dataFetcher(FieldCoordinates.coordinates(
+                queryTypeName,
+                _Service.fieldName
+                ),
+                (DataFetcher<Object>) environment -> DUMMY);
+        codeRegistry.dataFetcher(FieldCoordinates.coordinates(
+                _Service.typeName,
+                _Service.sdlFieldName
+                ),
+                serviceSdlDataFetcher);
+    }
+
+    private Coercing coercingForAny(EntityCatalog entityCatalog, List<GraphQLError> errors) {
+        if (!(coercingForAny instanceof EntityRepresentationCoercing)) {
+            return coercingForAny;
+        }
+        entityCatalog.getKeyErrors().keySet().forEach(typeName -> addKeyError(entityCatalog, typeName, errors));
+        return ((EntityRepresentationCoercing) coercingForAny).bind(entityCatalog.getKeyExtractors());
+    }
+
+    // Keys are only compiled for the features relying on them, which report the keys they cannot use.
+    private static void addKeyError(EntityCatalog entityCatalog, String typeName, List<GraphQLError> errors) {
+        final String message = "Invalid @key on " + typeName + ": " + entityCatalog.getKeyErrors().get(typeName);
+        if (errors.stream().noneMatch(error -> message.equals(error.getMessage()))) {
+            errors.add(new FederationError(message));
+        }
+    }
+
+    private void fetchEntities(GraphQLCodeRegistry.Builder codeRegistry,
+                               FieldCoordinates _entities,
+                               EntityCatalog entityCatalog,
+                               boolean hasDataFetcher,
+                               List<GraphQLError> errors) {
+        if (entitiesDataFetcher != null) {
+            codeRegistry.dataFetcher(_entities, entitiesDataFetcher);
+        } else if (entitiesDataFetcherFactory != null) {
+            codeRegistry.dataFetcher(_entities, entitiesDataFetcherFactory);
+        } else if (!entityBatchLoaders.isEmpty()) {
+            for (String typeName : entityBatchLoaders.keySet()) {
+                if (entityCatalog.getKeyErrors().containsKey(typeName)) {
+                    addKeyError(entityCatalog, typeName, errors);
+                } else if (entityCatalog.getKeyExtractor(typeName) == null) {
+                    errors.add(new FederationError("Entity batch loader registered for unknown entity type " + typeName));
+                }
+            }
+            codeRegistry.dataFetcher(_entities,
+                    new EntitiesDataFetcher(
+                            new LinkedHashMap<>(entityBatchLoaders),
+                            entityCatalog.getKeyExtractors(),
+                            useEntityDataLoader,
+                            entityBatchLoaderExecutor,
+                            entityCache));
+        } else if (!hasDataFetcher) {
+            errors.add(new FederationError("Missing a data fetcher for _entities"));
+        }
+    }
+
+    private static List<String> keyFieldSets(GraphQLDirectiveContainer container) {
+        return container.getDirectives()
+                .stream()
+                .filter(directive -> FederationDirectives.keyName.equals(directive.getName()))
+                .map(directive -> String.valueOf(directive.getArgument("fields").getValue()))
+                .collect(Collectors.toList());
+    }
+
+    // Arguments that are not strings are left for schema generation to report.
+    private static List<String> keyFieldSets(List<Directive> directives) {
+        return directives.stream()
+                .filter(directive -> FederationDirectives.keyName.equals(directive.getName()))
+                .map(directive -> directive.getArgument("fields"))
+                .filter(argument -> argument != null && argument.getValue() instanceof StringValue)
+                .map(argument -> ((StringValue) argument.getValue()).getValue())
+                .collect(Collectors.toList());
+    }
+
+    private static List<? extends TypeDefinition<?>> extensionsOf(TypeDefinitionRegistry registry, TypeDefinition<?> type) {
+        final List<? extends TypeDefinition<?>> extensions = type instanceof InterfaceTypeDefinition
+                ? registry.interfaceTypeExtensions().get(type.getName())
+                : registry.objectTypeExtensions().get(type.getName());
+        return extensions != null ? extensions : Collections.emptyList();
+    }
+
+    private static List<TypeDefinition<?>> withExtensions(TypeDefinitionRegistry registry, TypeDefinition<?> type) {
+        final List<TypeDefinition<?>> definitions = new ArrayList<>();
+        definitions.add(type);
+        definitions.addAll(extensionsOf(registry, type));
+        return definitions;
+    }
+
+    private static RuntimeWiring.Builder copyRuntimeWiring(RuntimeWiring runtimeWiring) {
+        // Annoyingly graphql-java doesn't have a copy constructor for RuntimeWiring.Builder.
+        RuntimeWiring.Builder builder = RuntimeWiring.newRuntimeWiring();
+
+        final Set<String> typeNames = new LinkedHashSet<>(runtimeWiring.getDataFetchers().keySet());
+        typeNames.addAll(runtimeWiring.getTypeResolvers().keySet());
+        typeNames.addAll(runtimeWiring.getEnumValuesProviders().keySet());
+        typeNames.stream()
+                .map(name -> {
+                    TypeRuntimeWiring.Builder typeWiring = TypeRuntimeWiring.newTypeWiring(name);
+                    typeWiring.dataFetchers(runtimeWiring.getDataFetcherForType(name));
+                    if (runtimeWiring.getDefaultDataFetcherForType(name) != null) {
+                        typeWiring.defaultDataFetcher(runtimeWiring.getDefaultDataFetcherForType(name));
+                    }
+                    if (runtimeWiring.getTypeResolvers().get(name) != null) {
+                        typeWiring.typeResolver(runtimeWiring.getTypeResolvers().get(name));
+                    }
+                    if (runtimeWiring.getEnumValuesProviders().get(name) != null) {
+                        typeWiring.enumValues(runtimeWiring.getEnumValuesProviders().get(name));
+                    }
+                    return typeWiring.build();
+                })
+                .forEach(builder::type);
+
+        if (runtimeWiring.getWiringFactory() != null) {
+            builder.wiringFactory(runtimeWiring.getWiringFactory());
+        }
+        runtimeWiring.getScalars().forEach((name, scalar) -> builder.scalar(scalar));
+        if (runtimeWiring.getFieldVisibility() != null) {
+            builder.fieldVisibility(runtimeWiring.getFieldVisibility());
+        }
+        runtimeWiring.getRegisteredDirectiveWiring().forEach(builder::directive);
+        runtimeWiring.getDirectiveWiring().forEach(builder::directiveWiring);
+        builder.comparatorRegistry(runtimeWiring.getComparatorRegistry());
+        runtimeWiring.getSchemaGeneratorPostProcessings().forEach(builder::transformer);
+
+        return builder;
+    }
+
     public static String sdl(GraphQLSchema schema) {
         // Gather directive definitions to hide.
         final Set<String> hiddenDirectiveDefinitions = new HashSet<>();
@@ -156,20 +523,28 @@ public final class SchemaTransformer {
         hiddenTypeDefinitions.add(_FieldSet.typeName);
         hiddenTypeDefinitions.add(_Service.typeName);
 
+        // Gather query fields to hide, since schemas generated from a type registry include them.
+        final String queryTypeName = schema.getQueryType().getName();
+        final Set<String> hiddenQueryFields = new HashSet<>();
+        hiddenQueryFields.add(_Entity.fieldName);
+        hiddenQueryFields.add(_Service.fieldName);
+
         // Note that FederationSdlPrinter is a copy of graphql-java's SchemaPrinter that adds the
-        // ability to filter out directive and type definitions, which is required by federation
+        // ability to filter out directive, type and field definitions, which is required by federation
         // spec.
         //
         // FederationSdlPrinter will need to be updated whenever graphql-java changes versions. It
-        // can be removed when graphql-java adds native support for filtering out directive and
-        // type definitions or federation spec changes to allow the currently forbidden directive
+        // can be removed when graphql-java adds native support for filtering out directive, type
+        // and field definitions or federation spec changes to allow the currently forbidden directive
         // and type definitions.
         final FederationSdlPrinter.Options options = FederationSdlPrinter.Options.defaultOptions()
                 .includeScalarTypes(true)
                 .includeSchemaDefinition(true)
                 .includeDirectives(true)
                 .includeDirectiveDefinitions(def -> !hiddenDirectiveDefinitions.contains(def.getName()))
-                .includeTypeDefinitions(def -> !hiddenTypeDefinitions.contains(def.getName()));
+                .includeTypeDefinitions(def -> !hiddenTypeDefinitions.contains(def.getName()))
+                .includeFieldDefinitions((type, def) -> !(queryTypeName.equals(type.getName()) &&
+                        hiddenQueryFields.contains(def.getName())));
         return new FederationSdlPrinter(options).print(schema);
     }
 }
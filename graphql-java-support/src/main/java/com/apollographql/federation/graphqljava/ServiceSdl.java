@@ -0,0 +1,194 @@
+package com.apollographql.federation.graphqljava;
+
+import graphql.schema.GraphQLSchema;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The SDL a federated schema serves as {@code query { _service { sdl } }}, pre-encoded for
+ * servers that want to answer the gateway's SDL polls without executing the query.
+ * <p>
+ * The JSON-escaped UTF-8 encoding, the full response body and the content hash are computed once
+ * and shared; the buffers handed out are read-only views.
+ */
+public final class ServiceSdl {
+    private static final byte[] responsePrefix =
+            ("{\"data\":{\"" + _Service.fieldName + "\":{\"" + _Service.sdlFieldName + "\":\"")
+                    .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] responseSuffix = "\"}}}".getBytes(StandardCharsets.UTF_8);
+    private static final char[] hexDigits = "0123456789abcdef".toCharArray();
+
+    // The tokens of the selection set, which may be preceded by the query keyword and a name.
+    private static final List<String> sdlQueryTokens =
+            Arrays.asList("{", _Service.fieldName, "{", _Service.sdlFieldName, "}", "}");
+
+    private final String sdl;
+    private final ByteBuffer jsonEscaped;
+    private final ByteBuffer response;
+    private final String hash;
+
+    ServiceSdl(@NotNull String sdl) {
+        this.sdl = sdl;
+        final byte[] escaped = jsonEscape(sdl).getBytes(StandardCharsets.UTF_8);
+        final byte[] response = new byte[responsePrefix.length + escaped.length + responseSuffix.length];
+        System.arraycopy(responsePrefix, 0, response, 0, responsePrefix.length);
+        System.arraycopy(escaped, 0, response, responsePrefix.length, escaped.length);
+        System.arraycopy(responseSuffix, 0, response, responsePrefix.length + escaped.length, responseSuffix.length);
+        this.response = ByteBuffer.wrap(response);
+        this.jsonEscaped = ByteBuffer.wrap(response, responsePrefix.length, escaped.length).slice();
+        this.hash = sha256(sdl);
+    }
+
+    /**
+     * @param schema a schema built by {@link SchemaTransformer#build()}
+     * @return the SDL served by the schema, or null if it does not serve one built by this library
+     */
+    @Nullable
+    public static ServiceSdl from(@NotNull GraphQLSchema schema) {
+        final ServiceSdlDataFetcher dataFetcher = ServiceSdlDataFetcher.from(schema);
+        return dataFetcher != null ? dataFetcher.getServiceSdl() : null;
+    }
+
+    /**
+     * Whether the given query only asks for the SDL, i.e. is {@code { _service { sdl } }}, possibly
+     * as a (named) query operation and with arbitrary whitespace, commas and comments.
+     *
+     * @param query the query document
+     * @return true if {@link #getResponse()} is a complete answer to the query
+     */
+    public static boolean isSdlQuery(@NotNull String query) {
+        final List<String> tokens = new ArrayList<>(sdlQueryTokens.size() + 2);
+        for (int i = 0; i < query.length(); i++) {
+            final char c = query.charAt(i);
+            if (c == '#') {
+                while (i + 1 < query.length() && query.charAt(i + 1) != '\n' && query.charAt(i + 1) != '\r') {
+                    i++;
+                }
+            } else if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == ',' || c == '\uFEFF') {
+                continue;
+            } else if (tokens.size() == sdlQueryTokens.size() + 2) {
+                return false;
+            } else if (c == '{' || c == '}') {
+                tokens.add(String.valueOf(c));
+            } else if (isNameStart(c)) {
+                final int start = i;
+                while (i + 1 < query.length() && (isNameStart(query.charAt(i + 1)) || isDigit(query.charAt(i + 1)))) {
+                    i++;
+                }
+                tokens.add(query.substring(start, i + 1));
+            } else {
+                return false;
+            }
+        }
+
+        final int selectionSet = tokens.size() - sdlQueryTokens.size();
+        if (selectionSet < 0 || selectionSet > 0 && !tokens.get(0).equals("query")
+                || selectionSet == 2 && !isNameStart(tokens.get(1).charAt(0))) {
+            return false;
+        }
+        return tokens.subList(selectionSet, tokens.size()).equals(sdlQueryTokens);
+    }
+
+    private static boolean isNameStart(char c) {
+        return c == '_' || c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    @NotNull
+    public String getSdl() {
+        return sdl;
+    }
+
+    /**
+     * @return the SDL as the UTF-8 encoded contents of a JSON string, without the surrounding
+     * quotes
+     */
+    @NotNull
+    public ByteBuffer getJsonEscapedSdl() {
+        return jsonEscaped.asReadOnlyBuffer();
+    }
+
+    /**
+     * @return the UTF-8 encoded JSON response to {@code query { _service { sdl } }}
+     */
+    @NotNull
+    public ByteBuffer getResponse() {
+        return response.asReadOnlyBuffer();
+    }
+
+    /**
+     * @return the hex-encoded SHA-256 hash of the UTF-8 encoded SDL, e.g. to use as an ETag
+     */
+    @NotNull
+    public String getHash() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return sdl;
+    }
+
+    private static String jsonEscape(String value) {
+        final StringBuilder escaped = new StringBuilder(value.length() + value.length() / 16);
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    escaped.append("\\\"");
+                    break;
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+                case '\r':
+                    escaped.append("\\r");
+                    break;
+                case '\t':
+                    escaped.append("\\t");
+                    break;
+                case '\b':
+                    escaped.append("\\b");
+                    break;
+                case '\f':
+                    escaped.append("\\f");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        escaped.append("\\u00").append(hexDigits[c >> 4]).append(hexDigits[c & 0xF]);
+                    } else {
+                        escaped.append(c);
+                    }
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static String sha256(String value) {
+        final byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        final char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[2 * i] = hexDigits[(digest[i] >> 4) & 0xF];
+            hex[2 * i + 1] = hexDigits[digest[i] & 0xF];
+        }
+        return new String(hex);
+    }
+}
@@ -0,0 +1,104 @@
+package com.apollographql.federation.graphqljava;
+
+import graphql.schema.DataFetcher;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.FieldCoordinates;
+import graphql.schema.GraphQLObjectType;
+import graphql.schema.GraphQLSchema;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Resolves {@code _Service.sdl}, and lets {@link ServiceSdl#from(GraphQLSchema)} and {@link
+ * EntityCatalog#from(GraphQLSchema)} find the pre-encoded SDL and the entities of a built schema.
+ * <p>
+ * The SDL is only printed on first use. Printed SDLs are shared by all schemas transformed from
+ * the same original schema instance, for as long as that instance is reachable. Schemas generated
+ * from a type registry have no original schema: their fetcher is created unbound, and bound to the
+ * federated schema itself once it is generated, sharing the SDL with the other schemas built by
+ * the same {@link SchemaTransformer}.
+ */
+final class ServiceSdlDataFetcher implements DataFetcher<String> {
+    // Keyed by the original schema, or by the transformer a schema was generated by.
+    private static final Map<Object, ServiceSdl> printed = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final EntityCatalog entityCatalog;
+    private volatile GraphQLSchema originalSchema;
+    private volatile Object printedKey;
+    private volatile ServiceSdl serviceSdl;
+
+    ServiceSdlDataFetcher(@NotNull EntityCatalog entityCatalog) {
+        this.entityCatalog = entityCatalog;
+    }
+
+    ServiceSdlDataFetcher(@NotNull GraphQLSchema originalSchema, @NotNull EntityCatalog entityCatalog) {
+        this.originalSchema = originalSchema;
+        this.printedKey = originalSchema;
+        this.entityCatalog = entityCatalog;
+    }
+
+    @Nullable
+    static ServiceSdlDataFetcher from(@NotNull GraphQLSchema schema) {
+        final GraphQLObjectType serviceType = schema.getObjectType(_Service.typeName);
+        if (serviceType == null || serviceType.getFieldDefinition(_Service.sdlFieldName) == null) {
+            return null;
+        }
+        final DataFetcher<?> dataFetcher = schema.getCodeRegistry().getDataFetcher(
+                FieldCoordinates.coordinates(_Service.typeName, _Service.sdlFieldName),
+                serviceType.getFieldDefinition(_Service.sdlFieldName));
+        return dataFetcher instanceof ServiceSdlDataFetcher ? (ServiceSdlDataFetcher) dataFetcher : null;
+    }
+
+    /**
+     * @param schema     the schema to print
+     * @param printedKey the key to share the printed SDL under, among schemas printing the same
+     */
+    void bind(@NotNull GraphQLSchema schema, @NotNull Object printedKey) {
+        this.printedKey = printedKey;
+        this.originalSchema = schema;
+    }
+
+    @NotNull
+    EntityCatalog getEntityCatalog() {
+        return entityCatalog;
+    }
+
+    @NotNull
+    ServiceSdl getServiceSdl() {
+        ServiceSdl serviceSdl = this.serviceSdl;
+        if (serviceSdl == null) {
+            synchronized (this) {
+                serviceSdl = this.serviceSdl;
+                if (serviceSdl == null) {
+                    if (originalSchema == null) {
+                        throw new IllegalStateException("The schema to print is not bound yet");
+                    }
+                    serviceSdl = print(printedKey, originalSchema);
+                    this.serviceSdl = serviceSdl;
+                }
+            }
+        }
+        return serviceSdl;
+    }
+
+    @Override
+    public String get(DataFetchingEnvironment environment) {
+        return getServiceSdl().getSdl();
+    }
+
+    @NotNull
+    private static ServiceSdl print(Object printedKey, GraphQLSchema originalSchema) {
+        final ServiceSdl cached = printed.get(printedKey);
+        if (cached != null) {
+            return cached;
+        }
+        // Print outside of the lock, so that unrelated schemas are printed concurrently.
+        final ServiceSdl serviceSdl = new ServiceSdl(SchemaTransformer.sdl(originalSchema));
+        final ServiceSdl raced = printed.putIfAbsent(printedKey, serviceSdl);
+        return raced != null ? raced : serviceSdl;
+    }
+}
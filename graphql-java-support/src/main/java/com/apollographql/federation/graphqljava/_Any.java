@@ -9,6 +9,7 @@ import graphql.language.IntValue;
 import graphql.language.NullValue;
 import graphql.language.ObjectField;
 import graphql.language.ObjectValue;
+import graphql.language.ScalarTypeDefinition;
 import graphql.language.StringValue;
 import graphql.schema.Coercing;
 import graphql.schema.CoercingParseLiteralException;
@@ -64,9 +65,25 @@ public final class _Any {
         }
     };
 
+    static final ScalarTypeDefinition definition = ScalarTypeDefinition.newScalarTypeDefinition()
+            .name(typeName)
+            .build();
+
     private _Any() {
     }
 
+    /**
+     * A coercing that decodes the representations of entity types into
+     * {@link EntityRepresentation}s, whose {@code @key} fields are kept in fixed slots instead of a
+     * hash map. Install it with {@link SchemaTransformer#coercingForAny(Coercing)}; the schema's
+     * {@code @key}s are picked up when the schema is built.
+     *
+     * @return a new coercing for {@code _Any}
+     */
+    public static Coercing entityRepresentationCoercing() {
+        return new EntityRepresentationCoercing();
+    }
+
     static GraphQLScalarType type(Coercing coercing) {
         return newScalar()
                 .name(typeName)
@@ -1,5 +1,12 @@
 package com.apollographql.federation.graphqljava;
 
+import graphql.language.FieldDefinition;
+import graphql.language.InputValueDefinition;
+import graphql.language.ListType;
+import graphql.language.NonNullType;
+import graphql.language.Type;
+import graphql.language.TypeName;
+import graphql.language.UnionTypeDefinition;
 import graphql.schema.GraphQLFieldDefinition;
 import graphql.schema.GraphQLList;
 import graphql.schema.GraphQLNonNull;
@@ -8,6 +15,7 @@ import graphql.schema.GraphQLUnionType;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import static graphql.schema.GraphQLArgument.newArgument;
 import static graphql.schema.GraphQLFieldDefinition.newFieldDefinition;
@@ -42,4 +50,22 @@ public final class _Entity {
                 )
                 .build();
     }
+
+    static final FieldDefinition fieldDefinition = FieldDefinition.newFieldDefinition()
+            .name(fieldName)
+            .inputValueDefinition(InputValueDefinition.newInputValueDefinition()
+                    .name(argumentName)
+                    .type(new NonNullType(new ListType(new NonNullType(new TypeName(_Any.typeName)))))
+                    .build())
+            .type(new NonNullType(new ListType(new TypeName(typeName))))
+            .build();
+
+    static UnionTypeDefinition definition(@NotNull Set<String> typeNames) {
+        return UnionTypeDefinition.newUnionTypeDefinition()
+                .name(typeName)
+                .memberTypes(typeNames.stream()
+                        .<Type>map(TypeName::new)
+                        .collect(Collectors.toList()))
+                .build();
+    }
 }
@@ -1,6 +1,10 @@
 package com.apollographql.federation.graphqljava;
 
 import graphql.Scalars;
+import graphql.language.FieldDefinition;
+import graphql.language.NonNullType;
+import graphql.language.ObjectTypeDefinition;
+import graphql.language.TypeName;
 import graphql.schema.GraphQLFieldDefinition;
 import graphql.schema.GraphQLNonNull;
 import graphql.schema.GraphQLObjectType;
@@ -26,6 +30,19 @@ final class _Service {
             .type(type)
             .build();
 
+    static final ObjectTypeDefinition definition = ObjectTypeDefinition.newObjectTypeDefinition()
+            .name(typeName)
+            .fieldDefinition(FieldDefinition.newFieldDefinition()
+                    .name(sdlFieldName)
+                    .type(new NonNullType(new TypeName(Scalars.GraphQLString.getName())))
+                    .build())
+            .build();
+
+    static final FieldDefinition fieldDefinition = FieldDefinition.newFieldDefinition()
+            .name(fieldName)
+            .type(new TypeName(typeName))
+            .build();
+
     private _Service() {
     }
 }
@@ -0,0 +1,267 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A sampling policy that backs off the rate of traces while tracing is too expensive, and recovers
+ * gradually afterwards.
+ * <p>
+ * Once per evaluation interval, the policy looks at the traces completed since the last
+ * evaluation. If the time spent recording and encoding them exceeds the maximum share of their
+ * duration, or if their 99th percentile latency exceeds the maximum, the rate is multiplied by the
+ * backoff factor (down to the minimum rate). Otherwise, including when no traces completed at all,
+ * it grows by the recovery step (up to 1). Evaluations are due on both traced and untraced
+ * requests, so that the rate recovers even when few or no requests are traced. Note that latency
+ * is only observed for traced requests.
+ * <p>
+ * The current rate is exposed by {@link #getEffectiveRate()}, e.g. to report it as a metric.
+ */
+public final class AdaptiveSamplingPolicy implements SamplingPolicy {
+    // Latencies are counted in buckets with 4 sub-buckets per power of 2, i.e. a resolution of
+    // about 20%, starting at 8ns.
+    private static final int LINEAR_BUCKETS = 8;
+    private static final int BUCKET_COUNT = LINEAR_BUCKETS + (63 - 3) * 4;
+
+    private final SamplingPolicy delegate;
+    private final double maxOverheadRatio;
+    private final long maxP99LatencyNs;
+    private final double minRate;
+    private final double backoffFactor;
+    private final double recoveryStep;
+    private final long evaluationIntervalNs;
+
+    private volatile double effectiveRate = 1;
+    private volatile double observedOverheadRatio;
+    private volatile long observedP99LatencyNs;
+
+    private final AtomicLong nextEvaluation;
+    private final LongAdder durationNs = new LongAdder();
+    private final LongAdder overheadNs = new LongAdder();
+    private final AtomicLongArray latencyCounts = new AtomicLongArray(BUCKET_COUNT);
+
+    private AdaptiveSamplingPolicy(Builder builder) {
+        this.delegate = builder.delegate;
+        this.maxOverheadRatio = builder.maxOverheadRatio;
+        this.maxP99LatencyNs = builder.maxP99Latency != null ? builder.maxP99Latency.toNanos() : Long.MAX_VALUE;
+        this.minRate = builder.minRate;
+        this.backoffFactor = builder.backoffFactor;
+        this.recoveryStep = builder.recoveryStep;
+        this.evaluationIntervalNs = builder.evaluationInterval.toNanos();
+        this.nextEvaluation = new AtomicLong(System.nanoTime() + evaluationIntervalNs);
+    }
+
+    public static @NotNull Builder newBuilder() {
+        return new Builder();
+    }
+
+    @Override
+    public boolean shouldTrace(@Nullable String operationName) {
+        evaluateIfDue();
+        final double rate = effectiveRate;
+        return (rate >= 1 || ThreadLocalRandom.current().nextDouble() < rate) && delegate.shouldTrace(operationName);
+    }
+
+    @Override
+    public void traceCompleted(long durationNs, long overheadNs) {
+        this.durationNs.add(durationNs);
+        this.overheadNs.add(overheadNs);
+        latencyCounts.incrementAndGet(bucket(durationNs));
+        delegate.traceCompleted(durationNs, overheadNs);
+        evaluateIfDue();
+    }
+
+    @Override
+    public boolean isOverheadMeasured() {
+        return true;
+    }
+
+    /**
+     * @return the fraction of requests currently traced, before the delegate policy is applied
+     */
+    public double getEffectiveRate() {
+        return effectiveRate;
+    }
+
+    /**
+     * @return the share of the traced requests' duration spent on tracing, as of the last evaluation
+     * that saw any traces
+     */
+    public double getObservedOverheadRatio() {
+        return observedOverheadRatio;
+    }
+
+    /**
+     * @return the 99th percentile latency of the traced requests as of the last evaluation that saw
+     * any traces, in ns
+     */
+    public long getObservedP99LatencyNs() {
+        return observedP99LatencyNs;
+    }
+
+    private void evaluateIfDue() {
+        final long now = System.nanoTime();
+        final long next = nextEvaluation.get();
+        if (now - next >= 0 && nextEvaluation.compareAndSet(next, now + evaluationIntervalNs)) {
+            evaluate();
+        }
+    }
+
+    // Only one thread evaluates at a time; traces completing concurrently may be counted in either
+    // window.
+    private void evaluate() {
+        final long duration = durationNs.sumThenReset();
+        final long overhead = overheadNs.sumThenReset();
+        final long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = latencyCounts.getAndSet(i, 0);
+            total += counts[i];
+        }
+        if (total == 0) {
+            // Nothing was traced, so there is nothing to back off from.
+            effectiveRate = Math.min(1, effectiveRate + recoveryStep);
+            return;
+        }
+
+        final double overheadRatio = duration > 0 ? (double) overhead / duration : 0;
+        final long p99 = percentile(counts, total, 0.99);
+        observedOverheadRatio = overheadRatio;
+        observedP99LatencyNs = p99;
+
+        if (overheadRatio > maxOverheadRatio || p99 > maxP99LatencyNs) {
+            effectiveRate = Math.max(minRate, effectiveRate * backoffFactor);
+        } else {
+            effectiveRate = Math.min(1, effectiveRate + recoveryStep);
+        }
+    }
+
+    // Returns the upper bound of the bucket holding the percentile.
+    private static long percentile(long[] counts, long total, double percentile) {
+        final long rank = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return i + 1 < BUCKET_COUNT ? bucketLowerBound(i + 1) : Long.MAX_VALUE;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    private static int bucket(long ns) {
+        if (ns < LINEAR_BUCKETS) {
+            return (int) Math.max(ns, 0);
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(ns);
+        final int subBucket = (int) (ns >>> (exponent - 2)) & 3;
+        return LINEAR_BUCKETS + (exponent - 3) * 4 + subBucket;
+    }
+
+    private static long bucketLowerBound(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        final int exponent = 3 + (bucket - LINEAR_BUCKETS) / 4;
+        final int subBucket = (bucket - LINEAR_BUCKETS) % 4;
+        return (long) (4 + subBucket) << (exponent - 2);
+    }
+
+    public static class Builder {
+        private SamplingPolicy delegate = SamplingPolicy.always();
+        private double maxOverheadRatio = 0.05;
+        private @Nullable Duration maxP99Latency;
+        private double minRate = 0.01;
+        private double backoffFactor = 0.5;
+        private double recoveryStep = 0.05;
+        private Duration evaluationInterval = Duration.ofSeconds(1);
+
+        private Builder() {
+        }
+
+        /**
+         * Apply another policy to the requests this policy chooses to trace. It is told about
+         * completed traces too.
+         */
+        public @NotNull Builder delegate(@NotNull SamplingPolicy delegate) {
+            this.delegate = delegate;
+            return this;
+        }
+
+        /**
+         * @param maxOverheadRatio the maximum share of the traced requests' duration to spend on
+         *                         tracing, e.g. 0.05 for 5% (the default)
+         */
+        public @NotNull Builder maxOverheadRatio(double maxOverheadRatio) {
+            if (!(maxOverheadRatio > 0)) {
+                throw new IllegalArgumentException("Maximum overhead ratio must be positive: " + maxOverheadRatio);
+            }
+            this.maxOverheadRatio = maxOverheadRatio;
+            return this;
+        }
+
+        /**
+         * @param maxP99Latency the 99th percentile latency above which to back off, or null to
+         *                      ignore latency (the default)
+         */
+        public @NotNull Builder maxP99Latency(@Nullable Duration maxP99Latency) {
+            this.maxP99Latency = maxP99Latency;
+            return this;
+        }
+
+        /**
+         * @param minRate the fraction of requests to keep tracing while backing off, 0.01 by default
+         */
+        public @NotNull Builder minRate(double minRate) {
+            if (!(minRate >= 0 && minRate <= 1)) {
+                throw new IllegalArgumentException("Minimum rate must be between 0 and 1: " + minRate);
+            }
+            this.minRate = minRate;
+            return this;
+        }
+
+        /**
+         * @param backoffFactor what to multiply the rate by when backing off, 0.5 by default
+         */
+        public @NotNull Builder backoffFactor(double backoffFactor) {
+            if (!(backoffFactor >= 0 && backoffFactor < 1)) {
+                throw new IllegalArgumentException("Backoff factor must be at least 0 and less than 1: " + backoffFactor);
+            }
+            this.backoffFactor = backoffFactor;
+            return this;
+        }
+
+        /**
+         * @param recoveryStep what to add to the rate after each evaluation without pressure, 0.05
+         *                     by default
+         */
+        public @NotNull Builder recoveryStep(double recoveryStep) {
+            if (!(recoveryStep > 0)) {
+                throw new IllegalArgumentException("Recovery step must be positive: " + recoveryStep);
+            }
+            this.recoveryStep = recoveryStep;
+            return this;
+        }
+
+        /**
+         * @param evaluationInterval how often to adjust the rate, one second by default
+         */
+        public @NotNull Builder evaluationInterval(@NotNull Duration evaluationInterval) {
+            if (evaluationInterval.isNegative()) {
+                throw new IllegalArgumentException("Evaluation interval must not be negative: " + evaluationInterval);
+            }
+            this.evaluationInterval = evaluationInterval;
+            return this;
+        }
+
+        public @NotNull AdaptiveSamplingPolicy build() {
+            return new AdaptiveSamplingPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A concurrent map with bounded size, evicting the least recently used entries.
+ * <p>
+ * Lookups only record the time of access, so they do not contend with each other. Once the map
+ * grows beyond its maximum size, the thread that grew it evicts a tenth of the entries, by oldest
+ * access time, while other threads carry on; the map may briefly hold more entries than its
+ * maximum. Evicting sorts the access times of all entries, but only happens once per tenth of the
+ * maximum size of new entries.
+ * <p>
+ * A value may still be in use by the thread that looked it up when it is evicted; an eviction
+ * listener lets owners of mutable values account for that.
+ */
+final class ApproximateLruCache<K, V> {
+    private final int maximumSize;
+    private final @Nullable BiConsumer<? super K, ? super V> evictionListener;
+    private final ConcurrentMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final LongAdder evictions = new LongAdder();
+
+    ApproximateLruCache(int maximumSize) {
+        this(maximumSize, null);
+    }
+
+    /**
+     * @param evictionListener called with every evicted entry, on the evicting thread
+     */
+    ApproximateLruCache(int maximumSize, @Nullable BiConsumer<? super K, ? super V> evictionListener) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum size must be positive: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.evictionListener = evictionListener;
+    }
+
+    @Nullable
+    V get(@NotNull K key) {
+        final Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        entry.lastAccess = System.nanoTime();
+        return entry.value;
+    }
+
+    @NotNull
+    V computeIfAbsent(@NotNull K key, @NotNull Function<? super K, ? extends V> mappingFunction) {
+        final V existing = get(key);
+        if (existing != null) {
+            return existing;
+        }
+        final Entry<V> entry = entries.computeIfAbsent(key, k -> new Entry<>(mappingFunction.apply(k)));
+        entry.lastAccess = System.nanoTime();
+        if (entries.size() > maximumSize) {
+            evict();
+        }
+        return entry.value;
+    }
+
+    void forEach(@NotNull BiConsumer<? super K, ? super V> action) {
+        entries.forEach((key, entry) -> action.accept(key, entry.value));
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            final int excess = entries.size() - maximumSize;
+            if (excess <= 0) {
+                return;
+            }
+            // Find the access time up to which to evict. Entries added meanwhile are left out, and
+            // entries accessed meanwhile are spared.
+            final long[] accessTimes = new long[entries.size()];
+            int count = 0;
+            for (Entry<V> entry : entries.values()) {
+                if (count == accessTimes.length) {
+                    break;
+                }
+                accessTimes[count++] = entry.lastAccess;
+            }
+            final int toEvict = Math.min(count, excess + Math.max(1, maximumSize / 10) - 1);
+            if (toEvict == 0) {
+                return;
+            }
+            Arrays.sort(accessTimes, 0, count);
+            final long cutoff = accessTimes[toEvict - 1];
+
+            int evicted = 0;
+            for (Map.Entry<K, Entry<V>> entry : entries.entrySet()) {
+                if (evicted == toEvict) {
+                    break;
+                }
+                final Entry<V> value = entry.getValue();
+                if (value.lastAccess <= cutoff && entries.remove(entry.getKey(), value)) {
+                    evicted++;
+                    evictions.increment();
+                    if (evictionListener != null) {
+                        evictionListener.accept(entry.getKey(), value.value);
+                    }
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private volatile long lastAccess;
+
+        private Entry(V value) {
+            this.value = value;
+        }
+    }
+}
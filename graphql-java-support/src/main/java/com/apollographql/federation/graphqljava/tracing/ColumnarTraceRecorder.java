@@ -0,0 +1,362 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import graphql.GraphQLError;
+import graphql.execution.ExecutionPath;
+import graphql.execution.ExecutionStepInfo;
+import graphql.language.SourceLocation;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records the fields of a single trace as rows of primitive columns: start and end times, the
+ * parent row, the list index, the schema's {@link TracedField} and the id of the interned alias,
+ * if any. Rows are claimed with an atomic
+ * counter and the columns grow in fixed-size chunks, so recording a field allocates no per-field
+ * objects, except for fields whose children are traced, which are indexed by path.
+ * <p>
+ * Rows are only linked into a tree by {@link #finish()}, once execution has completed.
+ * <p>
+ * As in {@link TraceTree}, ancestors that were not recorded themselves are filled in from the
+ * recorded field's {@link ExecutionStepInfo} parents.
+ */
+final class ColumnarTraceRecorder implements TraceRecorder {
+    private static final int CHUNK_SHIFT = 8;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // Parent row of the root's children.
+    private static final int ROOT = -1;
+    // Parent row of rows lost to a concurrent recording of the same path.
+    private static final int UNUSED = -2;
+    // String id of absent strings.
+    private static final int NO_STRING = -1;
+
+    private final TracedFields tracedFields;
+    private final AtomicInteger rowCount = new AtomicInteger();
+    private volatile Chunk[] chunks = new Chunk[0];
+
+    private final ConcurrentMap<ExecutionPath, Integer> rowsByPath = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Integer> stringIds = new ConcurrentHashMap<>();
+    private final AtomicInteger stringCount = new AtomicInteger();
+    private final Queue<RowError> errors = new ConcurrentLinkedQueue<>();
+    private volatile boolean finalized;
+
+    ColumnarTraceRecorder(TracedFields tracedFields) {
+        this.tracedFields = tracedFields;
+    }
+
+    @Override
+    public void recordField(
+            ExecutionStepInfo stepInfo,
+            TracedField field,
+            long startTime,
+            long endTime,
+            List<GraphQLError> errors,
+            @Nullable SourceLocation fieldLocation
+    ) {
+        checkNotFinalized();
+        final ExecutionPath path = stepInfo.getPath();
+        final int row;
+        if (field.leaf) {
+            // Nothing below a leaf is traced, so there is no need to find this row again.
+            row = claimRow(parentRow(path.getParent(), stepInfo.getParent(), startTime), -1);
+        } else {
+            row = getOrCreateRow(path, stepInfo.getParent(), startTime);
+        }
+
+        final Chunk chunk = chunk(row);
+        final int offset = row & CHUNK_MASK;
+        chunk.startTime[offset] = startTime;
+        chunk.endTime[offset] = endTime;
+        chunk.field[offset] = field;
+        final String responseName = stepInfo.getResultKey();
+        if (!field.fieldName.equals(responseName)) {
+            chunk.alias[offset] = intern(responseName);
+        }
+
+        for (GraphQLError error : errors) {
+            this.errors.add(new RowError(row, TraceError.of(error, fieldLocation)));
+        }
+    }
+
+    @Override
+    public void recordRootError(GraphQLError error) {
+        checkNotFinalized();
+        errors.add(new RowError(ROOT, TraceError.of(error, null)));
+    }
+
+    @NotNull
+    @Override
+    public TraceNodes finish() {
+        finalized = true;
+        final int rows = rowCount.get();
+        final Chunk[] chunks = this.chunks;
+
+        final String[] strings = new String[stringCount.get()];
+        for (Map.Entry<String, Integer> entry : stringIds.entrySet()) {
+            strings[entry.getValue()] = entry.getKey();
+        }
+
+        // Link the rows into per-parent lists, in the order they were claimed. The root's list is
+        // kept in the last slot.
+        final int rootSlot = rows;
+        final int[] firstChild = new int[rows + 1];
+        final int[] lastChild = new int[rows + 1];
+        final int[] nextSibling = new int[rows];
+        Arrays.fill(firstChild, TraceNodes.NONE);
+        Arrays.fill(nextSibling, TraceNodes.NONE);
+        for (int row = 0; row < rows; row++) {
+            final int parent = chunks[row >>> CHUNK_SHIFT].parent[row & CHUNK_MASK];
+            if (parent == UNUSED) {
+                continue;
+            }
+            final int slot = parent == ROOT ? rootSlot : parent;
+            if (firstChild[slot] < 0) {
+                firstChild[slot] = row;
+            } else {
+                nextSibling[lastChild[slot]] = row;
+            }
+            lastChild[slot] = row;
+        }
+
+        final Map<Integer, List<TraceError>> errorsByRow = new HashMap<>();
+        for (RowError error : errors) {
+            errorsByRow.computeIfAbsent(error.row == ROOT ? rootSlot : error.row, row -> new ArrayList<>(1))
+                    .add(error.error);
+        }
+
+        return new Nodes(chunks, strings, firstChild, nextSibling, errorsByRow);
+    }
+
+    private void checkNotFinalized() {
+        if (finalized) {
+            throw new IllegalStateException("Cannot record into a trace after protobuf conversion.");
+        }
+    }
+
+    /**
+     * Get the row for the given path (creating it and its ancestors if needed).
+     *
+     * @param parentInfo the step info of the parent of the field at {@code path}, to fill in
+     *                   ancestors that were not recorded
+     * @param startTime  the start time of the recorded field, given to those ancestors
+     */
+    private int getOrCreateRow(ExecutionPath path, @Nullable ExecutionStepInfo parentInfo, long startTime) {
+        final Integer existing = rowsByPath.get(path);
+        if (existing != null) {
+            return existing;
+        }
+
+        final int row = claimRow(parentRow(path.getParent(), parentInfo, startTime),
+                path.isListSegment() ? path.getSegmentIndex() : -1);
+        return publishRow(path, row);
+    }
+
+    private int parentRow(ExecutionPath parentPath, @Nullable ExecutionStepInfo parentInfo, long startTime) {
+        if (parentPath.isRootPath()) {
+            return ROOT;
+        }
+        return parentInfo == null
+                ? getOrCreateRow(parentPath, null, startTime)
+                : getOrCreateAncestorRow(parentPath, parentInfo, startTime);
+    }
+
+    /**
+     * Get the row of an ancestor of a recorded field, filling it in from its step info if it was
+     * not recorded itself.
+     *
+     * @param stepInfo the step info of the object at {@code path}: the object field's, or for list
+     *                 items that of the list field, with the item's path
+     */
+    private int getOrCreateAncestorRow(ExecutionPath path, ExecutionStepInfo stepInfo, long startTime) {
+        final Integer existing = rowsByPath.get(path);
+        if (existing != null) {
+            return existing;
+        }
+        if (path.isListSegment()) {
+            // List items have no field of their own; the item's step info is that of the list field.
+            return getOrCreateRow(path, stepInfo, startTime);
+        }
+
+        final int row = claimRow(parentRow(path.getParent(), stepInfo.getParent(), startTime), -1);
+        final Chunk chunk = chunk(row);
+        final int offset = row & CHUNK_MASK;
+        final TracedField field = tracedFields.get(stepInfo);
+        chunk.startTime[offset] = startTime;
+        chunk.endTime[offset] = startTime;
+        chunk.field[offset] = field;
+        if (!field.fieldName.equals(path.getSegmentName())) {
+            chunk.alias[offset] = intern(path.getSegmentName());
+        }
+        return publishRow(path, row);
+    }
+
+    private int publishRow(ExecutionPath path, int row) {
+        final Integer raced = rowsByPath.putIfAbsent(path, row);
+        if (raced != null) {
+            chunk(row).parent[row & CHUNK_MASK] = UNUSED;
+            return raced;
+        }
+        return row;
+    }
+
+    private int claimRow(int parent, int index) {
+        final int row = rowCount.getAndIncrement();
+        final Chunk chunk = chunk(row);
+        final int offset = row & CHUNK_MASK;
+        chunk.parent[offset] = parent;
+        chunk.index[offset] = index;
+        return row;
+    }
+
+    @NotNull
+    private Chunk chunk(int row) {
+        final int chunkIndex = row >>> CHUNK_SHIFT;
+        final Chunk[] chunks = this.chunks;
+        if (chunkIndex < chunks.length) {
+            return chunks[chunkIndex];
+        }
+        return grow(chunkIndex);
+    }
+
+    // Copy-on-write, so that readers only need the volatile read of the chunk array. This runs
+    // once per CHUNK_SIZE rows.
+    @NotNull
+    private synchronized Chunk grow(int chunkIndex) {
+        Chunk[] chunks = this.chunks;
+        if (chunkIndex >= chunks.length) {
+            final int oldLength = chunks.length;
+            chunks = Arrays.copyOf(chunks, Math.max(chunkIndex + 1, oldLength * 2));
+            for (int i = oldLength; i < chunks.length; i++) {
+                chunks[i] = new Chunk();
+            }
+            this.chunks = chunks;
+        }
+        return chunks[chunkIndex];
+    }
+
+    private int intern(String value) {
+        final Integer existing = stringIds.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        // Ids lost to a race are never handed out, which leaves a gap in the string table.
+        final int id = stringCount.getAndIncrement();
+        final Integer raced = stringIds.putIfAbsent(value, id);
+        return raced != null ? raced : id;
+    }
+
+    private static final class Chunk {
+        private final long[] startTime = new long[CHUNK_SIZE];
+        private final long[] endTime = new long[CHUNK_SIZE];
+        private final int[] parent = new int[CHUNK_SIZE];
+        private final int[] index = new int[CHUNK_SIZE];
+        private final TracedField[] field = new TracedField[CHUNK_SIZE];
+        private final int[] alias = filled(NO_STRING);
+
+        private static int[] filled(int value) {
+            final int[] column = new int[CHUNK_SIZE];
+            Arrays.fill(column, value);
+            return column;
+        }
+    }
+
+    private static final class RowError {
+        private final int row;
+        private final TraceError error;
+
+        private RowError(int row, TraceError error) {
+            this.row = row;
+            this.error = error;
+        }
+    }
+
+    private static final class Nodes implements TraceNodes {
+        private final Chunk[] chunks;
+        private final String[] strings;
+        private final int[] firstChild;
+        private final int[] nextSibling;
+        private final Map<Integer, List<TraceError>> errorsByRow;
+
+        private Nodes(Chunk[] chunks, String[] strings, int[] firstChild, int[] nextSibling,
+                      Map<Integer, List<TraceError>> errorsByRow) {
+            this.chunks = chunks;
+            this.strings = strings;
+            this.firstChild = firstChild;
+            this.nextSibling = nextSibling;
+            this.errorsByRow = errorsByRow;
+        }
+
+        // The root's children are linked from the slot after the last row.
+        @Override
+        public int root() {
+            return firstChild.length - 1;
+        }
+
+        @Override
+        public int capacity() {
+            return firstChild.length;
+        }
+
+        @Override
+        public int firstChild(int node) {
+            return firstChild[node];
+        }
+
+        @Override
+        public int nextSibling(int node) {
+            return nextSibling[node];
+        }
+
+        @Override
+        public int index(int node) {
+            return node == root() ? -1 : chunks[node >>> CHUNK_SHIFT].index[node & CHUNK_MASK];
+        }
+
+        @Nullable
+        @Override
+        public TracedField field(int node) {
+            return node == root() ? null : chunks[node >>> CHUNK_SHIFT].field[node & CHUNK_MASK];
+        }
+
+        @Nullable
+        @Override
+        public String alias(int node) {
+            return node == root() ? null : string(chunks[node >>> CHUNK_SHIFT].alias[node & CHUNK_MASK]);
+        }
+
+        @Override
+        public long startTime(int node) {
+            return chunks[node >>> CHUNK_SHIFT].startTime[node & CHUNK_MASK];
+        }
+
+        @Override
+        public long endTime(int node) {
+            return chunks[node >>> CHUNK_SHIFT].endTime[node & CHUNK_MASK];
+        }
+
+        @NotNull
+        @Override
+        public List<TraceError> errors(int node) {
+            final List<TraceError> errors = errorsByRow.get(node);
+            return errors != null ? errors : Collections.emptyList();
+        }
+
+        @Nullable
+        private String string(int id) {
+            return id == NO_STRING ? null : strings[id];
+        }
+    }
+}
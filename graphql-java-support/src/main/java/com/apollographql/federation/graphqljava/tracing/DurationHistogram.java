@@ -0,0 +1,85 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of durations, in the bucket scheme of the {@code latency_count} fields of
+ * {@code reports.proto}: bucket {@code i} counts durations of up to {@code 1.1^i} microseconds, and
+ * longer durations than the last bucket's are counted in the last bucket.
+ */
+final class DurationHistogram {
+    static final int BUCKET_COUNT = 384;
+    private static final double EXPONENT_LOG = Math.log(1.1);
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    static int bucket(long durationNs) {
+        final double bucket = Math.ceil(Math.log(durationNs / 1000.0) / EXPONENT_LOG);
+        // Also catches NaN and -Infinity, for durations of 0 or less.
+        if (!(bucket > 0)) {
+            return 0;
+        }
+        return bucket >= BUCKET_COUNT ? BUCKET_COUNT - 1 : (int) bucket;
+    }
+
+    void record(long durationNs) {
+        counts.incrementAndGet(bucket(durationNs));
+    }
+
+    /**
+     * Reset the histogram, returning the counts recorded since the last reset in the encoding of
+     * {@code latency_count}: zeros at the end are dropped, and runs of more than one zero are
+     * replaced by their negated length.
+     */
+    @NotNull
+    List<Long> snapshotAndReset() {
+        final long[] snapshot = new long[BUCKET_COUNT];
+        drainTo(snapshot);
+        return encode(snapshot);
+    }
+
+    /**
+     * Reset the histogram, adding the counts recorded since the last reset to {@code sums}, e.g. to
+     * merge several histograms.
+     */
+    void drainTo(long[] sums) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            sums[i] += counts.getAndSet(i, 0);
+        }
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    /**
+     * @param counts the count of each of the {@link #BUCKET_COUNT} buckets
+     * @return the counts in the encoding of {@code latency_count}
+     */
+    @NotNull
+    static List<Long> encode(long[] counts) {
+        final List<Long> encoded = new ArrayList<>();
+        int zeros = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            final long count = counts[i];
+            if (count == 0) {
+                zeros++;
+                continue;
+            }
+            if (zeros == 1) {
+                encoded.add(0L);
+            } else if (zeros > 1) {
+                encoded.add((long) -zeros);
+            }
+            zeros = 0;
+            encoded.add(count);
+        }
+        return encoded;
+    }
+}
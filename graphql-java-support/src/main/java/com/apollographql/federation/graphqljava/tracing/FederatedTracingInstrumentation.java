@@ -6,18 +6,22 @@ import graphql.ExecutionResultImpl;
 import graphql.GraphQLError;
 import graphql.GraphqlErrorBuilder;
 import graphql.execution.DataFetcherResult;
-import graphql.execution.ExecutionPath;
+import graphql.execution.ExecutionContext;
 import graphql.execution.ExecutionStepInfo;
 import graphql.execution.instrumentation.InstrumentationContext;
 import graphql.execution.instrumentation.InstrumentationState;
 import graphql.execution.instrumentation.SimpleInstrumentation;
+import graphql.execution.instrumentation.SimpleInstrumentationContext;
 import graphql.execution.instrumentation.parameters.InstrumentationCreateStateParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
 import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
 import graphql.execution.instrumentation.parameters.InstrumentationFieldFetchParameters;
 import graphql.execution.instrumentation.parameters.InstrumentationValidationParameters;
 import graphql.language.Document;
 import graphql.language.SourceLocation;
 import graphql.parser.InvalidSyntaxException;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.GraphQLSchema;
 import graphql.validation.ValidationError;
 import mdg.engine.proto.Reports;
 import org.jetbrains.annotations.NotNull;
@@ -25,28 +29,27 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Base64;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.function.Consumer;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 import static graphql.execution.instrumentation.SimpleInstrumentationContext.whenCompleted;
-import static graphql.schema.GraphQLTypeUtil.simplePrint;
 
 public class FederatedTracingInstrumentation extends SimpleInstrumentation {
     private static final String EXTENSION_KEY = "ftv1";
     private static final String HEADER_NAME = "apollo-federation-include-trace";
     private static final String HEADER_VALUE = "ftv1";
 
+    private static final InstrumentationContext<Object> noOpFieldFetchContext = new SimpleInstrumentationContext<>();
+
     private final Options options;
+    // The traced fields of the last traced schema, which is usually the only one, so that most
+    // requests do not look them up in the shared, synchronized cache
+    private volatile @Nullable SchemaTracedFields lastTracedFields;
 
     private static final Logger logger = LoggerFactory.getLogger(FederatedTracingInstrumentation.class);
 
@@ -64,15 +67,39 @@ public class FederatedTracingInstrumentation extends SimpleInstrumentation {
         // if the special HTTP header has the special value. If the header isn't provided or has
         // a different value, return null for our state, which we'll interpret in the rest of this
         // file as meaning "don't instrument".  (If we haven't been given access to HTTP headers,
-        // always instrument.)
+        // always instrument.) With an exporter, requests are traced for the exporter regardless,
+        // and the header only decides whether the trace is also included in the response.
         Object context = parameters.getExecutionInput().getContext();
+        boolean includeInResponse = true;
         if (context instanceof HTTPRequestHeaders) {
             @Nullable String headerValue = ((HTTPRequestHeaders) context).getHTTPRequestHeader(HEADER_NAME);
-            if (headerValue == null || !headerValue.equals(HEADER_VALUE)) {
-                return null;
-            }
+            includeInResponse = headerValue != null && headerValue.equals(HEADER_VALUE);
+        }
+        if (!includeInResponse && options.getExporter() == null) {
+            return null;
+        }
+        if (!options.getSamplingPolicy().shouldTrace(parameters.getExecutionInput().getOperationName())) {
+            return null;
+        }
+        final TracedFields tracedFields = tracedFields(parameters.getSchema());
+        return new FederatedTracingState(
+                options.isColumnarFieldRecordingEnabled()
+                        ? new ColumnarTraceRecorder(tracedFields)
+                        : new TraceTree(tracedFields),
+                tracedFields,
+                includeInResponse,
+                parameters.getExecutionInput().getQuery(),
+                parameters.getExecutionInput().getOperationName());
+    }
+
+    private TracedFields tracedFields(GraphQLSchema schema) {
+        final SchemaTracedFields last = lastTracedFields;
+        if (last != null && last.schema == schema) {
+            return last.tracedFields;
         }
-        return new FederatedTracingState();
+        final TracedFields tracedFields = TracedFields.of(schema);
+        lastTracedFields = new SchemaTracedFields(schema, tracedFields);
+        return tracedFields;
     }
 
     @Override
@@ -82,10 +109,34 @@ public class FederatedTracingInstrumentation extends SimpleInstrumentation {
             return super.instrumentExecutionResult(executionResult, parameters);
         }
 
-        Reports.Trace trace = state.toProto();
+        final long finishStartNanos = System.nanoTime();
+        state.finish();
 
         if (options.isDebuggingEnabled()) {
-            logger.debug(trace.toString());
+            logger.debug(state.toProto().toString());
+        }
+        final @Nullable TraceExporter exporter = options.getExporter();
+        final byte[] exportedTrace = exporter != null ? state.toByteArray() : null;
+        final String encodedTrace;
+        if (!state.isIncludedInResponse()) {
+            encodedTrace = null;
+        } else if (exportedTrace != null) {
+            encodedTrace = TraceEncoder.encodeBase64(exportedTrace);
+        } else {
+            encodedTrace = state.toBase64();
+        }
+        if (exporter != null) {
+            state.export(exporter, exportedTrace);
+        }
+
+        // Let the sampling policy know what the trace cost, including encoding it.
+        final long finishNanos = System.nanoTime() - finishStartNanos;
+        options.getSamplingPolicy().traceCompleted(
+                state.getDurationNs() + finishNanos,
+                options.overheadMeasured ? state.getOverheadNs() + finishNanos : 0);
+
+        if (encodedTrace == null) {
+            return super.instrumentExecutionResult(executionResult, parameters);
         }
 
         // Elaborately copy the result into a builder.
@@ -100,7 +151,7 @@ public class FederatedTracingInstrumentation extends SimpleInstrumentation {
                 .data(executionResult.getData())
                 .errors(executionResult.getErrors())
                 .extensions(executionResult.getExtensions())
-                .addExtension(EXTENSION_KEY, Base64.getEncoder().encodeToString(trace.toByteArray()))
+                .addExtension(EXTENSION_KEY, encodedTrace)
                 .build());
     }
 
@@ -108,26 +159,13 @@ public class FederatedTracingInstrumentation extends SimpleInstrumentation {
     public InstrumentationContext<Object> beginFieldFetch(InstrumentationFieldFetchParameters parameters) {
         FederatedTracingState state = parameters.getInstrumentationState();
         if (state == null) {
-            return super.beginFieldFetch(parameters);
+            return noOpFieldFetchContext;
         }
-
-        SourceLocation fieldLocation = parameters.getEnvironment().getField().getSourceLocation();
-
-        long startNanos = System.nanoTime();
-        return whenCompleted((result, throwable) -> {
-            long endNanos = System.nanoTime();
-
-            ExecutionStepInfo executionStepInfo = parameters.getEnvironment().getExecutionStepInfo();
-            state.addFieldFetchData(
-                    executionStepInfo,
-                    // relative to the trace's start_time, in ns
-                    startNanos - state.getStartRequestNanos(),
-                    // relative to the trace's start_time, in ns
-                    endNanos - state.getStartRequestNanos(),
-                    convertErrors(throwable, result),
-                    fieldLocation
-            );
-        });
+        if (options.isTrivialFieldsSkipped() && parameters.isTrivialDataFetcher()
+                && !parameters.getExecutionStepInfo().getPath().getParent().isRootPath()) {
+            return noOpFieldFetchContext;
+        }
+        return new FieldFetchContext(state, parameters, System.nanoTime());
     }
 
     @Override
@@ -138,12 +176,23 @@ public class FederatedTracingInstrumentation extends SimpleInstrumentation {
         }
 
         return whenCompleted((document, throwable) -> {
+            state.setParsed(document);
             for (GraphQLError error : convertErrors(throwable, null)) {
                 state.addRootError(error);
             }
         });
     }
 
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(InstrumentationExecuteOperationParameters parameters) {
+        FederatedTracingState state = parameters.getInstrumentationState();
+        if (state != null) {
+            ExecutionContext executionContext = parameters.getExecutionContext();
+            state.setOperation(executionContext.getDocument(), executionContext.getOperationDefinition().getName());
+        }
+        return super.beginExecuteOperation(parameters);
+    }
+
     @Override
     public InstrumentationContext<List<ValidationError>> beginValidation(InstrumentationValidationParameters parameters) {
         FederatedTracingState state = parameters.getInstrumentationState();
@@ -152,6 +201,7 @@ public class FederatedTracingInstrumentation extends SimpleInstrumentation {
         }
 
         return whenCompleted((validationErrors, throwable) -> {
+            state.setValid(throwable == null && validationErrors.isEmpty());
             for (GraphQLError error : convertErrors(throwable, null)) {
                 state.addRootError(error);
             }
@@ -162,6 +212,60 @@ public class FederatedTracingInstrumentation extends SimpleInstrumentation {
         });
     }
 
+    /**
+     * Records a field once it is fetched. This takes the place of a {@code whenCompleted} callback,
+     * to only allocate one object per field.
+     */
+    private static final class SchemaTracedFields {
+        private final GraphQLSchema schema;
+        private final TracedFields tracedFields;
+
+        private SchemaTracedFields(GraphQLSchema schema, TracedFields tracedFields) {
+            this.schema = schema;
+            this.tracedFields = tracedFields;
+        }
+    }
+
+    private final class FieldFetchContext implements InstrumentationContext<Object> {
+        private final FederatedTracingState state;
+        private final InstrumentationFieldFetchParameters parameters;
+        private final long startNanos;
+
+        private FieldFetchContext(FederatedTracingState state, InstrumentationFieldFetchParameters parameters, long startNanos) {
+            this.state = state;
+            this.parameters = parameters;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void onDispatched(CompletableFuture<Object> result) {
+        }
+
+        @Override
+        public void onCompleted(Object result, Throwable throwable) {
+            long endNanos = System.nanoTime();
+            boolean hasErrors = throwable != null
+                    || (result instanceof DataFetcherResult<?> && ((DataFetcherResult<?>) result).hasErrors());
+            if (!hasErrors && endNanos - startNanos < options.minFieldDurationNs) {
+                return;
+            }
+
+            DataFetchingEnvironment environment = parameters.getEnvironment();
+            state.addFieldFetchData(
+                    environment.getExecutionStepInfo(),
+                    // relative to the trace's start_time, in ns
+                    startNanos - state.getStartRequestNanos(),
+                    // relative to the trace's start_time, in ns
+                    endNanos - state.getStartRequestNanos(),
+                    hasErrors ? convertErrors(throwable, result) : Collections.emptyList(),
+                    environment.getField().getSourceLocation()
+            );
+            if (options.overheadMeasured) {
+                state.addOverhead(System.nanoTime() - endNanos);
+            }
+        }
+    }
+
     // Field resolvers can throw exceptions or add errors to the DataFetchingResult. This method normalizes them to a
     // single list of GraphQLErrors.
     @NotNull
@@ -198,77 +302,128 @@ public class FederatedTracingInstrumentation extends SimpleInstrumentation {
     }
 
     /**
-     * Stores timing information and a map of nodes for field information.
+     * Stores timing information and the tree of recorded fields.
      */
     private static class FederatedTracingState implements InstrumentationState {
+        private static final AtomicLongFieldUpdater<FederatedTracingState> overheadUpdater =
+                AtomicLongFieldUpdater.newUpdater(FederatedTracingState.class, "overheadNs");
+
         private final Instant startRequestTime;
         private final long startRequestNanos;
-        private final ProtoBuilderTree protoBuilderTree;
-
-        private FederatedTracingState() {
+        private final TraceRecorder recorder;
+        private final TracedFields tracedFields;
+        private final boolean includeInResponse;
+        private final @Nullable String query;
+        private final @Nullable String requestedOperationName;
+        private volatile @Nullable Document parsedDocument;
+        private volatile boolean valid;
+        // Only set once the operation executes
+        private volatile @Nullable Document document;
+        private volatile @Nullable String operationName;
+        private Instant endRequestTime;
+        private long durationNs;
+        private TraceNodes nodes;
+        private volatile long overheadNs;
+
+        private FederatedTracingState(TraceRecorder recorder,
+                                      TracedFields tracedFields,
+                                      boolean includeInResponse,
+                                      @Nullable String query,
+                                      @Nullable String requestedOperationName) {
             // record start time when creating instrumentation state for a request
             startRequestTime = Instant.now();
             startRequestNanos = System.nanoTime();
 
-            protoBuilderTree = new ProtoBuilderTree();
+            this.recorder = recorder;
+            this.tracedFields = tracedFields;
+            this.includeInResponse = includeInResponse;
+            this.query = query;
+            this.requestedOperationName = requestedOperationName;
+        }
+
+        boolean isIncludedInResponse() {
+            return includeInResponse;
+        }
+
+        void setParsed(@Nullable Document parsedDocument) {
+            this.parsedDocument = parsedDocument;
+        }
+
+        void setValid(boolean valid) {
+            this.valid = valid;
+        }
+
+        void setOperation(Document document, @Nullable String operationName) {
+            this.document = document;
+            this.operationName = operationName;
+        }
+
+        /**
+         * Stops recording, once the result is complete.
+         */
+        void finish() {
+            endRequestTime = Instant.now();
+            durationNs = System.nanoTime() - startRequestNanos;
+            nodes = recorder.finish();
         }
 
         @NotNull
         Reports.Trace toProto() {
             return Reports.Trace.newBuilder()
-                    .setStartTime(getStartTimestamp())
-                    .setEndTime(getNowTimestamp())
-                    .setDurationNs(getDuration())
-                    .setRoot(protoBuilderTree.toProto())
+                    .setStartTime(instantToTimestamp(startRequestTime))
+                    .setEndTime(instantToTimestamp(endRequestTime))
+                    .setDurationNs(durationNs)
+                    .setRoot(nodes.toProto())
                     .build();
         }
 
+        /**
+         * @return the Base64 of the serialized {@link #toProto()}, encoded without building it
+         */
+        @NotNull
+        String toBase64() {
+            return TraceEncoder.encodeBase64(startRequestTime, endRequestTime, durationNs, nodes);
+        }
+
         /**
          * Adds stats data collected from a field fetch.
          */
         void addFieldFetchData(ExecutionStepInfo stepInfo, long startFieldNanos, long endFieldNanos, List<GraphQLError> errors, SourceLocation fieldLocation) {
-            ExecutionPath path = stepInfo.getPath();
-            protoBuilderTree.editBuilder(path, (builder) -> {
-                builder.setStartTime(startFieldNanos)
-                        .setEndTime(endFieldNanos)
-                        .setParentType(simplePrint(stepInfo.getParent().getUnwrappedNonNullType()))
-                        .setType(stepInfo.simplePrint())
-                        .setResponseName(stepInfo.getResultKey());
-
-                // set originalFieldName only when a field alias was used
-                String originalFieldName = stepInfo.getField().getName();
-                if (!originalFieldName.equals(stepInfo.getResultKey())) {
-                    builder.setOriginalFieldName(originalFieldName);
-                }
-
-                errors.forEach(error -> {
-                    Reports.Trace.Error.Builder errorBuilder = builder.addErrorBuilder()
-                            .setMessage(error.getMessage());
-                    List<SourceLocation> locations = error.getLocations();
-                    if ((locations == null || locations.isEmpty()) && fieldLocation != null) {
-                        errorBuilder.addLocationBuilder()
-                                .setColumn(fieldLocation.getColumn())
-                                .setLine(fieldLocation.getLine());
-                    } else if (locations != null) {
-                        error.getLocations().forEach(location -> errorBuilder.addLocationBuilder()
-                                .setColumn(location.getColumn())
-                                .setLine(location.getLine()));
-                    }
-                });
-            });
+            recorder.recordField(stepInfo, tracedFields.get(stepInfo), startFieldNanos, endFieldNanos, errors, fieldLocation);
         }
 
         void addRootError(GraphQLError error) {
-            protoBuilderTree.editBuilder(ExecutionPath.rootPath(), (builder) -> {
-                Reports.Trace.Error.Builder errorBuilder = builder.addErrorBuilder()
-                        .setMessage(error.getMessage());
-
-                if (error.getLocations() != null) {
-                    error.getLocations().forEach(location -> errorBuilder.addLocationBuilder()
-                            .setColumn(location.getColumn())
-                            .setLine(location.getLine()));
-                }
-            });
+            recorder.recordRootError(error);
+        }
+
+        /**
+         * @return the serialized {@link #toProto()}, encoded without building it
+         */
+        @NotNull
+        byte[] toByteArray() {
+            return TraceEncoder.encode(startRequestTime, endRequestTime, durationNs, nodes);
+        }
+
+        void export(TraceExporter exporter, byte[] trace) {
+            final Document document = this.document;
+            exporter.export(query, document, operationName,
+                    document == null ? StatsReportKeys.failedRequestKey(parsedDocument, valid, requestedOperationName) : null,
+                    trace);
+        }
+
+        /**
+         * Adds time spent recording the trace, from any thread.
+         */
+        void addOverhead(long nanos) {
+            overheadUpdater.addAndGet(this, nanos);
+        }
+
+        long getOverheadNs() {
+            return overheadNs;
+        }
+
+        long getDurationNs() {
+            return durationNs;
         }
 
         long getStartRequestNanos() {
@@ -281,179 +436,113 @@ public class FederatedTracingInstrumentation extends SimpleInstrumentation {
                     .setSeconds(startRequestTime2.getEpochSecond())
                     .setNanos(startRequestTime2.getNano()).build();
         }
+    }
 
-        @NotNull
-        private Timestamp getStartTimestamp() {
-            return instantToTimestamp(startRequestTime);
-        }
+    public static class Options {
+        private final boolean debuggingEnabled;
+        private final boolean columnarFieldRecordingEnabled;
+        private final SamplingPolicy samplingPolicy;
+        private final @Nullable TraceExporter exporter;
+        private final boolean trivialFieldsSkipped;
+        private final long minFieldDurationNs;
+        // Whether to account for the overhead of every traced field, only for policies that use it
+        private final boolean overheadMeasured;
 
-        @NotNull
-        private Timestamp getNowTimestamp() {
-            return instantToTimestamp(Instant.now());
+        public Options(boolean debuggingEnabled) {
+            this(debuggingEnabled, false, SamplingPolicy.always(), null, false, 0);
         }
 
-        private long getDuration() {
-            return System.nanoTime() - startRequestNanos;
+        private Options(
+                boolean debuggingEnabled,
+                boolean columnarFieldRecordingEnabled,
+                SamplingPolicy samplingPolicy,
+                @Nullable TraceExporter exporter,
+                boolean trivialFieldsSkipped,
+                long minFieldDurationNs
+        ) {
+            this.debuggingEnabled = debuggingEnabled;
+            this.columnarFieldRecordingEnabled = columnarFieldRecordingEnabled;
+            this.samplingPolicy = samplingPolicy;
+            this.exporter = exporter;
+            this.trivialFieldsSkipped = trivialFieldsSkipped;
+            this.minFieldDurationNs = minFieldDurationNs;
+            this.overheadMeasured = samplingPolicy.isOverheadMeasured();
         }
 
-        /**
-         * A thread-safe class for storing field information and converting it to a protobuf.
-         */
-        private static class ProtoBuilderTree {
-            private final Node root;
-            private final ConcurrentMap<ExecutionPath, Node> nodesByPath;
-            // We use a whole-tree read-write lock to prevent the protobuf conversion step from
-            // having to acquire each node's lock.
-            private final ReadWriteLock treeLock;
-            // This flag is used to ensure protobuf conversion occurs once, and that builders can't
-            // be edited afterwards. We intentionally leave this field to be default initialized as
-            // false.
-            private boolean isFinalized;
-
-            public ProtoBuilderTree() {
-                root = new Node(Reports.Trace.Node.newBuilder());
-                nodesByPath = new ConcurrentHashMap<>();
-                nodesByPath.put(ExecutionPath.rootPath(), root);
-                treeLock = new ReentrantReadWriteLock();
-            }
-
-            /**
-             * Edit builder for the node at the given path (creating it and its parents if needed).
-             */
-            public void editBuilder(ExecutionPath path, Consumer<Reports.Trace.Node.Builder> builderConsumer) {
-                Lock l = treeLock.readLock();
-                l.lock();
-                try {
-                    if (isFinalized) {
-                        throw new RuntimeException("Cannot edit builder after protobuf conversion.");
-                    }
-                    Node node = getOrCreateNode(path);
-                    synchronized (node.builder) {
-                        builderConsumer.accept(node.builder);
-                    }
-                } finally {
-                    l.unlock();
-                }
-            }
+        public static @NotNull Options newOptions() {
+            return new Options(false);
+        }
 
-            /**
-             * Get node for the given path in nodesByPath (creating it and its parents if needed).
-             *
-             * Note that {@link #treeLock}'s read lock must be held when calling this method.
-             */
-            @NotNull
-            private Node getOrCreateNode(ExecutionPath path) {
-                // Fast path for when the node already exists.
-                Node current = nodesByPath.get(path);
-                if (current != null) return current;
-
-                // Find the latest ancestor that exists in the map.
-                List<Object> pathSegments = path.toList();
-                int currentSegmentIndex = pathSegments.size();
-                while (current == null) {
-                    if (currentSegmentIndex <= 0) {
-                        // The root path's node is inserted at construction time, so this shouldn't
-                        // happen.
-                        throw new RuntimeException("root path missing from nodesByPath?");
-                    }
-                    currentSegmentIndex--;
-                    ExecutionPath currentPath = ExecutionPath.fromList(pathSegments.subList(0, currentSegmentIndex));
-                    current = nodesByPath.get(currentPath);
-                }
+        public boolean isDebuggingEnabled() {
+            return debuggingEnabled;
+        }
 
-                // Travel back down to the requested node, creating child nodes along the way as
-                // needed.
-                for (; currentSegmentIndex < pathSegments.size(); currentSegmentIndex++) {
-                    Node parent = current;
-                    ExecutionPath childPath = ExecutionPath.fromList(pathSegments.subList(0, currentSegmentIndex + 1));
-                    Object childSegment = pathSegments.get(currentSegmentIndex);
-
-                    Reports.Trace.Node.Builder childBuilder = Reports.Trace.Node.newBuilder();
-                    if (childSegment instanceof Integer) {
-                        childBuilder.setIndex((Integer) childSegment);
-                    } else if (currentSegmentIndex < pathSegments.size() - 1) {
-                        // We've encountered a field name node that is an ancestor of the requested
-                        // node. However, the fetcher for that field name should have ultimately
-                        // called getOrCreateNode() on its node before getOrCreateNode() was called
-                        // on the requested node, meaning that this field name node should already
-                        // be in nodesByPath. Accordingly, we should never encounter such field
-                        // name ancestor nodes, and we throw when we do.
-                        throw new RuntimeException("Unexpected missing non-index " + childSegment);
-                    }
-                    Node childNode = new Node(childBuilder);
-
-                    // Note that putIfAbsent() here will give the child node if it already existed,
-                    // or null if it didn't (in which case the node passed to putIfAbsent() becomes
-                    // the child node).
-                    current = nodesByPath.putIfAbsent(childPath, childNode);
-                    if (current == null) {
-                        current = childNode;
-                        parent.children.add(childNode);
-                    }
-                }
+        public boolean isColumnarFieldRecordingEnabled() {
+            return columnarFieldRecordingEnabled;
+        }
 
-                return current;
-            }
+        /**
+         * Record fields as rows of primitive columns rather than as a tree of nodes. This allocates
+         * far less per field, which matters for traces of list-heavy queries with many thousands
+         * of fields, at the cost of a fixed-size buffer for every trace.
+         */
+        public @NotNull Options columnarFieldRecording(boolean flag) {
+            return new Options(debuggingEnabled, flag, samplingPolicy, exporter, trivialFieldsSkipped, minFieldDurationNs);
+        }
 
-            /**
-             * Convert the entire builder tree to protobuf, forming the parent-child relationships
-             * as needed.
-             *
-             * Note that no builder may be edited after this method is called.
-             */
-            @NotNull
-            public Reports.Trace.Node toProto() {
-                Lock l = treeLock.writeLock();
-                l.lock();
-                try {
-                    if (!isFinalized) {
-                        buildDescendants(root);
-                        isFinalized = true;
-                    }
-                    return root.builder.build();
-                } finally {
-                    l.unlock();
-                }
-            }
+        public @NotNull SamplingPolicy getSamplingPolicy() {
+            return samplingPolicy;
+        }
 
-            /**
-             * Recursively build the protobuf builder for the given node, forming the parent-child
-             * relationships between builders of descendant nodes as needed.
-             *
-             * Note that {@link #treeLock}'s write lock must be held when calling this method.
-             */
-            private void buildDescendants(Node node) {
-                for (Node childNode: node.children) {
-                    buildDescendants(childNode);
-                    node.builder.addChild(childNode.builder.build());
-                }
-            }
+        /**
+         * Only trace the requests chosen by the given policy, out of those that would otherwise be
+         * traced (i.e. that ask for a trace, if the context implements {@link HTTPRequestHeaders}).
+         */
+        public @NotNull Options samplingPolicy(@NotNull SamplingPolicy samplingPolicy) {
+            return new Options(debuggingEnabled, columnarFieldRecordingEnabled, samplingPolicy, exporter, trivialFieldsSkipped, minFieldDurationNs);
+        }
 
-            private static class Node {
-                public final Reports.Trace.Node.Builder builder;
-                public final ConcurrentLinkedQueue<Node> children;
+        public @Nullable TraceExporter getExporter() {
+            return exporter;
+        }
 
-                public Node(Reports.Trace.Node.Builder builder) {
-                    this.builder = builder;
-                    this.children = new ConcurrentLinkedQueue<>();
-                }
-            }
+        /**
+         * Also send traces to the given exporter. Requests are then traced (subject to the sampling
+         * policy) even if they do not ask for a trace, which is then only sent to the exporter.
+         */
+        public @NotNull Options exporter(@Nullable TraceExporter exporter) {
+            return new Options(debuggingEnabled, columnarFieldRecordingEnabled, samplingPolicy, exporter, trivialFieldsSkipped, minFieldDurationNs);
         }
-    }
 
-    public static class Options {
-        private final boolean debuggingEnabled;
+        public boolean isTrivialFieldsSkipped() {
+            return trivialFieldsSkipped;
+        }
 
-        public Options(boolean debuggingEnabled) {
-            this.debuggingEnabled = debuggingEnabled;
+        /**
+         * Do not trace fields resolved by trivial data fetchers (such as the default
+         * {@link graphql.schema.PropertyDataFetcher}), other than root fields. Trivial fields whose
+         * descendants are traced still appear in the trace, so that it remains a well-formed tree,
+         * but they are not timed: they take the start time of the descendant that was traced first
+         * as both start and end time.
+         */
+        public @NotNull Options skipTrivialFields(boolean flag) {
+            return new Options(debuggingEnabled, columnarFieldRecordingEnabled, samplingPolicy, exporter, flag, minFieldDurationNs);
         }
 
-        public static @NotNull Options newOptions() {
-            return new Options(false);
+        public @NotNull Duration getMinFieldDuration() {
+            return Duration.ofNanos(minFieldDurationNs);
         }
 
-        public boolean isDebuggingEnabled() {
-            return debuggingEnabled;
+        /**
+         * Do not trace fields that resolve faster than the given duration, unless they have errors.
+         * As with {@link #skipTrivialFields(boolean)}, such fields still appear, untimed, when their
+         * descendants are traced.
+         */
+        public @NotNull Options minFieldDuration(@NotNull Duration minFieldDuration) {
+            if (minFieldDuration.isNegative()) {
+                throw new IllegalArgumentException("Minimum field duration must not be negative: " + minFieldDuration);
+            }
+            return new Options(debuggingEnabled, columnarFieldRecordingEnabled, samplingPolicy, exporter, trivialFieldsSkipped, minFieldDuration.toNanos());
         }
     }
 }
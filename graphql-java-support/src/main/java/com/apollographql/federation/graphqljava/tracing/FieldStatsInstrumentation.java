@@ -0,0 +1,172 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import graphql.ExecutionResult;
+import graphql.execution.DataFetcherResult;
+import graphql.execution.ExecutionStepInfo;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationCreateStateParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationFieldFetchParameters;
+import mdg.engine.proto.Reports;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static graphql.execution.instrumentation.SimpleInstrumentationContext.whenCompleted;
+import static graphql.schema.GraphQLTypeUtil.simplePrint;
+
+/**
+ * Aggregates the count, errors and latency histogram of every resolved field, for all requests.
+ * Unlike {@link FederatedTracingInstrumentation}, nothing is kept per request, so this is cheap
+ * enough to leave on for all traffic.
+ * <p>
+ * Call {@link #snapshot()} periodically to report the fields resolved since the last call.
+ */
+public class FieldStatsInstrumentation extends SimpleInstrumentation {
+    // Parent type name -> field name -> stats
+    private final ConcurrentMap<String, ConcurrentMap<String, FieldStats>> stats = new ConcurrentHashMap<>();
+
+    @Override
+    public InstrumentationState createState(InstrumentationCreateStateParameters parameters) {
+        return new FieldStatsState();
+    }
+
+    @Override
+    public InstrumentationContext<Object> beginFieldFetch(InstrumentationFieldFetchParameters parameters) {
+        final FieldStatsState state = parameters.getInstrumentationState();
+        if (state == null) {
+            return super.beginFieldFetch(parameters);
+        }
+
+        final long startNanos = System.nanoTime();
+        return whenCompleted((result, throwable) -> {
+            final long durationNanos = System.nanoTime() - startNanos;
+            final FieldStats fieldStats = fieldStats(parameters.getEnvironment().getExecutionStepInfo());
+            fieldStats.count.increment();
+            fieldStats.latency.record(durationNanos);
+
+            int errors = throwable != null ? 1 : 0;
+            if (result instanceof DataFetcherResult<?>) {
+                errors += ((DataFetcherResult<?>) result).getErrors().size();
+            }
+            if (errors > 0) {
+                fieldStats.errors.add(errors);
+                state.fieldsWithErrors().add(fieldStats);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<ExecutionResult> instrumentExecutionResult(ExecutionResult executionResult, InstrumentationExecutionParameters parameters) {
+        final FieldStatsState state = parameters.getInstrumentationState();
+        if (state != null && state.fieldsWithErrors != null) {
+            for (FieldStats fieldStats : state.fieldsWithErrors) {
+                fieldStats.requestsWithErrors.increment();
+            }
+        }
+        return super.instrumentExecutionResult(executionResult, parameters);
+    }
+
+    /**
+     * Reset the stats, returning those of the fields resolved since the last call (or since this
+     * instrumentation was created).
+     *
+     * @return the field stats, under {@code type_stats_with_context} with an empty context
+     */
+    @NotNull
+    public Reports.QueryStats snapshot() {
+        final Reports.ContextualizedTypeStats.Builder typeStats = Reports.ContextualizedTypeStats.newBuilder()
+                .setContext(Reports.StatsContext.getDefaultInstance());
+        for (Map.Entry<String, ConcurrentMap<String, FieldStats>> type : stats.entrySet()) {
+            final Reports.TypeStat.Builder typeStat = Reports.TypeStat.newBuilder();
+            for (Map.Entry<String, FieldStats> field : type.getValue().entrySet()) {
+                final Reports.FieldStat fieldStat = field.getValue().snapshotAndReset();
+                if (fieldStat != null) {
+                    typeStat.putPerFieldStat(field.getKey(), fieldStat);
+                }
+            }
+            if (typeStat.getPerFieldStatCount() > 0) {
+                typeStats.putPerTypeStat(type.getKey(), typeStat.build());
+            }
+        }
+        return Reports.QueryStats.newBuilder()
+                .addTypeStatsWithContext(typeStats)
+                .build();
+    }
+
+    @NotNull
+    private FieldStats fieldStats(ExecutionStepInfo stepInfo) {
+        final String parentType = simplePrint(stepInfo.getParent().getUnwrappedNonNullType());
+        ConcurrentMap<String, FieldStats> fields = stats.get(parentType);
+        if (fields == null) {
+            fields = stats.computeIfAbsent(parentType, key -> new ConcurrentHashMap<>());
+        }
+        final String fieldName = stepInfo.getFieldDefinition().getName();
+        final FieldStats fieldStats = fields.get(fieldName);
+        if (fieldStats != null) {
+            return fieldStats;
+        }
+        return fields.computeIfAbsent(fieldName, key -> new FieldStats(simplePrint(stepInfo.getFieldDefinition().getType())));
+    }
+
+    private static final class FieldStats {
+        private final String returnType;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder requestsWithErrors = new LongAdder();
+        private final DurationHistogram latency = new DurationHistogram();
+
+        private FieldStats(String returnType) {
+            this.returnType = returnType;
+        }
+
+        // Returns null if nothing was recorded since the last snapshot.
+        @Nullable
+        private Reports.FieldStat snapshotAndReset() {
+            final long count = this.count.sumThenReset();
+            final long errors = this.errors.sumThenReset();
+            final long requestsWithErrors = this.requestsWithErrors.sumThenReset();
+            final List<Long> latencyCount = latency.snapshotAndReset();
+            if (count == 0 && errors == 0 && requestsWithErrors == 0) {
+                return null;
+            }
+            return Reports.FieldStat.newBuilder()
+                    .setReturnType(returnType)
+                    .setCount(count)
+                    .setErrorsCount(errors)
+                    .setRequestsWithErrorsCount(requestsWithErrors)
+                    .addAllLatencyCount(latencyCount)
+                    .build();
+        }
+    }
+
+    /**
+     * Tracks the fields that had errors in a request, to count requests with errors per field.
+     */
+    private static final class FieldStatsState implements InstrumentationState {
+        private volatile Set<FieldStats> fieldsWithErrors;
+
+        private Set<FieldStats> fieldsWithErrors() {
+            Set<FieldStats> fieldsWithErrors = this.fieldsWithErrors;
+            if (fieldsWithErrors == null) {
+                synchronized (this) {
+                    fieldsWithErrors = this.fieldsWithErrors;
+                    if (fieldsWithErrors == null) {
+                        fieldsWithErrors = ConcurrentHashMap.newKeySet();
+                        this.fieldsWithErrors = fieldsWithErrors;
+                    }
+                }
+            }
+            return fieldsWithErrors;
+        }
+    }
+}
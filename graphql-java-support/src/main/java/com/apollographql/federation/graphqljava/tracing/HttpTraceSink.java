@@ -0,0 +1,51 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * POSTs reports to an HTTP endpoint, with no retries.
+ */
+final class HttpTraceSink implements TraceSink {
+    private static final int TIMEOUT_MILLIS = 30_000;
+
+    private final URL endpoint;
+    private final @Nullable String apiKey;
+
+    HttpTraceSink(@NotNull URL endpoint, @Nullable String apiKey) {
+        this.endpoint = endpoint;
+        this.apiKey = apiKey;
+    }
+
+    @Override
+    public void send(@NotNull byte[] gzippedReport) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) endpoint.openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setConnectTimeout(TIMEOUT_MILLIS);
+            connection.setReadTimeout(TIMEOUT_MILLIS);
+            connection.setFixedLengthStreamingMode(gzippedReport.length);
+            connection.setRequestProperty("Content-Type", "application/protobuf");
+            connection.setRequestProperty("Content-Encoding", "gzip");
+            if (apiKey != null) {
+                connection.setRequestProperty("X-Api-Key", apiKey);
+            }
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(gzippedReport);
+            }
+
+            final int status = connection.getResponseCode();
+            if (status < 200 || status >= 300) {
+                throw new IOException("Sending traces to " + endpoint + " failed with HTTP status " + status);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import mdg.engine.proto.Reports;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Keeps the reports it is sent in memory, e.g. for tests.
+ */
+public final class InMemoryTraceSink implements TraceSink {
+    private final List<Reports.FullTracesReport> reports = new ArrayList<>();
+
+    @Override
+    public void send(@NotNull byte[] gzippedReport) throws IOException {
+        final Reports.FullTracesReport report;
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzippedReport))) {
+            report = Reports.FullTracesReport.parseFrom(in);
+        }
+        synchronized (reports) {
+            reports.add(report);
+        }
+    }
+
+    /**
+     * @return a copy of the reports received so far
+     */
+    @NotNull
+    public List<Reports.FullTracesReport> getReports() {
+        synchronized (reports) {
+            return new ArrayList<>(reports);
+        }
+    }
+
+    public void clear() {
+        synchronized (reports) {
+            reports.clear();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free queue for many producers and a single consumer.
+ * <p>
+ * Producers claim a slot by advancing the tail with a compare-and-set, then publish their element
+ * into it; the consumer takes elements in claim order, waiting for claimed slots to be published.
+ * Offering to a full buffer fails rather than waiting for the consumer.
+ */
+final class MpscRingBuffer<E> {
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // Only written by the consumer.
+    private volatile long head;
+
+    /**
+     * @param capacity the capacity, rounded up to a power of 2
+     */
+    MpscRingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30: " + capacity);
+        }
+        final int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(Math.max(size, 1));
+        this.mask = slots.length() - 1;
+    }
+
+    int capacity() {
+        return slots.length();
+    }
+
+    /**
+     * @return false if the buffer is full
+     */
+    boolean offer(E element) {
+        long claimed;
+        do {
+            claimed = tail.get();
+            if (claimed - head >= slots.length()) {
+                return false;
+            }
+        } while (!tail.compareAndSet(claimed, claimed + 1));
+        slots.lazySet((int) claimed & mask, element);
+        return true;
+    }
+
+    /**
+     * Only to be called by the consumer.
+     *
+     * @return the oldest element, or null if there is none, or it is not published yet
+     */
+    @Nullable
+    E poll() {
+        final long head = this.head;
+        final int slot = (int) head & mask;
+        final E element = slots.get(slot);
+        if (element == null) {
+            return null;
+        }
+        slots.lazySet(slot, null);
+        this.head = head + 1;
+        return element;
+    }
+
+    boolean isEmpty() {
+        return tail.get() == head;
+    }
+}
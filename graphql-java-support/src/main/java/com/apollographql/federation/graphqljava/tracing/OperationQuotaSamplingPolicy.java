@@ -0,0 +1,32 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limits traces with a token bucket for each configured operation name, and one shared by
+ * all other operations.
+ */
+final class OperationQuotaSamplingPolicy implements SamplingPolicy {
+    private final Map<String, TokenBucket> buckets = new HashMap<>();
+    private final TokenBucket otherBucket;
+
+    OperationQuotaSamplingPolicy(
+            @NotNull Map<String, Double> tracesPerSecond,
+            double otherTracesPerSecond,
+            @NotNull LongSupplier nanoTime
+    ) {
+        tracesPerSecond.forEach((operationName, rate) -> buckets.put(operationName, new TokenBucket(rate, nanoTime)));
+        this.otherBucket = new TokenBucket(otherTracesPerSecond, nanoTime);
+    }
+
+    @Override
+    public boolean shouldTrace(@Nullable String operationName) {
+        final TokenBucket bucket = operationName != null ? buckets.get(operationName) : null;
+        return (bucket != null ? bucket : otherBucket).tryAcquire();
+    }
+}
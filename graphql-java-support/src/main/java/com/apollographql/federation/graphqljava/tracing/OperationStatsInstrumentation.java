@@ -0,0 +1,368 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import com.google.protobuf.Timestamp;
+import graphql.ExecutionResult;
+import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationCreateStateParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.execution.instrumentation.parameters.InstrumentationValidationParameters;
+import graphql.language.Document;
+import graphql.validation.ValidationError;
+import mdg.engine.proto.Reports;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import static graphql.execution.instrumentation.SimpleInstrumentationContext.whenCompleted;
+
+/**
+ * Aggregates the latency of every request by operation signature and client, without keeping any
+ * per-request traces, and snapshots them into {@code StatsReport}s.
+ * <p>
+ * Operations are grouped by their stats report key (the operation name and signature, see
+ * {@link StatsReportKeys}) and by the client name and version, which are read from the
+ * {@code apollographql-client-name} and {@code apollographql-client-version} headers if the context
+ * implements {@link HTTPRequestHeaders}. The number of groups is bounded; the least recently used
+ * ones are evicted, and their stats since the last snapshot are reported by the next one. Requests
+ * still counting towards a group as it is evicted are reported by the snapshot after that, unless
+ * they take longer than a snapshot interval to be counted.
+ */
+public class OperationStatsInstrumentation extends SimpleInstrumentation {
+    private static final String CLIENT_NAME_HEADER = "apollographql-client-name";
+    private static final String CLIENT_VERSION_HEADER = "apollographql-client-version";
+
+    private final Reports.ReportHeader header;
+    private final ApproximateLruCache<StatsKey, OperationStats> stats;
+    // Groups evicted since the last snapshot, and those that still counted requests as of it
+    private final Queue<OperationStats> evicted = new ConcurrentLinkedQueue<>();
+    // (operation name, query) -> stats report key, to only compute signatures for new queries
+    private final ApproximateLruCache<SignatureKey, String> statsReportKeys;
+    private volatile Instant periodStart = Instant.now();
+
+    private OperationStatsInstrumentation(Builder builder) {
+        this.header = builder.header;
+        this.stats = new ApproximateLruCache<>(builder.maxOperations, (key, operationStats) -> evicted.add(operationStats));
+        this.statsReportKeys = new ApproximateLruCache<>(builder.maxOperations);
+    }
+
+    public static @NotNull Builder newBuilder() {
+        return new Builder();
+    }
+
+    @Override
+    public InstrumentationState createState(InstrumentationCreateStateParameters parameters) {
+        final Object context = parameters.getExecutionInput().getContext();
+        final Reports.StatsContext.Builder statsContext = Reports.StatsContext.newBuilder();
+        if (context instanceof HTTPRequestHeaders) {
+            final HTTPRequestHeaders headers = (HTTPRequestHeaders) context;
+            final String clientName = headers.getHTTPRequestHeader(CLIENT_NAME_HEADER);
+            final String clientVersion = headers.getHTTPRequestHeader(CLIENT_VERSION_HEADER);
+            if (clientName != null) {
+                statsContext.setClientName(clientName);
+            }
+            if (clientVersion != null) {
+                statsContext.setClientVersion(clientVersion);
+            }
+        }
+        return new OperationStatsState(
+                statsContext.build(),
+                parameters.getExecutionInput().getQuery(),
+                parameters.getExecutionInput().getOperationName());
+    }
+
+    @Override
+    public InstrumentationContext<Document> beginParse(InstrumentationExecutionParameters parameters) {
+        final OperationStatsState state = parameters.getInstrumentationState();
+        if (state == null) {
+            return super.beginParse(parameters);
+        }
+        return whenCompleted((document, throwable) -> state.parsedDocument = document);
+    }
+
+    @Override
+    public InstrumentationContext<List<ValidationError>> beginValidation(InstrumentationValidationParameters parameters) {
+        final OperationStatsState state = parameters.getInstrumentationState();
+        if (state == null) {
+            return super.beginValidation(parameters);
+        }
+        return whenCompleted((validationErrors, throwable) ->
+                state.valid = throwable == null && validationErrors.isEmpty());
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(InstrumentationExecuteOperationParameters parameters) {
+        final OperationStatsState state = parameters.getInstrumentationState();
+        if (state != null) {
+            final ExecutionContext executionContext = parameters.getExecutionContext();
+            state.statsReportKey = statsReportKey(
+                    state.query,
+                    executionContext.getDocument(),
+                    executionContext.getOperationDefinition().getName());
+        }
+        return super.beginExecuteOperation(parameters);
+    }
+
+    @Override
+    public CompletableFuture<ExecutionResult> instrumentExecutionResult(ExecutionResult executionResult, InstrumentationExecutionParameters parameters) {
+        final OperationStatsState state = parameters.getInstrumentationState();
+        if (state != null) {
+            final long durationNs = System.nanoTime() - state.startNanos;
+            String statsReportKey = state.statsReportKey;
+            if (statsReportKey == null) {
+                statsReportKey = StatsReportKeys.failedRequestKey(state.parsedDocument, state.valid, state.operationName);
+            }
+            final OperationStats operationStats = stats.computeIfAbsent(
+                    new StatsKey(statsReportKey, state.statsContext),
+                    OperationStats::new);
+            operationStats.requests.increment();
+            operationStats.latency.record(durationNs);
+            if (!executionResult.getErrors().isEmpty()) {
+                operationStats.requestsWithErrors.increment();
+            }
+        }
+        return super.instrumentExecutionResult(executionResult, parameters);
+    }
+
+    /**
+     * Reset the stats, returning those of the requests completed since the last snapshot (or since
+     * this instrumentation was created).
+     */
+    @NotNull
+    public Reports.StatsReport snapshot() {
+        final Instant start = periodStart;
+        final Instant end = Instant.now();
+        periodStart = end;
+
+        final Map<StatsKey, Totals> totals = new LinkedHashMap<>();
+        stats.forEach((key, operationStats) -> operationStats.drainTo(totals));
+        // Requests may still be counted towards an evicted group after it was drained, so keep
+        // draining it until it stays empty for a whole snapshot interval.
+        final List<OperationStats> drained = new ArrayList<>();
+        for (OperationStats operationStats; (operationStats = evicted.poll()) != null; ) {
+            drained.add(operationStats);
+        }
+        for (OperationStats operationStats : drained) {
+            if (operationStats.drainTo(totals)) {
+                evicted.add(operationStats);
+            }
+        }
+
+        final Map<String, Reports.QueryStats.Builder> perQuery = new LinkedHashMap<>();
+        totals.forEach((key, total) -> perQuery.computeIfAbsent(key.statsReportKey, k -> Reports.QueryStats.newBuilder())
+                .addQueryStatsWithContext(Reports.ContextualizedQueryLatencyStats.newBuilder()
+                        .setContext(key.statsContext)
+                        .setQueryLatencyStats(Reports.QueryLatencyStats.newBuilder()
+                                .setRequestCount(total.requests)
+                                .setRequestsWithErrorsCount(total.requestsWithErrors)
+                                .addAllLatencyCount(DurationHistogram.encode(total.latencyCounts)))));
+
+        final Reports.StatsReport.Builder report = Reports.StatsReport.newBuilder()
+                .setHeader(header)
+                .setStartTime(timestamp(start))
+                .setEndTime(timestamp(end))
+                .setRealtimeDuration(Duration.between(start, end).toNanos());
+        perQuery.forEach((key, queryStats) -> report.putPerQuery(key, queryStats.build()));
+        return report.build();
+    }
+
+    /**
+     * Pass a {@link #snapshot()} to the consumer at a fixed rate, until the returned future is
+     * cancelled.
+     */
+    @NotNull
+    public ScheduledFuture<?> scheduleSnapshots(
+            @NotNull ScheduledExecutorService executor,
+            @NotNull Duration interval,
+            @NotNull Consumer<Reports.StatsReport> consumer
+    ) {
+        final long intervalNs = interval.toNanos();
+        return executor.scheduleAtFixedRate(() -> consumer.accept(snapshot()), intervalNs, intervalNs, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the number of operation and client groups evicted to bound memory
+     */
+    public long getEvictionCount() {
+        return stats.getEvictionCount();
+    }
+
+    @NotNull
+    private String statsReportKey(@Nullable String query, Document document, @Nullable String operationName) {
+        if (query == null) {
+            return StatsReportKeys.statsReportKey(document, operationName);
+        }
+        return statsReportKeys.computeIfAbsent(
+                new SignatureKey(operationName, query),
+                key -> StatsReportKeys.statsReportKey(document, operationName));
+    }
+
+    @NotNull
+    private static Timestamp timestamp(Instant instant) {
+        return Timestamp.newBuilder()
+                .setSeconds(instant.getEpochSecond())
+                .setNanos(instant.getNano())
+                .build();
+    }
+
+    private static final class OperationStats {
+        private final StatsKey key;
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder requestsWithErrors = new LongAdder();
+        private final DurationHistogram latency = new DurationHistogram();
+
+        private OperationStats(StatsKey key) {
+            this.key = key;
+        }
+
+        /**
+         * Reset the stats, adding them to the totals of their group, which may also be counted by
+         * an evicted instance.
+         *
+         * @return whether there were any requests since the last reset
+         */
+        private boolean drainTo(Map<StatsKey, Totals> totals) {
+            final long requests = this.requests.sumThenReset();
+            final long requestsWithErrors = this.requestsWithErrors.sumThenReset();
+            if (requests == 0) {
+                latency.reset();
+                return false;
+            }
+            final Totals total = totals.computeIfAbsent(key, k -> new Totals());
+            total.requests += requests;
+            total.requestsWithErrors += requestsWithErrors;
+            latency.drainTo(total.latencyCounts);
+            return true;
+        }
+    }
+
+    private static final class Totals {
+        private long requests;
+        private long requestsWithErrors;
+        private final long[] latencyCounts = new long[DurationHistogram.BUCKET_COUNT];
+    }
+
+    private static final class OperationStatsState implements InstrumentationState {
+        private final long startNanos = System.nanoTime();
+        private final Reports.StatsContext statsContext;
+        private final @Nullable String query;
+        // The name of the operation to execute, as requested
+        private final @Nullable String operationName;
+        private volatile @Nullable Document parsedDocument;
+        private volatile boolean valid;
+        // Only set once the operation executes
+        private volatile @Nullable String statsReportKey;
+
+        private OperationStatsState(Reports.StatsContext statsContext, @Nullable String query, @Nullable String operationName) {
+            this.statsContext = statsContext;
+            this.query = query;
+            this.operationName = operationName;
+        }
+    }
+
+    private static final class StatsKey {
+        private final String statsReportKey;
+        private final Reports.StatsContext statsContext;
+
+        private StatsKey(String statsReportKey, Reports.StatsContext statsContext) {
+            this.statsReportKey = statsReportKey;
+            this.statsContext = statsContext;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof StatsKey)) {
+                return false;
+            }
+            final StatsKey other = (StatsKey) o;
+            return statsReportKey.equals(other.statsReportKey) && statsContext.equals(other.statsContext);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * statsReportKey.hashCode() + statsContext.hashCode();
+        }
+    }
+
+    private static final class SignatureKey {
+        private final @Nullable String operationName;
+        private final String query;
+
+        private SignatureKey(@Nullable String operationName, String query) {
+            this.operationName = operationName;
+            this.query = query;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof SignatureKey)) {
+                return false;
+            }
+            final SignatureKey other = (SignatureKey) o;
+            return Objects.equals(operationName, other.operationName) && query.equals(other.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hashCode(operationName) + query.hashCode();
+        }
+    }
+
+    public static class Builder {
+        private Reports.ReportHeader header = Reports.ReportHeader.newBuilder()
+                .setAgentVersion("federation-jvm")
+                .build();
+        private int maxOperations = 1000;
+
+        private Builder() {
+        }
+
+        /**
+         * @param header the header of every report, which should at least set an agent version
+         */
+        public @NotNull Builder header(@NotNull Reports.ReportHeader header) {
+            this.header = header;
+            return this;
+        }
+
+        /**
+         * @param maxOperations how many operation and client groups to keep stats for, 1000 by
+         *                      default
+         */
+        public @NotNull Builder maxOperations(int maxOperations) {
+            if (maxOperations <= 0) {
+                throw new IllegalArgumentException("Maximum number of operations must be positive: " + maxOperations);
+            }
+            this.maxOperations = maxOperations;
+            return this;
+        }
+
+        public @NotNull OperationStatsInstrumentation build() {
+            return new OperationStatsInstrumentation(this);
+        }
+    }
+}
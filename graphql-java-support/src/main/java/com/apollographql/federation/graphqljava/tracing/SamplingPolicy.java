@@ -0,0 +1,115 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides which of the requests that ask for a trace actually get one, e.g. to cap the overhead of
+ * tracing under load when the gateway asks for a trace on every request.
+ */
+@FunctionalInterface
+public interface SamplingPolicy {
+    /**
+     * Called once for every request that would otherwise be traced.
+     *
+     * @param operationName the operation name of the {@link graphql.ExecutionInput}, or null if it
+     *                      was not given
+     * @return whether to trace the request
+     */
+    boolean shouldTrace(@Nullable String operationName);
+
+    /**
+     * Called after every trace, so that policies can adapt to what tracing costs.
+     *
+     * @param durationNs the duration of the traced request, in ns
+     * @param overheadNs the time spent recording and encoding the trace, in ns, or 0 unless the
+     *                   policy {@linkplain #isOverheadMeasured() measures it}
+     */
+    default void traceCompleted(long durationNs, long overheadNs) {
+    }
+
+    /**
+     * @return whether {@link #traceCompleted} should be given the overhead of each trace, which
+     * costs reading the clock once more for every traced field
+     */
+    default boolean isOverheadMeasured() {
+        return false;
+    }
+
+    /**
+     * @return a policy that is only satisfied if both this and the other policy are, asking the
+     * other policy only when this one is satisfied (so it can be used to only spend tokens on
+     * requests that pass a cheaper check)
+     */
+    @NotNull
+    default SamplingPolicy and(@NotNull SamplingPolicy other) {
+        final SamplingPolicy first = this;
+        return new SamplingPolicy() {
+            @Override
+            public boolean shouldTrace(@Nullable String operationName) {
+                return first.shouldTrace(operationName) && other.shouldTrace(operationName);
+            }
+
+            @Override
+            public void traceCompleted(long durationNs, long overheadNs) {
+                first.traceCompleted(durationNs, overheadNs);
+                other.traceCompleted(durationNs, overheadNs);
+            }
+
+            @Override
+            public boolean isOverheadMeasured() {
+                return first.isOverheadMeasured() || other.isOverheadMeasured();
+            }
+        };
+    }
+
+    /**
+     * @return a policy that traces every request
+     */
+    @NotNull
+    static SamplingPolicy always() {
+        return operationName -> true;
+    }
+
+    /**
+     * @param ratio the fraction of requests to trace, between 0 and 1
+     * @return a policy that traces requests at random
+     */
+    @NotNull
+    static SamplingPolicy ratio(double ratio) {
+        if (!(ratio >= 0 && ratio <= 1)) {
+            throw new IllegalArgumentException("Sampling ratio must be between 0 and 1: " + ratio);
+        }
+        return operationName -> ThreadLocalRandom.current().nextDouble() < ratio;
+    }
+
+    /**
+     * @param tracesPerSecond the sustained rate of traces, or 0 to trace nothing; bursts of up to
+     *                        one second's worth of traces are allowed
+     * @return a policy that traces at most the given number of requests per second
+     */
+    @NotNull
+    static SamplingPolicy maxPerSecond(double tracesPerSecond) {
+        final TokenBucket bucket = new TokenBucket(tracesPerSecond, System::nanoTime);
+        return operationName -> bucket.tryAcquire();
+    }
+
+    /**
+     * Limit the rate of traces of each of the given operations separately, e.g. so that a single
+     * busy operation does not use up all traces.
+     * <p>
+     * All other operations, including those without a name, share one limit, so that the policy's
+     * memory does not depend on the operation names that clients send.
+     *
+     * @param tracesPerSecond      the maximum traces per second of each operation, by name
+     * @param otherTracesPerSecond the maximum traces per second of all other operations together
+     * @return a policy that traces at most the given number of requests per second and operation
+     */
+    @NotNull
+    static SamplingPolicy perOperation(@NotNull Map<String, Double> tracesPerSecond, double otherTracesPerSecond) {
+        return new OperationQuotaSamplingPolicy(tracesPerSecond, otherTracesPerSecond, System::nanoTime);
+    }
+}
@@ -0,0 +1,74 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import graphql.language.AstPrinter;
+import graphql.language.AstSignature;
+import graphql.language.Definition;
+import graphql.language.Document;
+import graphql.language.OperationDefinition;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The keys under which reports group the stats and traces of an operation: {@code # name}
+ * (or {@code # -} for anonymous operations), a newline, and the operation's signature.
+ * <p>
+ * The signature is the operation with the fragments it uses, with literals hidden, aliases and
+ * unused definitions removed, sorted and printed compactly, so that operations only differing in
+ * those respects share a key.
+ */
+final class StatsReportKeys {
+    static final String PARSE_FAILURE = "## GraphQLParseFailure";
+    static final String VALIDATION_FAILURE = "## GraphQLValidationFailure";
+    static final String UNKNOWN_OPERATION_NAME = "## GraphQLUnknownOperationName";
+
+    private StatsReportKeys() {
+    }
+
+    @NotNull
+    static String statsReportKey(@NotNull Document document, @Nullable String operationName) {
+        final String signature = AstPrinter.printAstCompact(new AstSignature().signatureQuery(document, operationName));
+        return "# " + (operationName == null || operationName.isEmpty() ? "-" : operationName) + "\n" + signature;
+    }
+
+    /**
+     * The key of a request that did not get to execute its operation.
+     *
+     * @param document      the parsed document, or null if it failed to parse
+     * @param valid         whether the document passed validation
+     * @param operationName the name of the operation to execute, as requested
+     * @return the key of the failure if the request failed to parse or validate, or did not name one
+     * of its operations; otherwise, e.g. when its variables could not be coerced, that of its operation
+     */
+    @NotNull
+    static String failedRequestKey(@Nullable Document document, boolean valid, @Nullable String operationName) {
+        if (document == null) {
+            return PARSE_FAILURE;
+        }
+        if (!valid) {
+            return VALIDATION_FAILURE;
+        }
+        final OperationDefinition operation = operation(document, operationName);
+        return operation == null ? UNKNOWN_OPERATION_NAME : statsReportKey(document, operation.getName());
+    }
+
+    // Picks the operation like graphql-java does: by name, or the only one if no name is given.
+    @Nullable
+    private static OperationDefinition operation(Document document, @Nullable String operationName) {
+        OperationDefinition found = null;
+        for (Definition<?> definition : document.getDefinitions()) {
+            if (!(definition instanceof OperationDefinition)) {
+                continue;
+            }
+            final OperationDefinition operation = (OperationDefinition) definition;
+            if (operationName == null || operationName.isEmpty()) {
+                if (found != null) {
+                    return null;
+                }
+                found = operation;
+            } else if (operationName.equals(operation.getName())) {
+                return operation;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,52 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A lock-free token bucket, holding up to one second's worth of tokens (and at least one, unless
+ * the rate is zero).
+ * <p>
+ * Rather than a token count, this tracks the time at which the bucket will be full again (as in the
+ * generic cell rate algorithm), so that taking a token is a single compare-and-set.
+ */
+final class TokenBucket {
+    private final long nanosPerToken;
+    private final long capacityNanos;
+    private final LongSupplier nanoTime;
+    private final AtomicLong fullAt;
+
+    TokenBucket(double tokensPerSecond, @NotNull LongSupplier nanoTime) {
+        if (!(tokensPerSecond >= 0) || Double.isInfinite(tokensPerSecond)) {
+            throw new IllegalArgumentException("Rate must be non-negative and finite: " + tokensPerSecond);
+        }
+        if (tokensPerSecond == 0) {
+            // A bucket that can never hold a token.
+            this.nanosPerToken = 1;
+            this.capacityNanos = 0;
+        } else {
+            this.nanosPerToken = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / tokensPerSecond));
+            this.capacityNanos = Math.max(1, (long) tokensPerSecond) * nanosPerToken;
+        }
+        this.nanoTime = nanoTime;
+        this.fullAt = new AtomicLong(nanoTime.getAsLong());
+    }
+
+    boolean tryAcquire() {
+        final long now = nanoTime.getAsLong();
+        while (true) {
+            final long current = fullAt.get();
+            // A bucket that has been full for a while is no fuller.
+            final long next = Math.max(current - now, 0) + nanosPerToken;
+            if (next > capacityNanos) {
+                return false;
+            }
+            if (fullAt.compareAndSet(current, now + next)) {
+                return true;
+            }
+        }
+    }
+}
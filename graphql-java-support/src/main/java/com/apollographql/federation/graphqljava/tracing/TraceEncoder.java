@@ -0,0 +1,348 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import graphql.language.SourceLocation;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Encodes a finished trace as the Base64 of its {@code Trace} protobuf wire format, without
+ * building the {@link mdg.engine.proto.Reports.Trace} message.
+ * <p>
+ * The encoding makes two passes over the nodes: the first computes the size of every node, which
+ * the second needs to prefix each nested node with its length. Fields are written in field number
+ * order and default values are skipped, so the bytes match those of the equivalent message. Type
+ * and field names are copied from the UTF-8 bytes cached by {@link TracedFields}. The wire and
+ * Base64 buffers are reused by each thread, up to a size limit.
+ */
+final class TraceEncoder {
+    // Buffers larger than this are not kept for reuse.
+    private static final int MAX_RETAINED_BYTES = 1 << 20;
+
+    private static final byte[] base64Alphabet =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(StandardCharsets.US_ASCII);
+
+    // Trace
+    private static final int TRACE_END_TIME = 3;
+    private static final int TRACE_START_TIME = 4;
+    private static final int TRACE_DURATION_NS = 11;
+    private static final int TRACE_ROOT = 14;
+    // Timestamp
+    private static final int TIMESTAMP_SECONDS = 1;
+    private static final int TIMESTAMP_NANOS = 2;
+    // Trace.Node
+    private static final int NODE_RESPONSE_NAME = 1;
+    private static final int NODE_INDEX = 2;
+    private static final int NODE_TYPE = 3;
+    private static final int NODE_START_TIME = 8;
+    private static final int NODE_END_TIME = 9;
+    private static final int NODE_ERROR = 11;
+    private static final int NODE_CHILD = 12;
+    private static final int NODE_PARENT_TYPE = 13;
+    private static final int NODE_ORIGINAL_FIELD_NAME = 14;
+    // Trace.Error
+    private static final int ERROR_MESSAGE = 1;
+    private static final int ERROR_LOCATION = 2;
+    // Trace.Location
+    private static final int LOCATION_LINE = 1;
+    private static final int LOCATION_COLUMN = 2;
+
+    private static final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+    private TraceEncoder() {
+    }
+
+    @NotNull
+    static String encodeBase64(Instant startTime, Instant endTime, long durationNs, TraceNodes nodes) {
+        final Buffers buffers = TraceEncoder.buffers.get();
+        final int size = encode(buffers, startTime, endTime, durationNs, nodes);
+        return encodeBase64(buffers, buffers.wire, size);
+    }
+
+    /**
+     * @return the serialized trace, e.g. to keep it beyond the request
+     */
+    @NotNull
+    static byte[] encode(Instant startTime, Instant endTime, long durationNs, TraceNodes nodes) {
+        final Buffers buffers = TraceEncoder.buffers.get();
+        final int size = encode(buffers, startTime, endTime, durationNs, nodes);
+        final byte[] encoded = Arrays.copyOf(buffers.wire, size);
+        buffers.release();
+        return encoded;
+    }
+
+    @NotNull
+    static String encodeBase64(byte[] encoded) {
+        return encodeBase64(buffers.get(), encoded, encoded.length);
+    }
+
+    // Writes the trace to the start of the wire buffer, returning its size.
+    private static int encode(Buffers buffers, Instant startTime, Instant endTime, long durationNs, TraceNodes nodes) {
+        final int[] sizes = buffers.sizes(nodes.capacity());
+
+        final int rootSize = nodeSize(nodes, nodes.root(), sizes);
+        final int endTimeSize = timestampSize(endTime);
+        final int startTimeSize = timestampSize(startTime);
+        final int size = lengthDelimitedSize(TRACE_END_TIME, endTimeSize)
+                + lengthDelimitedSize(TRACE_START_TIME, startTimeSize)
+                + (durationNs != 0 ? CodedOutputStream.computeUInt64Size(TRACE_DURATION_NS, durationNs) : 0)
+                + lengthDelimitedSize(TRACE_ROOT, rootSize);
+
+        final byte[] wire = buffers.wire(size);
+        final CodedOutputStream out = CodedOutputStream.newInstance(wire, 0, size);
+        try {
+            writeLengthDelimitedTag(out, TRACE_END_TIME, endTimeSize);
+            writeTimestamp(out, endTime);
+            writeLengthDelimitedTag(out, TRACE_START_TIME, startTimeSize);
+            writeTimestamp(out, startTime);
+            if (durationNs != 0) {
+                out.writeUInt64(TRACE_DURATION_NS, durationNs);
+            }
+            writeLengthDelimitedTag(out, TRACE_ROOT, rootSize);
+            writeNode(out, nodes, nodes.root(), sizes);
+            out.checkNoSpaceLeft();
+        } catch (IOException e) {
+            // The buffer was sized by the first pass, so it can only overflow if the sizes are wrong.
+            throw new UncheckedIOException(e);
+        }
+        return size;
+    }
+
+    private static String encodeBase64(Buffers buffers, byte[] wire, int size) {
+        final byte[] base64 = buffers.base64(4 * ((size + 2) / 3));
+        final int length = encodeBase64(wire, size, base64);
+        buffers.release();
+        return new String(base64, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    // First pass: computes the sizes of the node and its descendants, without tags and lengths.
+    private static int nodeSize(TraceNodes nodes, int node, int[] sizes) {
+        int size = 0;
+        final TracedField field = nodes.field(node);
+        final String alias = nodes.alias(node);
+        if (field != null) {
+            size += alias != null
+                    ? CodedOutputStream.computeStringSize(NODE_RESPONSE_NAME, alias)
+                    : CodedOutputStream.computeBytesSize(NODE_RESPONSE_NAME, field.fieldNameBytes);
+        }
+        final int index = nodes.index(node);
+        if (index >= 0) {
+            size += CodedOutputStream.computeUInt32Size(NODE_INDEX, index);
+        }
+        if (field != null) {
+            size += bytesSize(NODE_TYPE, field.typeBytes)
+                    + uint64Size(NODE_START_TIME, nodes.startTime(node))
+                    + uint64Size(NODE_END_TIME, nodes.endTime(node));
+        }
+        for (TraceError error : nodes.errors(node)) {
+            size += lengthDelimitedSize(NODE_ERROR, errorSize(error));
+        }
+        for (int child = nodes.firstChild(node); child != TraceNodes.NONE; child = nodes.nextSibling(child)) {
+            size += lengthDelimitedSize(NODE_CHILD, nodeSize(nodes, child, sizes));
+        }
+        if (field != null) {
+            size += bytesSize(NODE_PARENT_TYPE, field.parentTypeBytes);
+            if (alias != null) {
+                size += bytesSize(NODE_ORIGINAL_FIELD_NAME, field.fieldNameBytes);
+            }
+        }
+        sizes[node] = size;
+        return size;
+    }
+
+    // Second pass: writes the node's fields, using the sizes from the first pass.
+    private static void writeNode(CodedOutputStream out, TraceNodes nodes, int node, int[] sizes) throws IOException {
+        final TracedField field = nodes.field(node);
+        final String alias = nodes.alias(node);
+        if (field != null) {
+            if (alias != null) {
+                out.writeString(NODE_RESPONSE_NAME, alias);
+            } else {
+                out.writeBytes(NODE_RESPONSE_NAME, field.fieldNameBytes);
+            }
+        }
+        final int index = nodes.index(node);
+        if (index >= 0) {
+            out.writeUInt32(NODE_INDEX, index);
+        }
+        if (field != null) {
+            writeBytes(out, NODE_TYPE, field.typeBytes);
+            writeUInt64(out, NODE_START_TIME, nodes.startTime(node));
+            writeUInt64(out, NODE_END_TIME, nodes.endTime(node));
+        }
+        for (TraceError error : nodes.errors(node)) {
+            writeLengthDelimitedTag(out, NODE_ERROR, errorSize(error));
+            writeError(out, error);
+        }
+        for (int child = nodes.firstChild(node); child != TraceNodes.NONE; child = nodes.nextSibling(child)) {
+            writeLengthDelimitedTag(out, NODE_CHILD, sizes[child]);
+            writeNode(out, nodes, child, sizes);
+        }
+        if (field != null) {
+            writeBytes(out, NODE_PARENT_TYPE, field.parentTypeBytes);
+            if (alias != null) {
+                writeBytes(out, NODE_ORIGINAL_FIELD_NAME, field.fieldNameBytes);
+            }
+        }
+    }
+
+    private static int errorSize(TraceError error) {
+        int size = stringSize(ERROR_MESSAGE, error.message);
+        if (error.locations != null) {
+            for (SourceLocation location : error.locations) {
+                size += lengthDelimitedSize(ERROR_LOCATION, locationSize(location));
+            }
+        }
+        return size;
+    }
+
+    private static void writeError(CodedOutputStream out, TraceError error) throws IOException {
+        writeString(out, ERROR_MESSAGE, error.message);
+        if (error.locations != null) {
+            for (SourceLocation location : error.locations) {
+                writeLengthDelimitedTag(out, ERROR_LOCATION, locationSize(location));
+                if (location.getLine() != 0) {
+                    out.writeUInt32(LOCATION_LINE, location.getLine());
+                }
+                if (location.getColumn() != 0) {
+                    out.writeUInt32(LOCATION_COLUMN, location.getColumn());
+                }
+            }
+        }
+    }
+
+    private static int locationSize(SourceLocation location) {
+        return (location.getLine() != 0 ? CodedOutputStream.computeUInt32Size(LOCATION_LINE, location.getLine()) : 0)
+                + (location.getColumn() != 0 ? CodedOutputStream.computeUInt32Size(LOCATION_COLUMN, location.getColumn()) : 0);
+    }
+
+    private static int timestampSize(Instant instant) {
+        return (instant.getEpochSecond() != 0 ? CodedOutputStream.computeInt64Size(TIMESTAMP_SECONDS, instant.getEpochSecond()) : 0)
+                + (instant.getNano() != 0 ? CodedOutputStream.computeInt32Size(TIMESTAMP_NANOS, instant.getNano()) : 0);
+    }
+
+    private static void writeTimestamp(CodedOutputStream out, Instant instant) throws IOException {
+        if (instant.getEpochSecond() != 0) {
+            out.writeInt64(TIMESTAMP_SECONDS, instant.getEpochSecond());
+        }
+        if (instant.getNano() != 0) {
+            out.writeInt32(TIMESTAMP_NANOS, instant.getNano());
+        }
+    }
+
+    private static int lengthDelimitedSize(int fieldNumber, int length) {
+        return CodedOutputStream.computeTagSize(fieldNumber) + CodedOutputStream.computeUInt32SizeNoTag(length) + length;
+    }
+
+    private static void writeLengthDelimitedTag(CodedOutputStream out, int fieldNumber, int length) throws IOException {
+        out.writeTag(fieldNumber, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        out.writeUInt32NoTag(length);
+    }
+
+    // proto3 does not write empty strings and zeros, other than in a oneof.
+
+    private static int stringSize(int fieldNumber, String value) {
+        return value.isEmpty() ? 0 : CodedOutputStream.computeStringSize(fieldNumber, value);
+    }
+
+    private static void writeString(CodedOutputStream out, int fieldNumber, String value) throws IOException {
+        if (!value.isEmpty()) {
+            out.writeString(fieldNumber, value);
+        }
+    }
+
+    private static int bytesSize(int fieldNumber, ByteString value) {
+        return value.isEmpty() ? 0 : CodedOutputStream.computeBytesSize(fieldNumber, value);
+    }
+
+    private static void writeBytes(CodedOutputStream out, int fieldNumber, ByteString value) throws IOException {
+        if (!value.isEmpty()) {
+            out.writeBytes(fieldNumber, value);
+        }
+    }
+
+    private static int uint64Size(int fieldNumber, long value) {
+        return value == 0 ? 0 : CodedOutputStream.computeUInt64Size(fieldNumber, value);
+    }
+
+    private static void writeUInt64(CodedOutputStream out, int fieldNumber, long value) throws IOException {
+        if (value != 0) {
+            out.writeUInt64(fieldNumber, value);
+        }
+    }
+
+    // The same output as Base64.getEncoder(), which can only encode whole arrays.
+    private static int encodeBase64(byte[] source, int length, byte[] destination) {
+        int in = 0;
+        int out = 0;
+        final int whole = length - length % 3;
+        while (in < whole) {
+            final int bits = (source[in++] & 0xFF) << 16 | (source[in++] & 0xFF) << 8 | (source[in++] & 0xFF);
+            destination[out++] = base64Alphabet[bits >>> 18];
+            destination[out++] = base64Alphabet[(bits >>> 12) & 0x3F];
+            destination[out++] = base64Alphabet[(bits >>> 6) & 0x3F];
+            destination[out++] = base64Alphabet[bits & 0x3F];
+        }
+        if (in < length) {
+            final int first = source[in++] & 0xFF;
+            destination[out++] = base64Alphabet[first >>> 2];
+            if (in == length) {
+                destination[out++] = base64Alphabet[(first << 4) & 0x3F];
+                destination[out++] = '=';
+            } else {
+                final int second = source[in] & 0xFF;
+                destination[out++] = base64Alphabet[(first << 4) & 0x3F | second >>> 4];
+                destination[out++] = base64Alphabet[(second << 2) & 0x3F];
+            }
+            destination[out++] = '=';
+        }
+        return out;
+    }
+
+    private static final class Buffers {
+        private int[] sizes = new int[64];
+        private byte[] wire = new byte[1024];
+        private byte[] base64 = new byte[1368];
+
+        int[] sizes(int capacity) {
+            if (sizes.length < capacity) {
+                sizes = new int[Math.max(capacity, 2 * sizes.length)];
+            }
+            return sizes;
+        }
+
+        byte[] wire(int size) {
+            if (wire.length < size) {
+                wire = new byte[Math.max(size, 2 * wire.length)];
+            }
+            return wire;
+        }
+
+        byte[] base64(int size) {
+            if (base64.length < size) {
+                base64 = new byte[Math.max(size, 2 * base64.length)];
+            }
+            return base64;
+        }
+
+        // Drops buffers grown by an unusually large trace, so that they are not held by the thread.
+        void release() {
+            if (4 * sizes.length > MAX_RETAINED_BYTES) {
+                sizes = new int[64];
+            }
+            if (wire.length > MAX_RETAINED_BYTES) {
+                wire = new byte[1024];
+            }
+            if (base64.length > MAX_RETAINED_BYTES) {
+                base64 = new byte[1368];
+            }
+        }
+    }
+}
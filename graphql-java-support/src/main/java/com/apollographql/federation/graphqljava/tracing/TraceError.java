@@ -0,0 +1,49 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import graphql.GraphQLError;
+import graphql.language.SourceLocation;
+import mdg.engine.proto.Reports;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The parts of a {@link GraphQLError} that end up in a trace.
+ */
+final class TraceError {
+    final String message;
+    final @Nullable List<SourceLocation> locations;
+
+    private TraceError(String message, @Nullable List<SourceLocation> locations) {
+        this.message = message;
+        this.locations = locations;
+    }
+
+    /**
+     * @param fallbackLocation the location to report if the error has none, e.g. where the
+     *                         failing field appears in the operation
+     */
+    @NotNull
+    static TraceError of(GraphQLError error, @Nullable SourceLocation fallbackLocation) {
+        final List<SourceLocation> locations = error.getLocations();
+        return new TraceError(
+                error.getMessage(),
+                (locations == null || locations.isEmpty()) && fallbackLocation != null
+                        ? Collections.singletonList(fallbackLocation)
+                        : locations);
+    }
+
+    void addTo(Reports.Trace.Node.Builder builder) {
+        final Reports.Trace.Error.Builder errorBuilder = builder.addErrorBuilder()
+                .setMessage(message);
+        if (locations != null) {
+            for (SourceLocation location : locations) {
+                errorBuilder.addLocationBuilder()
+                        .setColumn(location.getColumn())
+                        .setLine(location.getLine());
+            }
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import graphql.language.Document;
+import mdg.engine.proto.Reports;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Sends the traces of {@link FederatedTracingInstrumentation} to a {@link TraceSink} in the
+ * background, e.g. to collect traces from a subgraph that is not behind a gateway.
+ * <p>
+ * Request threads only put finished traces into a bounded lock-free buffer; if the buffer is full,
+ * because the sink cannot keep up, the trace is dropped and counted. A single background thread
+ * batches the buffered traces by operation into {@code FullTracesReport}s, and sends each batch
+ * gzip-compressed once it holds the maximum number of traces, or once the oldest trace in it is a
+ * flush interval old.
+ * <p>
+ * {@link #close()} sends the remaining traces and stops the thread.
+ */
+public final class TraceExporter implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(TraceExporter.class);
+
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final int MAX_CACHED_KEYS = 1000;
+
+    // FullTracesReport
+    private static final int REPORT_HEADER = 1;
+    private static final int REPORT_TRACES_PER_QUERY = 5;
+    // Map entries
+    private static final int ENTRY_KEY = 1;
+    private static final int ENTRY_VALUE = 2;
+    // Traces
+    private static final int TRACES_TRACE = 1;
+
+    private final TraceSink sink;
+    private final byte[] header;
+    private final int maxBatchSize;
+    private final long flushIntervalNs;
+    private final MpscRingBuffer<ExportedTrace> buffer;
+    private final Thread thread;
+    private volatile boolean closed;
+    // Calls to export() that may not have seen the exporter closed yet
+    private final AtomicInteger exporting = new AtomicInteger();
+
+    // Only used by the exporter's thread: (operation name, query) -> stats report key
+    private final Map<List<String>, String> statsReportKeys = new LinkedHashMap<List<String>, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<String>, String> eldest) {
+            return size() > MAX_CACHED_KEYS;
+        }
+    };
+
+    private final LongAdder droppedTraces = new LongAdder();
+    private final LongAdder exportedTraces = new LongAdder();
+    private final LongAdder exportedReports = new LongAdder();
+    private final LongAdder failedTraces = new LongAdder();
+    private final LongAdder failedReports = new LongAdder();
+
+    private TraceExporter(Builder builder) {
+        this.sink = builder.sink;
+        this.header = builder.header.toByteArray();
+        this.maxBatchSize = builder.maxBatchSize;
+        this.flushIntervalNs = builder.flushInterval.toNanos();
+        this.buffer = new MpscRingBuffer<>(builder.capacity);
+        this.thread = new Thread(this::run, "federation-trace-exporter");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public static @NotNull Builder newBuilder(@NotNull TraceSink sink) {
+        return new Builder(sink);
+    }
+
+    /**
+     * @return the number of traces dropped because the buffer was full, or the exporter closed
+     */
+    public long getDroppedTraceCount() {
+        return droppedTraces.sum();
+    }
+
+    public long getExportedTraceCount() {
+        return exportedTraces.sum();
+    }
+
+    public long getExportedReportCount() {
+        return exportedReports.sum();
+    }
+
+    /**
+     * @return the number of traces in reports that the sink failed to send
+     */
+    public long getFailedTraceCount() {
+        return failedTraces.sum();
+    }
+
+    public long getFailedReportCount() {
+        return failedReports.sum();
+    }
+
+    /**
+     * Send the buffered traces and stop, waiting for the background thread to finish. Traces
+     * exported afterwards are dropped.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Buffer a trace, without waiting.
+     *
+     * @param document      the executed document, or null if the request did not get to execute it
+     * @param operationName the name of the executed operation
+     * @param failureKey    the stats report key to use if there is no document, and only then
+     */
+    void export(
+            @Nullable String query,
+            @Nullable Document document,
+            @Nullable String operationName,
+            @Nullable String failureKey,
+            @NotNull byte[] trace
+    ) {
+        // Announce the offer before checking whether the exporter is closed, so that the background
+        // thread, which checks in the opposite order, does not stop before it is published.
+        exporting.incrementAndGet();
+        try {
+            if (closed || !buffer.offer(new ExportedTrace(query, document, operationName, failureKey, trace))) {
+                droppedTraces.increment();
+            }
+        } finally {
+            exporting.decrementAndGet();
+        }
+    }
+
+    private void run() {
+        final Map<String, List<byte[]>> batch = new LinkedHashMap<>();
+        int batchSize = 0;
+        long batchStart = 0;
+        while (true) {
+            final ExportedTrace trace = buffer.poll();
+            if (trace != null) {
+                if (batchSize == 0) {
+                    batchStart = System.nanoTime();
+                }
+                batch.computeIfAbsent(statsReportKey(trace), key -> new ArrayList<>()).add(trace.trace);
+                if (++batchSize >= maxBatchSize) {
+                    send(batch, batchSize);
+                    batchSize = 0;
+                }
+                continue;
+            }
+
+            final boolean closed = this.closed;
+            if (batchSize > 0 && (closed || System.nanoTime() - batchStart >= flushIntervalNs)) {
+                send(batch, batchSize);
+                batchSize = 0;
+            }
+            // Offers may not have claimed slots, or not have published into them, yet.
+            if (closed && exporting.get() == 0 && buffer.isEmpty()) {
+                return;
+            }
+            LockSupport.parkNanos(this, Math.min(flushIntervalNs, MAX_PARK_NANOS));
+        }
+    }
+
+    @NotNull
+    private String statsReportKey(ExportedTrace trace) {
+        if (trace.document == null) {
+            return trace.failureKey;
+        }
+        if (trace.query == null) {
+            return StatsReportKeys.statsReportKey(trace.document, trace.operationName);
+        }
+        final List<String> cacheKey = new ArrayList<>(2);
+        cacheKey.add(trace.operationName);
+        cacheKey.add(trace.query);
+        String key = statsReportKeys.get(cacheKey);
+        if (key == null) {
+            key = StatsReportKeys.statsReportKey(trace.document, trace.operationName);
+            statsReportKeys.put(cacheKey, key);
+        }
+        return key;
+    }
+
+    private void send(Map<String, List<byte[]>> batch, int batchSize) {
+        try {
+            sink.send(encodeReport(batch));
+            exportedReports.increment();
+            exportedTraces.add(batchSize);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to export {} traces", batchSize, e);
+            failedReports.increment();
+            failedTraces.add(batchSize);
+        }
+        batch.clear();
+    }
+
+    // Writes the FullTracesReport from the serialized traces, without parsing them.
+    @NotNull
+    private byte[] encodeReport(Map<String, List<byte[]>> batch) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            final CodedOutputStream out = CodedOutputStream.newInstance(gzip);
+            out.writeTag(REPORT_HEADER, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            out.writeUInt32NoTag(header.length);
+            out.writeRawBytes(header);
+
+            for (Map.Entry<String, List<byte[]>> entry : batch.entrySet()) {
+                int tracesSize = 0;
+                for (byte[] trace : entry.getValue()) {
+                    tracesSize += lengthDelimitedSize(TRACES_TRACE, trace.length);
+                }
+                final int entrySize = CodedOutputStream.computeStringSize(ENTRY_KEY, entry.getKey())
+                        + lengthDelimitedSize(ENTRY_VALUE, tracesSize);
+
+                out.writeTag(REPORT_TRACES_PER_QUERY, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                out.writeUInt32NoTag(entrySize);
+                out.writeString(ENTRY_KEY, entry.getKey());
+                out.writeTag(ENTRY_VALUE, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                out.writeUInt32NoTag(tracesSize);
+                for (byte[] trace : entry.getValue()) {
+                    out.writeTag(TRACES_TRACE, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                    out.writeUInt32NoTag(trace.length);
+                    out.writeRawBytes(trace);
+                }
+            }
+            out.flush();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static int lengthDelimitedSize(int fieldNumber, int length) {
+        return CodedOutputStream.computeTagSize(fieldNumber) + CodedOutputStream.computeUInt32SizeNoTag(length) + length;
+    }
+
+    private static final class ExportedTrace {
+        private final @Nullable String query;
+        private final @Nullable Document document;
+        private final @Nullable String operationName;
+        private final String failureKey;
+        private final byte[] trace;
+
+        private ExportedTrace(@Nullable String query, @Nullable Document document, @Nullable String operationName,
+                              String failureKey, byte[] trace) {
+            this.query = query;
+            this.document = document;
+            this.operationName = operationName;
+            this.failureKey = failureKey;
+            this.trace = trace;
+        }
+    }
+
+    public static class Builder {
+        private final TraceSink sink;
+        private Reports.ReportHeader header = Reports.ReportHeader.newBuilder()
+                .setAgentVersion("federation-jvm")
+                .build();
+        private int capacity = 4096;
+        private int maxBatchSize = 1024;
+        private Duration flushInterval = Duration.ofSeconds(5);
+
+        private Builder(@NotNull TraceSink sink) {
+            this.sink = sink;
+        }
+
+        /**
+         * @param header the header of every report, which should at least set an agent version
+         */
+        public @NotNull Builder header(@NotNull Reports.ReportHeader header) {
+            this.header = header;
+            return this;
+        }
+
+        /**
+         * @param capacity how many traces to buffer before dropping them, 4096 by default (rounded up
+         *                 to a power of 2)
+         */
+        public @NotNull Builder capacity(int capacity) {
+            if (capacity <= 0) {
+                throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+            }
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * @param maxBatchSize the maximum number of traces per report, 1024 by default
+         */
+        public @NotNull Builder maxBatchSize(int maxBatchSize) {
+            if (maxBatchSize <= 0) {
+                throw new IllegalArgumentException("Maximum batch size must be positive: " + maxBatchSize);
+            }
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /**
+         * @param flushInterval how long traces may wait for their batch to fill, 5 seconds by
+         *                      default
+         */
+        public @NotNull Builder flushInterval(@NotNull Duration flushInterval) {
+            if (flushInterval.isNegative() || flushInterval.isZero()) {
+                throw new IllegalArgumentException("Flush interval must be positive: " + flushInterval);
+            }
+            this.flushInterval = flushInterval;
+            return this;
+        }
+
+        /**
+         * Start an exporter, with its background thread.
+         */
+        public @NotNull TraceExporter build() {
+            return new TraceExporter(this);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import mdg.engine.proto.Reports;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * A read-only view of the nodes of a finished trace. Nodes are identified by handles in
+ * {@code [0, capacity())}, so that converting them needs no per-node objects.
+ */
+interface TraceNodes {
+    int NONE = -1;
+
+    int root();
+
+    /**
+     * @return an upper bound for the node handles
+     */
+    int capacity();
+
+    /**
+     * @return the node's first child, or {@link #NONE}
+     */
+    int firstChild(int node);
+
+    /**
+     * @return the node's next sibling, in the order the nodes were recorded, or {@link #NONE}
+     */
+    int nextSibling(int node);
+
+    /**
+     * @return the node's index in its parent list, or -1 if it is not a list item
+     */
+    int index(int node);
+
+    /**
+     * @return the node's field, or null if it is not a resolved field
+     */
+    @Nullable
+    TracedField field(int node);
+
+    /**
+     * @return the node's response name, if the field was aliased
+     */
+    @Nullable
+    String alias(int node);
+
+    long startTime(int node);
+
+    long endTime(int node);
+
+    @NotNull
+    List<TraceError> errors(int node);
+
+    @NotNull
+    default Reports.Trace.Node toProto() {
+        return toProto(root());
+    }
+
+    @NotNull
+    default Reports.Trace.Node toProto(int node) {
+        final Reports.Trace.Node.Builder builder = Reports.Trace.Node.newBuilder();
+        if (index(node) >= 0) {
+            builder.setIndex(index(node));
+        }
+        final TracedField field = field(node);
+        if (field != null) {
+            builder.setStartTime(startTime(node))
+                    .setEndTime(endTime(node))
+                    .setParentType(field.parentType)
+                    .setType(field.type);
+            // set originalFieldName only when a field alias was used
+            final String alias = alias(node);
+            if (alias != null) {
+                builder.setResponseName(alias).setOriginalFieldName(field.fieldName);
+            } else {
+                builder.setResponseName(field.fieldName);
+            }
+        }
+        for (TraceError error : errors(node)) {
+            error.addTo(builder);
+        }
+        for (int child = firstChild(node); child != NONE; child = nextSibling(child)) {
+            builder.addChild(toProto(child));
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,44 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import graphql.GraphQLError;
+import graphql.execution.ExecutionStepInfo;
+import graphql.language.SourceLocation;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Records the fields of a single trace while the operation executes. Fields may be recorded
+ * concurrently from any thread.
+ */
+interface TraceRecorder {
+    /**
+     * Record the timing and errors of a resolved field.
+     *
+     * @param field         the field's strings, from the schema's {@link TracedFields}
+     * @param startTime     relative to the trace's start time, in ns
+     * @param endTime       relative to the trace's start time, in ns
+     * @param fieldLocation where the field appears in the operation, used for errors without a
+     *                      location
+     */
+    void recordField(
+            ExecutionStepInfo stepInfo,
+            TracedField field,
+            long startTime,
+            long endTime,
+            List<GraphQLError> errors,
+            @Nullable SourceLocation fieldLocation
+    );
+
+    /**
+     * Record an error that does not belong to any field, e.g. a parse or validation error.
+     */
+    void recordRootError(GraphQLError error);
+
+    /**
+     * Stop recording and return the recorded nodes. Nothing may be recorded afterwards.
+     */
+    @NotNull
+    TraceNodes finish();
+}
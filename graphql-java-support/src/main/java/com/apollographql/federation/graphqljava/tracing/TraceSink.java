@@ -0,0 +1,45 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Where a {@link TraceExporter} sends its reports. Sinks are only called from the exporter's
+ * thread, one report at a time.
+ */
+@FunctionalInterface
+public interface TraceSink {
+    /**
+     * @param gzippedReport a gzip-compressed {@code FullTracesReport}
+     * @throws IOException if the report could not be sent; it is counted as failed and dropped
+     */
+    void send(@NotNull byte[] gzippedReport) throws IOException;
+
+    /**
+     * @param directory an existing directory
+     * @return a sink that writes each report to a new {@code .pb.gz} file in the directory
+     */
+    @NotNull
+    static TraceSink directory(@NotNull Path directory) {
+        final AtomicLong sequence = new AtomicLong();
+        return gzippedReport -> Files.write(
+                directory.resolve("traces-" + System.currentTimeMillis() + "-" + sequence.incrementAndGet() + ".pb.gz"),
+                gzippedReport);
+    }
+
+    /**
+     * @param endpoint the URL to POST reports to
+     * @param apiKey   the value of the {@code X-Api-Key} header, if any
+     * @return a sink that POSTs each report, failing on any status other than 2xx
+     */
+    @NotNull
+    static TraceSink http(@NotNull URL endpoint, @Nullable String apiKey) {
+        return new HttpTraceSink(endpoint, apiKey);
+    }
+}
@@ -0,0 +1,291 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import graphql.GraphQLError;
+import graphql.execution.ExecutionPath;
+import graphql.execution.ExecutionStepInfo;
+import graphql.language.SourceLocation;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Records the fields of a single trace into a tree that fields resolving on different threads can
+ * add to without taking locks. Nodes are claimed per path with {@link ConcurrentMap#putIfAbsent},
+ * and children and errors are pushed onto per-node lists with a compare-and-set.
+ * <p>
+ * No protobuf objects are created while recording; the nodes are only converted once execution
+ * has completed.
+ * <p>
+ * The ancestors of a recorded field are created along with it if they were not recorded, e.g.
+ * because they were trivial or fast. Their strings come from the field's {@link ExecutionStepInfo}
+ * parents, and as their fetch was not timed, they are given the start time of the descendant that
+ * created them as both start and end time.
+ */
+final class TraceTree implements TraceRecorder {
+    private final TracedFields tracedFields;
+    private final Node root = new Node(-1);
+    private final ConcurrentMap<ExecutionPath, Node> nodesByPath = new ConcurrentHashMap<>();
+    private volatile boolean finalized;
+
+    TraceTree(TracedFields tracedFields) {
+        this.tracedFields = tracedFields;
+        nodesByPath.put(ExecutionPath.rootPath(), root);
+    }
+
+    @Override
+    public void recordField(
+            ExecutionStepInfo stepInfo,
+            TracedField field,
+            long startTime,
+            long endTime,
+            List<GraphQLError> errors,
+            @Nullable SourceLocation fieldLocation
+    ) {
+        checkNotFinalized();
+        final Node node = getOrCreateNode(stepInfo.getPath(), stepInfo.getParent(), startTime);
+        node.startTime = startTime;
+        node.endTime = endTime;
+        node.field = field;
+        final String responseName = stepInfo.getResultKey();
+        if (!field.fieldName.equals(responseName)) {
+            node.alias = responseName;
+        }
+
+        for (GraphQLError error : errors) {
+            node.addError(new ErrorRecord(TraceError.of(error, fieldLocation)));
+        }
+    }
+
+    @Override
+    public void recordRootError(GraphQLError error) {
+        checkNotFinalized();
+        root.addError(new ErrorRecord(TraceError.of(error, null)));
+    }
+
+    @NotNull
+    @Override
+    public TraceNodes finish() {
+        finalized = true;
+        return new Nodes(root, nodesByPath.size());
+    }
+
+    private void checkNotFinalized() {
+        if (finalized) {
+            throw new IllegalStateException("Cannot record into a trace after protobuf conversion.");
+        }
+    }
+
+    /**
+     * Get the node for the given path (creating it and its ancestors if needed).
+     *
+     * @param parentInfo the step info of the parent of the field at {@code path}, to fill in
+     *                   ancestors that were not recorded
+     * @param startTime  the start time of the recorded field, given to those ancestors
+     */
+    @NotNull
+    private Node getOrCreateNode(ExecutionPath path, @Nullable ExecutionStepInfo parentInfo, long startTime) {
+        // Fast path for when the node already exists, which includes the root.
+        final Node existing = nodesByPath.get(path);
+        if (existing != null) {
+            return existing;
+        }
+
+        final ExecutionPath parentPath = path.getParent();
+        final Node parent;
+        if (parentPath.isRootPath() || parentInfo == null) {
+            parent = getOrCreateNode(parentPath, null, startTime);
+        } else {
+            parent = getOrCreateAncestor(parentPath, parentInfo, startTime);
+        }
+        final Node created = new Node(path.isListSegment() ? path.getSegmentIndex() : -1);
+        final Node raced = nodesByPath.putIfAbsent(path, created);
+        if (raced != null) {
+            return raced;
+        }
+        parent.addChild(created);
+        return created;
+    }
+
+    /**
+     * Get the node of an ancestor of a recorded field, filling it in from its step info if it was
+     * not recorded itself.
+     *
+     * @param stepInfo the step info of the object at {@code path}: the object field's, or for list
+     *                 items that of the list field, with the item's path
+     */
+    @NotNull
+    private Node getOrCreateAncestor(ExecutionPath path, ExecutionStepInfo stepInfo, long startTime) {
+        final Node existing = nodesByPath.get(path);
+        if (existing != null) {
+            return existing;
+        }
+        if (path.isListSegment()) {
+            // List items have no field of their own; the item's step info is that of the list field.
+            return getOrCreateNode(path, stepInfo, startTime);
+        }
+
+        final Node parent = getOrCreateNode(path.getParent(), stepInfo.getParent(), startTime);
+        final Node created = new Node(-1);
+        created.field = tracedFields.get(stepInfo);
+        if (!created.field.fieldName.equals(path.getSegmentName())) {
+            created.alias = path.getSegmentName();
+        }
+        created.startTime = startTime;
+        created.endTime = startTime;
+        final Node raced = nodesByPath.putIfAbsent(path, created);
+        if (raced != null) {
+            return raced;
+        }
+        parent.addChild(created);
+        return created;
+    }
+
+    private static final class Node {
+        private static final AtomicReferenceFieldUpdater<Node, Node> lastChildUpdater =
+                AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "lastChild");
+        private static final AtomicReferenceFieldUpdater<Node, ErrorRecord> lastErrorUpdater =
+                AtomicReferenceFieldUpdater.newUpdater(Node.class, ErrorRecord.class, "lastError");
+
+        // The index in the parent list, or -1 for the root and field nodes.
+        private final int index;
+
+        // Written once by the thread completing the field. Execution only completes after all of
+        // its fields do, so they are visible by the time the tree is converted.
+        private TracedField field;
+        private String alias;
+        private long startTime;
+        private long endTime;
+
+        private volatile Node lastChild;
+        private Node previousSibling;
+        private volatile ErrorRecord lastError;
+
+        private Node(int index) {
+            this.index = index;
+        }
+
+        private void addChild(Node child) {
+            Node last;
+            do {
+                last = lastChild;
+                child.previousSibling = last;
+            } while (!lastChildUpdater.compareAndSet(this, last, child));
+        }
+
+        private void addError(ErrorRecord error) {
+            ErrorRecord last;
+            do {
+                last = lastError;
+                error.previous = last;
+            } while (!lastErrorUpdater.compareAndSet(this, last, error));
+        }
+    }
+
+    private static final class ErrorRecord {
+        private final TraceError error;
+        private ErrorRecord previous;
+
+        private ErrorRecord(TraceError error) {
+            this.error = error;
+        }
+    }
+
+    /**
+     * Numbers the nodes of a finished tree, linking children in the order they were recorded.
+     */
+    private static final class Nodes implements TraceNodes {
+        private final Node[] nodes;
+        private final int[] firstChild;
+        private final int[] nextSibling;
+        private int count;
+
+        private Nodes(Node root, int capacity) {
+            nodes = new Node[capacity];
+            firstChild = new int[capacity];
+            nextSibling = new int[capacity];
+            number(root);
+        }
+
+        private int number(Node node) {
+            final int id = count++;
+            nodes[id] = node;
+            // The children are newest first, so prepending each one restores the recorded order.
+            int first = NONE;
+            for (Node child = node.lastChild; child != null; child = child.previousSibling) {
+                final int childId = number(child);
+                nextSibling[childId] = first;
+                first = childId;
+            }
+            firstChild[id] = first;
+            return id;
+        }
+
+        @Override
+        public int root() {
+            return 0;
+        }
+
+        @Override
+        public int capacity() {
+            return count;
+        }
+
+        @Override
+        public int firstChild(int node) {
+            return firstChild[node];
+        }
+
+        @Override
+        public int nextSibling(int node) {
+            return nextSibling[node];
+        }
+
+        @Override
+        public int index(int node) {
+            return nodes[node].index;
+        }
+
+        @Nullable
+        @Override
+        public TracedField field(int node) {
+            return nodes[node].field;
+        }
+
+        @Nullable
+        @Override
+        public String alias(int node) {
+            return nodes[node].alias;
+        }
+
+        @Override
+        public long startTime(int node) {
+            return nodes[node].startTime;
+        }
+
+        @Override
+        public long endTime(int node) {
+            return nodes[node].endTime;
+        }
+
+        @NotNull
+        @Override
+        public List<TraceError> errors(int node) {
+            final ErrorRecord last = nodes[node].lastError;
+            if (last == null) {
+                return Collections.emptyList();
+            }
+            final List<TraceError> errors = new ArrayList<>();
+            for (ErrorRecord error = last; error != null; error = error.previous) {
+                errors.add(error.error);
+            }
+            Collections.reverse(errors);
+            return errors;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import com.google.protobuf.ByteString;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * What traces say about a field of a schema, computed once per schema: the name of its parent type,
+ * its name and the printed type, each also as a UTF-8 {@link ByteString} to encode.
+ */
+final class TracedField {
+    final String parentType;
+    final String fieldName;
+    final String type;
+    final ByteString parentTypeBytes;
+    final ByteString fieldNameBytes;
+    final ByteString typeBytes;
+    // Whether the field's unwrapped type is a scalar or enum, so that nothing below it is traced.
+    final boolean leaf;
+
+    TracedField(@NotNull ByteString parentType, @NotNull ByteString fieldName, @NotNull ByteString type, boolean leaf) {
+        this.parentType = parentType.toStringUtf8();
+        this.fieldName = fieldName.toStringUtf8();
+        this.type = type.toStringUtf8();
+        this.parentTypeBytes = parentType;
+        this.fieldNameBytes = fieldName;
+        this.typeBytes = type;
+        this.leaf = leaf;
+    }
+}
@@ -0,0 +1,99 @@
+package com.apollographql.federation.graphqljava.tracing;
+
+import com.google.protobuf.ByteString;
+import graphql.execution.ExecutionStepInfo;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLObjectType;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.GraphQLType;
+import graphql.schema.GraphQLTypeUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static graphql.schema.GraphQLTypeUtil.simplePrint;
+
+/**
+ * The {@link TracedField}s of every field of an object type of a schema, so that tracing a field
+ * does not print any type names. Equal strings share one instance across fields.
+ * <p>
+ * Fields that are not in the schema's types, i.e. the introspection meta fields, are added on
+ * first use.
+ * <p>
+ * Tables are built once per schema and shared by everything tracing it, for as long as the schema
+ * is reachable.
+ */
+final class TracedFields {
+    private static final Map<GraphQLSchema, TracedFields> bySchema = Collections.synchronizedMap(new WeakHashMap<>());
+
+    // Parent type name -> field name -> traced field
+    private final Map<String, Map<String, TracedField>> fields = new HashMap<>();
+    private final ConcurrentMap<String, ConcurrentMap<String, TracedField>> metaFields = new ConcurrentHashMap<>();
+
+    private TracedFields() {
+    }
+
+    @NotNull
+    static TracedFields of(@NotNull GraphQLSchema schema) {
+        final TracedFields cached = bySchema.get(schema);
+        if (cached != null) {
+            return cached;
+        }
+        // Build outside of the lock, so that unrelated schemas are built concurrently.
+        final TracedFields tracedFields = build(schema);
+        final TracedFields raced = bySchema.putIfAbsent(schema, tracedFields);
+        return raced != null ? raced : tracedFields;
+    }
+
+    @NotNull
+    private static TracedFields build(GraphQLSchema schema) {
+        // Must not reference the schema, which would keep it reachable from the cache.
+        final TracedFields tracedFields = new TracedFields();
+        final Map<String, ByteString> interned = new HashMap<>();
+        for (GraphQLType type : schema.getAllTypesAsList()) {
+            if (!(type instanceof GraphQLObjectType)) {
+                continue;
+            }
+            final GraphQLObjectType objectType = (GraphQLObjectType) type;
+            final ByteString parentType = interned.computeIfAbsent(objectType.getName(), ByteString::copyFromUtf8);
+            final Map<String, TracedField> typeFields = new HashMap<>();
+            for (GraphQLFieldDefinition field : objectType.getFieldDefinitions()) {
+                typeFields.put(field.getName(), new TracedField(
+                        parentType,
+                        interned.computeIfAbsent(field.getName(), ByteString::copyFromUtf8),
+                        interned.computeIfAbsent(simplePrint(field.getType()), ByteString::copyFromUtf8),
+                        GraphQLTypeUtil.isLeaf(GraphQLTypeUtil.unwrapAll(field.getType()))));
+            }
+            tracedFields.fields.put(objectType.getName(), typeFields);
+        }
+        return tracedFields;
+    }
+
+    @NotNull
+    TracedField get(@NotNull ExecutionStepInfo stepInfo) {
+        final GraphQLObjectType fieldContainer = stepInfo.getFieldContainer();
+        final String parentType = fieldContainer != null
+                ? fieldContainer.getName()
+                : simplePrint(stepInfo.getParent().getUnwrappedNonNullType());
+        final GraphQLFieldDefinition fieldDefinition = stepInfo.getFieldDefinition();
+        final Map<String, TracedField> typeFields = fields.get(parentType);
+        if (typeFields != null) {
+            final TracedField field = typeFields.get(fieldDefinition.getName());
+            if (field != null) {
+                return field;
+            }
+        }
+        return metaFields
+                .computeIfAbsent(parentType, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(fieldDefinition.getName(), fieldName -> new TracedField(
+                        ByteString.copyFromUtf8(parentType),
+                        ByteString.copyFromUtf8(fieldName),
+                        ByteString.copyFromUtf8(simplePrint(fieldDefinition.getType())),
+                        GraphQLTypeUtil.isLeaf(GraphQLTypeUtil.unwrapAll(fieldDefinition.getType()))));
+    }
+}
@@ -1,11 +1,19 @@
 package com.apollographql.federation.graphqljava;
 
+import com.apollographql.federation.graphqljava.tracing.AdaptiveSamplingPolicy;
 import com.apollographql.federation.graphqljava.tracing.FederatedTracingInstrumentation;
+import com.apollographql.federation.graphqljava.tracing.FieldStatsInstrumentation;
 import com.apollographql.federation.graphqljava.tracing.HTTPRequestHeaders;
+import com.apollographql.federation.graphqljava.tracing.InMemoryTraceSink;
+import com.apollographql.federation.graphqljava.tracing.OperationStatsInstrumentation;
+import com.apollographql.federation.graphqljava.tracing.SamplingPolicy;
+import com.apollographql.federation.graphqljava.tracing.TraceExporter;
 import com.google.protobuf.InvalidProtocolBufferException;
 import graphql.ExecutionInput;
 import graphql.GraphQL;
 import graphql.GraphQLException;
+import graphql.execution.UnknownOperationException;
+import graphql.execution.instrumentation.ChainedInstrumentation;
 import graphql.schema.GraphQLSchema;
 import graphql.schema.idl.RuntimeWiring;
 import graphql.schema.idl.SchemaGenerator;
@@ -15,18 +23,33 @@ import mdg.engine.proto.Reports;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class FederatedTracingInstrumentationTest {
     private final String tracingSDL = TestUtils.readResource("schemas/tracing.graphql");
+    private GraphQLSchema graphQLSchema;
     private GraphQL graphql;
 
     @BeforeEach
@@ -59,7 +82,7 @@ class FederatedTracingInstrumentationTest {
                                 }))
                 .build();
 
-        GraphQLSchema graphQLSchema = new SchemaGenerator().makeExecutableSchema(typeDefs, resolvers);
+        graphQLSchema = new SchemaGenerator().makeExecutableSchema(typeDefs, resolvers);
         graphql = GraphQL.newGraphQL(graphQLSchema)
                 .instrumentation(new FederatedTracingInstrumentation())
                 .build();
@@ -76,6 +99,8 @@ class FederatedTracingInstrumentationTest {
         byte[] decoded = Base64.getDecoder().decode(ftv1);
 
         Reports.Trace trace = Reports.Trace.parseFrom(decoded);
+        // The trace is encoded by hand; it should match the serialization of the message.
+        assertArrayEquals(trace.toByteArray(), decoded);
         assertTrue(trace.getStartTime().getSeconds() > 0, "Start time has seconds");
         assertTrue(trace.getStartTime().getNanos() > 0, "Start time has nanoseconds");
         assertTrue(trace.getEndTime().getSeconds() > 0, "End time has seconds");
@@ -152,6 +177,126 @@ class FederatedTracingInstrumentationTest {
         assertEquals("listOfScalars", listOfScalars.getResponseName());
     }
 
+    @Test
+    void testTracingAsyncFields() throws InvalidProtocolBufferException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            RuntimeWiring resolvers = RuntimeWiring.newRuntimeWiring()
+                    .type("Query", builder -> builder.dataFetcher("widgets", env ->
+                            CompletableFuture.supplyAsync(() -> Collections.nCopies(500, new Object()), executor)))
+                    .type("Widget", builder -> builder
+                            .dataFetcher("foo", env -> CompletableFuture.supplyAsync(() -> "foo", executor))
+                            .dataFetcher("bar", env -> CompletableFuture.supplyAsync(() -> {
+                                throw new GraphQLException("whoops");
+                            }, executor)))
+                    .build();
+            GraphQLSchema asyncSchema = new SchemaGenerator().makeExecutableSchema(
+                    new SchemaParser().parse(tracingSDL), resolvers);
+
+            for (boolean columnar : new boolean[]{false, true}) {
+                GraphQL asyncGraphql = GraphQL.newGraphQL(asyncSchema)
+                        .instrumentation(new FederatedTracingInstrumentation(
+                                FederatedTracingInstrumentation.Options.newOptions().columnarFieldRecording(columnar)))
+                        .build();
+
+                Reports.Trace trace = traceOf(asyncGraphql.execute("{ widgets { foo bar } }").toSpecification());
+
+                Reports.Trace.Node widgets = trace.getRoot().getChild(0);
+                assertEquals(500, widgets.getChildCount());
+                Set<Integer> indexes = new HashSet<>();
+                for (Reports.Trace.Node item : widgets.getChildList()) {
+                    indexes.add(item.getIndex());
+                    assertEquals(2, item.getChildCount());
+                    for (Reports.Trace.Node field : item.getChildList()) {
+                        assertEquals("bar".equals(field.getResponseName()) ? 1 : 0, field.getErrorCount());
+                    }
+                }
+                assertEquals(500, indexes.size());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testColumnarFieldRecording() throws InvalidProtocolBufferException {
+        GraphQL columnarGraphql = GraphQL.newGraphQL(graphQLSchema)
+                .instrumentation(new FederatedTracingInstrumentation(
+                        FederatedTracingInstrumentation.Options.newOptions().columnarFieldRecording(true)))
+                .build();
+
+        String query = "{ widgets { foo, baz: bar }, listOfLists { foo }, listOfScalars }";
+        Reports.Trace.Node expected = traceOf(graphql.execute(query).toSpecification()).getRoot();
+        Reports.Trace.Node actual = traceOf(columnarGraphql.execute(query).toSpecification()).getRoot();
+        assertEquals(withoutTimings(expected), withoutTimings(actual));
+
+        Reports.Trace.Node widgets = actual.getChild(0);
+        assertTrue(widgets.getStartTime() > 0, "Field start time is greater than zero");
+        assertTrue(widgets.getEndTime() >= widgets.getStartTime(), "Field end time is after its start time");
+
+        Reports.Trace.Node invalid = traceOf(columnarGraphql.execute("{ widgets { notARealThing } }").toSpecification()).getRoot();
+        assertEquals(1, invalid.getErrorCount());
+        assertEquals(0, invalid.getChildCount());
+    }
+
+    @Test
+    void testTracedFieldsPerSchema() throws InvalidProtocolBufferException {
+        // Two schemas with the same field names but different types, traced by one instrumentation.
+        FederatedTracingInstrumentation instrumentation = new FederatedTracingInstrumentation();
+        GraphQL widgetGraphql = GraphQL.newGraphQL(graphQLSchema).instrumentation(instrumentation).build();
+        GraphQLSchema gadgetSchema = new SchemaGenerator().makeExecutableSchema(
+                new SchemaParser().parse("type Query { widgets: [Gadget] } type Gadget { foo: Int }"),
+                RuntimeWiring.newRuntimeWiring()
+                        .type("Query", builder -> builder.dataFetcher("widgets", env -> Collections.singletonList(new Object())))
+                        .type("Gadget", builder -> builder.dataFetcher("foo", env -> 7))
+                        .build());
+        GraphQL gadgetGraphql = GraphQL.newGraphQL(gadgetSchema).instrumentation(instrumentation).build();
+
+        String query = "{ __typename widgets { __typename foo } }";
+        for (int i = 0; i < 2; i++) {
+            Reports.Trace.Node widgetRoot = traceOf(widgetGraphql.execute(query).toSpecification()).getRoot();
+            Reports.Trace.Node gadgetRoot = traceOf(gadgetGraphql.execute(query).toSpecification()).getRoot();
+
+            // __typename is not part of any type's fields, so it is added to the table on first use.
+            Reports.Trace.Node typename = widgetRoot.getChild(0);
+            assertEquals("__typename", typename.getResponseName());
+            assertEquals("Query", typename.getParentType());
+            assertEquals("String!", typename.getType());
+
+            Reports.Trace.Node widgets = widgetRoot.getChild(1);
+            assertEquals("[Widget!]", widgets.getType());
+            assertEquals("Widget", widgets.getChild(0).getChild(0).getParentType());
+            assertEquals("String!", widgets.getChild(0).getChild(0).getType());
+            assertEquals("String", widgets.getChild(0).getChild(1).getType());
+
+            Reports.Trace.Node gadgets = gadgetRoot.getChild(1);
+            assertEquals("[Gadget]", gadgets.getType());
+            assertEquals("Gadget", gadgets.getChild(0).getChild(0).getParentType());
+            assertEquals("String!", gadgets.getChild(0).getChild(0).getType());
+            assertEquals("Gadget", gadgets.getChild(0).getChild(1).getParentType());
+            assertEquals("Int", gadgets.getChild(0).getChild(1).getType());
+        }
+    }
+
+    private static Reports.Trace traceOf(Map<String, Object> result) throws InvalidProtocolBufferException {
+        String ftv1 = ((Map) result.get("extensions")).get("ftv1").toString();
+        byte[] decoded = Base64.getDecoder().decode(ftv1);
+        Reports.Trace trace = Reports.Trace.parseFrom(decoded);
+        assertArrayEquals(trace.toByteArray(), decoded);
+        return trace;
+    }
+
+    private static Reports.Trace.Node withoutTimings(Reports.Trace.Node node) {
+        Reports.Trace.Node.Builder builder = node.toBuilder()
+                .clearStartTime()
+                .clearEndTime()
+                .clearChild();
+        for (Reports.Trace.Node child : node.getChildList()) {
+            builder.addChild(withoutTimings(child));
+        }
+        return builder.build();
+    }
+
     @Test
     void testTracingParseErrors() throws InvalidProtocolBufferException {
         Map<String, Object> result = graphql.execute("{ widgets { foo }").toSpecification();
@@ -220,4 +365,428 @@ class FederatedTracingInstrumentationTest {
         assertTrue(extensions instanceof Map);
         assertTrue(((Map) extensions).containsKey("ftv1"));
     }
+
+    @Test
+    void testSamplingPolicy() {
+        Map<String, Double> quotas = new HashMap<>();
+        quotas.put("Limited", 1.0);
+        GraphQL sampledGraphql = GraphQL.newGraphQL(graphQLSchema)
+                .instrumentation(new FederatedTracingInstrumentation(FederatedTracingInstrumentation.Options.newOptions()
+                        .samplingPolicy(SamplingPolicy.perOperation(quotas, 0))))
+                .build();
+
+        ExecutionInput limited = ExecutionInput.newExecutionInput("query Limited { widgets { foo } }")
+                .operationName("Limited")
+                .build();
+        // One second's worth of traces is allowed up front, then the quota is used up.
+        assertNotNull(sampledGraphql.execute(limited).toSpecification().get("extensions"));
+        assertNull(sampledGraphql.execute(limited).toSpecification().get("extensions"));
+        // Operations without a quota share the other quota, which is zero.
+        assertNull(sampledGraphql.execute("{ widgets { foo } }").toSpecification().get("extensions"));
+
+        SamplingPolicy never = SamplingPolicy.ratio(0);
+        assertFalse(never.shouldTrace(null));
+        assertTrue(SamplingPolicy.ratio(1).shouldTrace(null));
+        assertFalse(SamplingPolicy.always().and(never).shouldTrace(null));
+
+        SamplingPolicy twoPerSecond = SamplingPolicy.maxPerSecond(2);
+        assertTrue(twoPerSecond.shouldTrace("A"));
+        assertTrue(twoPerSecond.shouldTrace("B"));
+        assertFalse(twoPerSecond.shouldTrace("C"));
+
+        assertThrows(IllegalArgumentException.class, () -> SamplingPolicy.ratio(1.5));
+        assertThrows(IllegalArgumentException.class, () -> SamplingPolicy.maxPerSecond(-1));
+
+        // Only policies that measure the overhead are given it.
+        List<Long> overheads = new ArrayList<>();
+        SamplingPolicy recording = new SamplingPolicy() {
+            @Override
+            public boolean shouldTrace(String operationName) {
+                return true;
+            }
+
+            @Override
+            public void traceCompleted(long durationNs, long overheadNs) {
+                overheads.add(overheadNs);
+            }
+        };
+        assertFalse(recording.isOverheadMeasured());
+        GraphQL recordedGraphql = GraphQL.newGraphQL(graphQLSchema)
+                .instrumentation(new FederatedTracingInstrumentation(FederatedTracingInstrumentation.Options.newOptions()
+                        .samplingPolicy(recording)))
+                .build();
+        recordedGraphql.execute("{ widgets { foo } }");
+        assertEquals(Collections.singletonList(0L), overheads);
+
+        SamplingPolicy adaptive = AdaptiveSamplingPolicy.newBuilder().build();
+        assertTrue(adaptive.isOverheadMeasured());
+        assertTrue(recording.and(adaptive).isOverheadMeasured());
+        recordedGraphql = GraphQL.newGraphQL(graphQLSchema)
+                .instrumentation(new FederatedTracingInstrumentation(FederatedTracingInstrumentation.Options.newOptions()
+                        .samplingPolicy(recording.and(adaptive))))
+                .build();
+        recordedGraphql.execute("{ widgets { foo } }");
+        assertEquals(2, overheads.size());
+        assertTrue(overheads.get(1) > 0);
+    }
+
+    @Test
+    void testAdaptiveSamplingPolicy() {
+        AdaptiveSamplingPolicy policy = AdaptiveSamplingPolicy.newBuilder()
+                .maxOverheadRatio(0.1)
+                .maxP99Latency(Duration.ofMillis(1))
+                .minRate(0.2)
+                .recoveryStep(0.1)
+                .evaluationInterval(Duration.ZERO)
+                .build();
+        assertEquals(1, policy.getEffectiveRate());
+
+        // Too much overhead
+        policy.traceCompleted(1000, 500);
+        assertEquals(0.5, policy.getEffectiveRate(), 1e-9);
+        assertEquals(0.5, policy.getObservedOverheadRatio(), 1e-9);
+        // Too slow
+        policy.traceCompleted(Duration.ofMillis(10).toNanos(), 0);
+        assertEquals(0.25, policy.getEffectiveRate(), 1e-9);
+        assertTrue(policy.getObservedP99LatencyNs() >= Duration.ofMillis(10).toNanos());
+        // Never below the minimum rate
+        policy.traceCompleted(1000, 500);
+        assertEquals(0.2, policy.getEffectiveRate(), 1e-9);
+        // Gradual recovery
+        policy.traceCompleted(1000, 10);
+        assertEquals(0.3, policy.getEffectiveRate(), 1e-9);
+        for (int i = 0; i < 10; i++) {
+            policy.traceCompleted(1000, 10);
+        }
+        assertEquals(1, policy.getEffectiveRate());
+        assertTrue(policy.shouldTrace(null));
+
+        GraphQL adaptiveGraphql = GraphQL.newGraphQL(graphQLSchema)
+                .instrumentation(new FederatedTracingInstrumentation(FederatedTracingInstrumentation.Options.newOptions()
+                        .samplingPolicy(policy)))
+                .build();
+        assertNotNull(adaptiveGraphql.execute("{ widgets { foo } }").toSpecification().get("extensions"));
+        assertTrue(policy.getObservedOverheadRatio() > 0);
+    }
+
+    @Test
+    void testAdaptiveSamplingPolicyRecoversWithoutTraces() {
+        AdaptiveSamplingPolicy policy = AdaptiveSamplingPolicy.newBuilder()
+                .maxOverheadRatio(0.1)
+                .minRate(0)
+                .backoffFactor(0)
+                .recoveryStep(0.5)
+                .evaluationInterval(Duration.ZERO)
+                .build();
+        policy.traceCompleted(1000, 500);
+        assertEquals(0, policy.getEffectiveRate());
+
+        // Nothing is traced at a rate of 0, yet incoming requests still let the rate recover.
+        policy.shouldTrace(null);
+        assertEquals(0.5, policy.getEffectiveRate(), 1e-9);
+        policy.shouldTrace(null);
+        assertEquals(1, policy.getEffectiveRate());
+        assertTrue(policy.shouldTrace(null));
+        assertEquals(0.5, policy.getObservedOverheadRatio(), 1e-9);
+    }
+
+    @Test
+    void testFieldStats() {
+        FieldStatsInstrumentation fieldStats = new FieldStatsInstrumentation();
+        GraphQL statsGraphql = GraphQL.newGraphQL(graphQLSchema)
+                .instrumentation(fieldStats)
+                .build();
+        statsGraphql.execute("{ widgets { foo, baz: bar } }");
+        statsGraphql.execute("{ widgets { foo, bar } }");
+
+        Reports.QueryStats stats = fieldStats.snapshot();
+        assertEquals(1, stats.getTypeStatsWithContextCount());
+        Map<String, Reports.TypeStat> types = stats.getTypeStatsWithContext(0).getPerTypeStatMap();
+        assertEquals(1, types.get("Query").getPerFieldStatCount());
+
+        Reports.FieldStat widgets = types.get("Query").getPerFieldStatOrThrow("widgets");
+        assertEquals("[Widget!]", widgets.getReturnType());
+        assertEquals(2, widgets.getCount());
+        assertEquals(0, widgets.getErrorsCount());
+        assertEquals(2, histogramCount(widgets.getLatencyCountList()));
+
+        Reports.FieldStat foo = types.get("Widget").getPerFieldStatOrThrow("foo");
+        assertEquals("String", foo.getReturnType());
+        assertEquals(4, foo.getCount());
+        assertEquals(4, histogramCount(foo.getLatencyCountList()));
+
+        // Aliases are counted under the field name.
+        Reports.FieldStat bar = types.get("Widget").getPerFieldStatOrThrow("bar");
+        assertEquals(4, bar.getCount());
+        assertEquals(4, bar.getErrorsCount());
+        assertEquals(2, bar.getRequestsWithErrorsCount());
+
+        // Snapshots reset the stats.
+        assertEquals(0, fieldStats.snapshot().getTypeStatsWithContext(0).getPerTypeStatCount());
+    }
+
+    // Sums a latency_count histogram, in which negative numbers are runs of empty buckets.
+    private static long histogramCount(List<Long> latencyCount) {
+        long count = 0;
+        for (long bucketCount : latencyCount) {
+            if (bucketCount > 0) {
+                count += bucketCount;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    void testTraceExporter() {
+        InMemoryTraceSink sink = new InMemoryTraceSink();
+        TraceExporter exporter = TraceExporter.newBuilder(sink)
+                .flushInterval(Duration.ofMinutes(1))
+                .build();
+        GraphQL exportingGraphql = GraphQL.newGraphQL(graphQLSchema)
+                .instrumentation(new FederatedTracingInstrumentation(FederatedTracingInstrumentation.Options.newOptions()
+                        .exporter(exporter)))
+                .build();
+
+        exportingGraphql.execute("query Widgets { widgets { foo } }");
+        // Traced for the exporter, but not included in the response without the header.
+        HTTPRequestHeaders noHeaders = name -> null;
+        Map<String, Object> result = exportingGraphql.execute(ExecutionInput.newExecutionInput("query Widgets { widgets { foo } }")
+                .context(noHeaders)
+                .build()).toSpecification();
+        assertNull(result.get("extensions"));
+        exportingGraphql.execute("{ widgets { foo }");
+
+        exporter.close();
+        assertEquals(3, exporter.getExportedTraceCount());
+        assertEquals(1, exporter.getExportedReportCount());
+        assertEquals(0, exporter.getDroppedTraceCount());
+
+        Reports.FullTracesReport report = sink.getReports().get(0);
+        assertEquals("federation-jvm", report.getHeader().getAgentVersion());
+        Map<String, Reports.Traces> tracesPerQuery = report.getTracesPerQueryMap();
+        assertEquals(2, tracesPerQuery.get("# Widgets\nquery Widgets {widgets {foo}}").getTraceCount());
+        Reports.Trace parseFailure = tracesPerQuery.get("## GraphQLParseFailure").getTrace(0);
+        assertEquals(1, parseFailure.getRoot().getErrorCount());
+
+        // Traces are dropped once the exporter is closed.
+        exportingGraphql.execute("query Widgets { widgets { foo } }");
+        assertEquals(1, exporter.getDroppedTraceCount());
+    }
+
+    @Test
+    void testTraceExporterClosedWhileExporting() throws Exception {
+        TraceExporter exporter = TraceExporter.newBuilder(new InMemoryTraceSink()).build();
+        GraphQL exportingGraphql = GraphQL.newGraphQL(graphQLSchema)
+                .instrumentation(new FederatedTracingInstrumentation(FederatedTracingInstrumentation.Options.newOptions()
+                        .exporter(exporter)))
+                .build();
+
+        // Every trace is either exported or dropped, even when exported while the exporter closes.
+        AtomicInteger executed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 200; j++) {
+                        exportingGraphql.execute("{ widgets { foo } }");
+                        executed.incrementAndGet();
+                    }
+                }));
+            }
+            while (executed.get() < 100) {
+                Thread.yield();
+            }
+            exporter.close();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(800, exporter.getExportedTraceCount() + exporter.getDroppedTraceCount());
+    }
+
+    @Test
+    void testOperationStats() {
+        OperationStatsInstrumentation operationStats = OperationStatsInstrumentation.newBuilder()
+                .maxOperations(3)
+                .build();
+        GraphQL statsGraphql = GraphQL.newGraphQL(graphQLSchema)
+                .instrumentation(operationStats)
+                .build();
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put("apollographql-client-name", "web");
+        headers.put("apollographql-client-version", "1.0");
+        HTTPRequestHeaders context = headers::get;
+        // Both queries have the same signature, which drops aliases.
+        statsGraphql.execute(ExecutionInput.newExecutionInput("query Widgets { widgets { foo } }").context(context).build());
+        statsGraphql.execute(ExecutionInput.newExecutionInput("query Widgets { widgets { alias: foo } }").context(context).build());
+        statsGraphql.execute("query Widgets { widgets { foo } }");
+        statsGraphql.execute("{ widgets { foo }");
+
+        Reports.StatsReport report = operationStats.snapshot();
+        assertTrue(report.getEndTime().getSeconds() >= report.getStartTime().getSeconds());
+        Reports.QueryStats widgets = report.getPerQueryOrThrow("# Widgets\nquery Widgets {widgets {foo}}");
+        assertEquals(2, widgets.getQueryStatsWithContextCount());
+        for (Reports.ContextualizedQueryLatencyStats stats : widgets.getQueryStatsWithContextList()) {
+            Reports.QueryLatencyStats latencyStats = stats.getQueryLatencyStats();
+            if (stats.getContext().getClientName().equals("web")) {
+                assertEquals("1.0", stats.getContext().getClientVersion());
+                assertEquals(2, latencyStats.getRequestCount());
+                assertEquals(0, latencyStats.getRequestsWithErrorsCount());
+                assertEquals(2, histogramCount(latencyStats.getLatencyCountList()));
+            } else {
+                assertEquals("", stats.getContext().getClientName());
+                assertEquals(1, latencyStats.getRequestCount());
+            }
+        }
+        assertEquals(1, report.getPerQueryOrThrow("## GraphQLParseFailure").getQueryStatsWithContextCount());
+        assertEquals(0, operationStats.getEvictionCount());
+
+        // Snapshots reset the stats.
+        assertEquals(0, operationStats.snapshot().getPerQueryCount());
+
+        // A fourth group evicts the least recently used one, whose stats are still reported.
+        statsGraphql.execute(ExecutionInput.newExecutionInput("query Widgets { widgets { foo } }").context(context).build());
+        statsGraphql.execute("query Widgets { widgets { foo } }");
+        statsGraphql.execute("{ widgets { foo }");
+        statsGraphql.execute("{ listOfScalars }");
+        assertEquals(1, operationStats.getEvictionCount());
+        report = operationStats.snapshot();
+        assertEquals(3, report.getPerQueryCount());
+        widgets = report.getPerQueryOrThrow("# Widgets\nquery Widgets {widgets {foo}}");
+        assertEquals(2, widgets.getQueryStatsWithContextCount());
+        for (Reports.ContextualizedQueryLatencyStats stats : widgets.getQueryStatsWithContextList()) {
+            assertEquals(1, stats.getQueryLatencyStats().getRequestCount());
+            assertEquals(1, histogramCount(stats.getQueryLatencyStats().getLatencyCountList()));
+        }
+        assertEquals(0, operationStats.snapshot().getPerQueryCount());
+    }
+
+    @Test
+    void testFailuresAfterValidation() {
+        InMemoryTraceSink sink = new InMemoryTraceSink();
+        TraceExporter exporter = TraceExporter.newBuilder(sink).build();
+        OperationStatsInstrumentation operationStats = OperationStatsInstrumentation.newBuilder().build();
+        GraphQL statsGraphql = GraphQL.newGraphQL(graphQLSchema)
+                .instrumentation(new ChainedInstrumentation(Arrays.asList(
+                        operationStats,
+                        new FederatedTracingInstrumentation(FederatedTracingInstrumentation.Options.newOptions()
+                                .exporter(exporter)))))
+                .build();
+
+        // Valid documents whose variables fail to coerce are keyed by their operation.
+        String query = "query Widgets($show: Boolean!) { widgets { foo @include(if: $show) } }";
+        assertFalse(statsGraphql.execute(query).getErrors().isEmpty());
+        // graphql-java fails requests for unknown operations before reporting any result.
+        assertThrows(UnknownOperationException.class, () -> statsGraphql.execute(ExecutionInput.newExecutionInput(query)
+                .operationName("Gadgets")
+                .build()));
+
+        String widgetsKey = "# Widgets\nquery Widgets($var1:Boolean!) {widgets {foo @include(if:$var1)}}";
+        Reports.StatsReport report = operationStats.snapshot();
+        assertEquals(1, report.getPerQueryCount());
+        assertEquals(1, report.getPerQueryOrThrow(widgetsKey).getQueryStatsWithContext(0).getQueryLatencyStats().getRequestsWithErrorsCount());
+
+        exporter.close();
+        Map<String, Reports.Traces> tracesPerQuery = sink.getReports().get(0).getTracesPerQueryMap();
+        assertEquals(1, tracesPerQuery.size());
+        assertEquals(1, tracesPerQuery.get(widgetsKey).getTraceCount());
+    }
+
+    @Test
+    void testSkippedFields() throws InvalidProtocolBufferException {
+        // Widget.foo uses the default, trivial data fetcher.
+        RuntimeWiring resolvers = RuntimeWiring.newRuntimeWiring()
+                .type("Query", builder -> builder.dataFetcher("widgets", env ->
+                        Collections.nCopies(2, Collections.singletonMap("foo", "hello world"))))
+                .type("Widget", builder -> builder.dataFetcher("bar", env -> {
+                    throw new GraphQLException("whoops");
+                }))
+                .build();
+        GraphQLSchema propertySchema = new SchemaGenerator().makeExecutableSchema(new SchemaParser().parse(tracingSDL), resolvers);
+
+        // Shop.widgets and Shop.featured use the default, trivial data fetcher.
+        GraphQLSchema shopSchema = new SchemaGenerator().makeExecutableSchema(new SchemaParser().parse(
+                "type Query { shop: Shop }\n" +
+                        "type Shop { widgets: [[Widget!]!] featured: Widget }\n" +
+                        "type Widget { foo: String bar: String }\n"),
+                RuntimeWiring.newRuntimeWiring()
+                        .type("Query", builder -> builder.dataFetcher("shop", env -> {
+                            Map<String, Object> widget = Collections.singletonMap("foo", "hello world");
+                            Map<String, Object> shop = new HashMap<>();
+                            shop.put("widgets", Collections.singletonList(Collections.nCopies(2, widget)));
+                            shop.put("featured", widget);
+                            return shop;
+                        }))
+                        .type("Widget", builder -> builder.dataFetcher("bar", env -> "bar"))
+                        .build());
+
+        for (boolean columnar : new boolean[]{false, true}) {
+            FederatedTracingInstrumentation.Options options = FederatedTracingInstrumentation.Options.newOptions()
+                    .columnarFieldRecording(columnar);
+
+            GraphQL skippingGraphql = GraphQL.newGraphQL(propertySchema)
+                    .instrumentation(new FederatedTracingInstrumentation(options.skipTrivialFields(true)))
+                    .build();
+            Reports.Trace.Node widgets = traceOf(skippingGraphql.execute("{ widgets { foo bar } }").toSpecification())
+                    .getRoot().getChild(0);
+            assertEquals("widgets", widgets.getResponseName());
+            assertEquals(2, widgets.getChildCount());
+            for (Reports.Trace.Node item : widgets.getChildList()) {
+                assertEquals(1, item.getChildCount());
+                assertEquals("bar", item.getChild(0).getResponseName());
+            }
+
+            // Trivial object fields whose descendants are traced are filled in, untimed.
+            GraphQL shopGraphql = GraphQL.newGraphQL(shopSchema)
+                    .instrumentation(new FederatedTracingInstrumentation(options.skipTrivialFields(true)))
+                    .build();
+            Reports.Trace.Node shop = traceOf(shopGraphql.execute("{ shop { items: widgets { bar } featured { foo bar } } }")
+                    .toSpecification()).getRoot().getChild(0);
+            assertEquals("shop", shop.getResponseName());
+            assertEquals(2, shop.getChildCount());
+            for (Reports.Trace.Node field : shop.getChildList()) {
+                assertEquals("Shop", field.getParentType());
+                assertTrue(field.getStartTime() > 0);
+                assertEquals(field.getStartTime(), field.getEndTime());
+                if (field.getResponseName().equals("items")) {
+                    assertEquals("widgets", field.getOriginalFieldName());
+                    assertEquals("[[Widget!]!]", field.getType());
+                    assertEquals(1, field.getChildCount());
+                    assertEquals(0, field.getChild(0).getIndex());
+                    assertEquals(2, field.getChild(0).getChildCount());
+                    for (Reports.Trace.Node item : field.getChild(0).getChildList()) {
+                        assertEquals(1, item.getChildCount());
+                        assertEquals("bar", item.getChild(0).getResponseName());
+                    }
+                } else {
+                    assertEquals("featured", field.getResponseName());
+                    assertEquals("Widget", field.getType());
+                    assertEquals(1, field.getChildCount());
+                    assertEquals("bar", field.getChild(0).getResponseName());
+                }
+            }
+
+            // Only fields with errors take longer than an hour.
+            GraphQL flooredGraphql = GraphQL.newGraphQL(propertySchema)
+                    .instrumentation(new FederatedTracingInstrumentation(options.minFieldDuration(Duration.ofHours(1))))
+                    .build();
+            widgets = traceOf(flooredGraphql.execute("{ widgets { foo bar } }").toSpecification()).getRoot().getChild(0);
+            // The list field itself was not recorded, but is filled in on the path to the errors.
+            assertEquals("widgets", widgets.getResponseName());
+            assertEquals("Query", widgets.getParentType());
+            assertEquals("[Widget!]", widgets.getType());
+            assertTrue(widgets.getStartTime() > 0);
+            assertEquals(2, widgets.getChildCount());
+            for (Reports.Trace.Node item : widgets.getChildList()) {
+                assertEquals(1, item.getChildCount());
+                assertEquals("bar", item.getChild(0).getResponseName());
+                assertEquals(1, item.getChild(0).getErrorCount());
+                assertTrue(item.getChild(0).getStartTime() >= widgets.getStartTime());
+            }
+        }
+    }
 }
@@ -1,7 +1,12 @@
 package com.apollographql.federation.graphqljava;
 
+import graphql.ExecutionInput;
 import graphql.ExecutionResult;
+import graphql.GraphQL;
 import graphql.Scalars;
+import graphql.schema.DataFetcher;
+import graphql.schema.FieldCoordinates;
+import graphql.schema.GraphQLCodeRegistry;
 import graphql.schema.GraphQLFieldDefinition;
 import graphql.schema.GraphQLNamedType;
 import graphql.schema.GraphQLScalarType;
@@ -14,23 +19,45 @@ import graphql.schema.idl.SchemaParser;
 import graphql.schema.idl.TypeDefinitionRegistry;
 import graphql.schema.idl.TypeRuntimeWiring;
 import graphql.schema.idl.errors.SchemaProblem;
+import org.dataloader.DataLoaderRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertIterableEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class FederationTest {
     private final String emptySDL = TestUtils.readResource("schemas/empty.graphql");
+    private final String entitiesSDL = TestUtils.readResource("schemas/entities.graphql");
     private final String interfacesSDL = TestUtils.readResource("schemas/interfaces.graphql");
     private final String isolatedSDL = TestUtils.readResource("schemas/isolated.graphql");
     private final String productSDL = TestUtils.readResource("schemas/product.graphql");
@@ -90,6 +117,13 @@ class FederationTest {
                 Federation.transform(productSDL).fetchEntities(env -> null).build());
     }
 
+    @Test
+    void testRequirementsCheckedOnBuild() {
+        // Schemas generated from SDL are only validated once built.
+        final SchemaTransformer transformer = Federation.transform(productSDL);
+        assertThrows(SchemaProblem.class, transformer::build);
+    }
+
     @Test
     void testSimpleService() {
         final GraphQLSchema federated = Federation.transform(productSDL)
@@ -122,6 +156,515 @@ class FederationTest {
         assertEquals(180, _entities.get(0).get("price"));
     }
 
+    @Test
+    void testServiceSdl() {
+        final GraphQLSchema federated = Federation.transform(printerEscapingSDL).build();
+        final ServiceSdl serviceSdl = ServiceSdl.from(federated);
+        assertNotNull(serviceSdl);
+        SchemaUtils.assertSDL(federated, serviceSdl.getSdl());
+        assertEquals(64, serviceSdl.getHash().length());
+        assertEquals(serviceSdl.getHash(), ServiceSdl.from(Federation.transform(printerEscapingSDL).build()).getHash());
+
+        final String escaped = StandardCharsets.UTF_8.decode(serviceSdl.getJsonEscapedSdl()).toString();
+        assertEquals(serviceSdl.getSdl(), jsonUnescape(escaped));
+        assertEquals("{\"data\":{\"_service\":{\"sdl\":\"" + escaped + "\"}}}",
+                StandardCharsets.UTF_8.decode(serviceSdl.getResponse()).toString());
+
+
+        // Schemas whose SDL is not served by this library have none.
+        final GraphQLSchema overridden = federated.transform(builder ->
+                builder.codeRegistry(federated.getCodeRegistry().transform(registry -> registry.dataFetcher(
+                        FieldCoordinates.coordinates(_Service.typeName, _Service.sdlFieldName),
+                        (DataFetcher<String>) env -> "type Query"))));
+        assertNull(ServiceSdl.from(overridden));
+    }
+
+    private static String jsonUnescape(String escaped) {
+        final StringBuilder unescaped = new StringBuilder(escaped.length());
+        for (int i = 0; i < escaped.length(); i++) {
+            final char c = escaped.charAt(i);
+            if (c != '\\') {
+                unescaped.append(c);
+                continue;
+            }
+            final char next = escaped.charAt(++i);
+            switch (next) {
+                case 'n':
+                    unescaped.append('\n');
+                    break;
+                case 'r':
+                    unescaped.append('\r');
+                    break;
+                case 't':
+                    unescaped.append('\t');
+                    break;
+                case 'u':
+                    unescaped.append((char) Integer.parseInt(escaped.substring(i + 1, i + 5), 16));
+                    i += 4;
+                    break;
+                default:
+                    unescaped.append(next);
+            }
+        }
+        return unescaped.toString();
+    }
+
+    @Test
+    void testServiceSdlIsSharedAcrossBuilds() {
+        final GraphQLSchema original = new SchemaGenerator().makeExecutableSchema(
+                new SchemaParser().parse("type Query { hello: String }"),
+                RuntimeWiring.newRuntimeWiring().build());
+        final ServiceSdl first = ServiceSdl.from(Federation.transform(original).build());
+        final ServiceSdl second = ServiceSdl.from(Federation.transform(original).build());
+        assertNotNull(first);
+        assertSame(first, second);
+        assertTrue(first.getSdl().contains("type Query {\n  hello: String\n}"));
+
+        // Schemas generated from a type registry share the SDL of their transformer.
+        final SchemaTransformer transformer = Federation.transform("type Query { hello: String }");
+        final ServiceSdl generated = ServiceSdl.from(transformer.build());
+        assertNotNull(generated);
+        assertSame(generated, ServiceSdl.from(transformer.build()));
+        assertEquals(first.getSdl(), generated.getSdl());
+    }
+
+    @Test
+    void testServiceSdlQuery() {
+        assertTrue(ServiceSdl.isSdlQuery("{_service{sdl}}"));
+        assertTrue(ServiceSdl.isSdlQuery("query __ApolloGetServiceDefinition__ { _service { sdl } }"));
+        assertTrue(ServiceSdl.isSdlQuery("# introspect\nquery {\n  _service {\n    sdl\n  }\n}\n"));
+        assertFalse(ServiceSdl.isSdlQuery("{ _service { sdl } other }"));
+        assertFalse(ServiceSdl.isSdlQuery("{ _service { s: sdl } }"));
+        assertFalse(ServiceSdl.isSdlQuery("mutation { _service { sdl } }"));
+        assertFalse(ServiceSdl.isSdlQuery("query($a: Int) { _service { sdl } }"));
+        // Ignored tokens only separate names, rather than being part of them.
+        assertTrue(ServiceSdl.isSdlQuery("query,Sdl,{,_service,{,sdl,},}"));
+        assertFalse(ServiceSdl.isSdlQuery("{ _ser vice { sdl } }"));
+        assertFalse(ServiceSdl.isSdlQuery("{ _service { s,dl } }"));
+        assertFalse(ServiceSdl.isSdlQuery("que ry { _service { sdl } }"));
+        assertFalse(ServiceSdl.isSdlQuery("querySdl { _service { sdl } }"));
+        assertFalse(ServiceSdl.isSdlQuery("query Get Sdl { _service { sdl } }"));
+        assertFalse(ServiceSdl.isSdlQuery("query { { _service { sdl } }"));
+        assertFalse(ServiceSdl.isSdlQuery("{ _service { sdl } } }"));
+        assertTrue(ServiceSdl.isSdlQuery("{ _service { sdl } } # }"));
+    }
+
+    @Test
+    void testBatchedEntities() {
+        final Map<String, Integer> loadCounts = new HashMap<>();
+        final GraphQLSchema federated = Federation.transform(entitiesSDL)
+                .fetchEntities("Product", representations -> {
+                    loadCounts.merge("Product", 1, Integer::sum);
+                    return CompletableFuture.completedFuture(representations.stream()
+                            .map(rep -> entity("Product", "name", "Product " + rep.get("upc")))
+                            .collect(Collectors.toList()));
+                })
+                .fetchEntities("User", representations -> {
+                    loadCounts.merge("User", 1, Integer::sum);
+                    return CompletableFuture.completedFuture(representations.stream()
+                            .map(rep -> entity("User", "username", "user" + rep.get("id")))
+                            .collect(Collectors.toList()));
+                })
+                .resolveEntityType(env -> env.getSchema().getObjectType((String) env.<Map<String, Object>>getObject().get("__typename")))
+                .build();
+
+        final ExecutionResult result = SchemaUtils.execute(federated, "{\n" +
+                "  _entities(representations: [" +
+                "{__typename:\"Product\", upc:\"1\"}, " +
+                "{__typename:\"User\", id:\"7\"}, " +
+                "{__typename:\"Product\", upc:\"2\"}, " +
+                "{__typename:\"Unknown\"}, " +
+                "{__typename:\"User\", id:\"8\"}" +
+                "]) {\n" +
+                "    ... on Product { name }\n" +
+                "    ... on User { username }\n" +
+                "  }" +
+                "}");
+
+        assertEquals(1, result.getErrors().size());
+        assertEquals(Arrays.asList("_entities", 3), result.getErrors().get(0).getPath());
+        assertEquals(1, loadCounts.get("Product"));
+        assertEquals(1, loadCounts.get("User"));
+
+        final Map<String, Object> data = result.getData();
+        @SuppressWarnings("unchecked") final List<Map<String, Object>> _entities = (List<Map<String, Object>>) data.get("_entities");
+        assertEquals(5, _entities.size());
+        assertEquals("Product 1", _entities.get(0).get("name"));
+        assertEquals("user7", _entities.get(1).get("username"));
+        assertEquals("Product 2", _entities.get(2).get("name"));
+        assertNull(_entities.get(3));
+        assertEquals("user8", _entities.get(4).get("username"));
+    }
+
+    @Test
+    void testBatchedEntitiesRequireKnownTypes() {
+        assertThrows(SchemaProblem.class, () ->
+                Federation.transform(entitiesSDL)
+                        .fetchEntities("Order", representations -> CompletableFuture.completedFuture(null))
+                        .resolveEntityType(env -> null)
+                        .build());
+    }
+
+    @Test
+    void testBatchedEntitiesDataLoaderDeduplication() {
+        final List<List<Map<String, Object>>> batches = new ArrayList<>();
+        final GraphQLSchema federated = Federation.transform(entitiesSDL)
+                .fetchEntities("Product", representations -> {
+                    batches.add(representations);
+                    return CompletableFuture.completedFuture(representations.stream()
+                            .map(rep -> entity("Product", "name", "Product " + rep.get("upc")))
+                            .collect(Collectors.toList()));
+                })
+                .useEntityDataLoader(true)
+                .resolveEntityType(env -> env.getSchema().getObjectType("Product"))
+                .build();
+
+        final String query = "{\n" +
+                "  a: _entities(representations: [" +
+                "{__typename:\"Product\", upc:\"1\"}, " +
+                "{__typename:\"Product\", upc:\"2\"}, " +
+                "{upc:\"1\", __typename:\"Product\"}" +
+                "]) { ... on Product { name } }\n" +
+                "  b: _entities(representations: [" +
+                "{__typename:\"Product\", upc:\"2\"}, " +
+                "{__typename:\"Product\", upc:\"3\"}" +
+                "]) { ... on Product { name } }\n" +
+                "}";
+
+        // With a registry, both fields share one batch.
+        ExecutionResult result = GraphQL.newGraphQL(federated).build().execute(ExecutionInput.newExecutionInput()
+                .query(query)
+                .dataLoaderRegistry(new DataLoaderRegistry())
+                .build());
+        assertEquals(0, result.getErrors().size(), "No errors");
+        assertEquals(1, batches.size());
+        assertEquals(3, batches.get(0).size());
+
+        Map<String, List<Map<String, Object>>> data = result.getData();
+        assertEquals("Product 1", data.get("a").get(2).get("name"));
+        assertEquals("Product 2", data.get("b").get(0).get("name"));
+        assertEquals("Product 3", data.get("b").get(1).get("name"));
+
+        // Without one, representations are still deduplicated within each field.
+        batches.clear();
+        result = SchemaUtils.execute(federated, query);
+        assertEquals(0, result.getErrors().size(), "No errors");
+        assertEquals(2, batches.size());
+        assertEquals(2, batches.get(0).size());
+        assertEquals(2, batches.get(1).size());
+    }
+
+    @Test
+    void testBatchedEntitiesDataLoaderRequiredFields() {
+        final List<List<Map<String, Object>>> batches = new ArrayList<>();
+        final GraphQLSchema federated = Federation.transform(entitiesSDL)
+                .fetchEntities("Product", representations -> {
+                    batches.add(representations);
+                    return CompletableFuture.completedFuture(representations.stream()
+                            .map(rep -> entity("Product", "name", "Product " + rep.get("upc") + " weighing " + rep.get("weight")))
+                            .collect(Collectors.toList()));
+                })
+                .useEntityDataLoader(true)
+                .resolveEntityType(env -> env.getSchema().getObjectType("Product"))
+                .build();
+
+        // The same key with different @requires fields may resolve to different entities.
+        final ExecutionResult result = SchemaUtils.execute(federated, "{\n" +
+                "  _entities(representations: [" +
+                "{__typename:\"Product\", upc:\"1\", weight:\"1\"}, " +
+                "{__typename:\"Product\", upc:\"1\", weight:\"2\"}, " +
+                "{__typename:\"Product\", upc:\"1\", weight:\"1\"}" +
+                "]) { ... on Product { name } }\n" +
+                "}");
+        assertEquals(0, result.getErrors().size(), "No errors");
+        assertEquals(1, batches.size());
+        assertEquals(2, batches.get(0).size());
+
+        Map<String, List<Map<String, Object>>> data = result.getData();
+        assertEquals("Product 1 weighing 1", data.get("_entities").get(0).get("name"));
+        assertEquals("Product 1 weighing 2", data.get("_entities").get(1).get("name"));
+        assertEquals("Product 1 weighing 1", data.get("_entities").get(2).get("name"));
+    }
+
+    @Test
+    void testBatchedEntitiesExecutor() {
+        // Each loader waits for the other one to start, which only works if they run concurrently.
+        final CountDownLatch started = new CountDownLatch(2);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final GraphQLSchema federated = Federation.transform(entitiesSDL)
+                    .fetchEntities("Product", representations ->
+                            CompletableFuture.completedFuture(awaitOthers(started, representations, "Product")))
+                    .fetchEntities("User", representations ->
+                            CompletableFuture.completedFuture(awaitOthers(started, representations, "User")))
+                    .entityBatchLoaderExecutor(executor)
+                    .resolveEntityType(env -> env.getSchema().getObjectType((String) env.<Map<String, Object>>getObject().get("__typename")))
+                    .build();
+
+            final ExecutionResult result = SchemaUtils.execute(federated, "{\n" +
+                    "  _entities(representations: [" +
+                    "{__typename:\"Product\", upc:\"1\"}, " +
+                    "{__typename:\"User\", id:\"7\"}" +
+                    "]) { __typename }\n" +
+                    "}");
+            assertEquals(0, result.getErrors().size(), "No errors");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testBatchedEntitiesExecutorRejection() {
+        // The executor only accepts the first batch, so only the second one fails.
+        final AtomicInteger submitted = new AtomicInteger();
+        final Executor executor = task -> {
+            if (submitted.incrementAndGet() > 1) {
+                throw new RejectedExecutionException("Too busy");
+            }
+            task.run();
+        };
+        final GraphQLSchema federated = Federation.transform(entitiesSDL)
+                .fetchEntities("Product", representations -> CompletableFuture.completedFuture(representations.stream()
+                        .map(rep -> entity("Product", "name", "Product " + rep.get("upc")))
+                        .collect(Collectors.toList())))
+                .fetchEntities("User", representations -> CompletableFuture.completedFuture(representations.stream()
+                        .map(rep -> entity("User", "username", "User " + rep.get("id")))
+                        .collect(Collectors.toList())))
+                .entityBatchLoaderExecutor(executor)
+                .resolveEntityType(env -> env.getSchema().getObjectType((String) env.<Map<String, Object>>getObject().get("__typename")))
+                .build();
+
+        final ExecutionResult result = SchemaUtils.execute(federated, "{\n" +
+                "  _entities(representations: [" +
+                "{__typename:\"Product\", upc:\"1\"}, " +
+                "{__typename:\"User\", id:\"7\"}" +
+                "]) { ... on Product { name } ... on User { username } }\n" +
+                "}");
+        assertEquals(2, submitted.get());
+        assertEquals(1, result.getErrors().size());
+        assertTrue(result.getErrors().get(0).getMessage().contains("Too busy"));
+        final Map<String, List<Map<String, Object>>> data = result.getData();
+        assertEquals("Product 1", data.get("_entities").get(0).get("name"));
+        assertNull(data.get("_entities").get(1));
+    }
+
+    @Test
+    void testBatchedEntitiesCache() {
+        final List<List<Map<String, Object>>> batches = new ArrayList<>();
+        final InMemoryEntityCache cache = InMemoryEntityCache.newCache(100, Duration.ofMinutes(1));
+        final GraphQLSchema federated = Federation.transform(entitiesSDL)
+                .fetchEntities("Product", representations -> {
+                    batches.add(representations);
+                    return CompletableFuture.completedFuture(representations.stream()
+                            .map(rep -> "0".equals(rep.get("upc")) ? null : entity("Product", "name", "Product " + rep.get("upc")))
+                            .collect(Collectors.toList()));
+                })
+                .entityCache(cache)
+                .resolveEntityType(env -> env.getSchema().getObjectType("Product"))
+                .build();
+
+        final String query = "{\n" +
+                "  _entities(representations: [" +
+                "{__typename:\"Product\", upc:\"1\"}, " +
+                "{__typename:\"Product\", upc:\"0\"}" +
+                "]) { ... on Product { name } }\n" +
+                "}";
+        assertEquals(0, SchemaUtils.execute(federated, query).getErrors().size(), "No errors");
+        final ExecutionResult result = SchemaUtils.execute(federated, query);
+        assertEquals(0, result.getErrors().size(), "No errors");
+        Map<String, List<Map<String, Object>>> data = result.getData();
+        assertEquals("Product 1", data.get("_entities").get(0).get("name"));
+        assertNull(data.get("_entities").get(1));
+
+        // Missing entities are not cached, so only those are loaded again.
+        assertEquals(2, batches.size());
+        assertEquals(1, batches.get(1).size());
+        assertEquals("0", batches.get(1).get(0).get("upc"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+
+        // Representations with fields outside their key, e.g. for @requires, bypass the cache.
+        batches.clear();
+        final ExecutionResult required = SchemaUtils.execute(federated, "{\n" +
+                "  _entities(representations: [" +
+                "{__typename:\"Product\", upc:\"1\", weight:\"3\"}" +
+                "]) { ... on Product { name } }\n" +
+                "}");
+        assertEquals(0, required.getErrors().size(), "No errors");
+        assertEquals(1, batches.size());
+        assertEquals("3", batches.get(0).get(0).get("weight"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+    }
+
+    @Test
+    void testSegmentedInMemoryEntityCache() {
+        assertEquals(1, InMemoryEntityCache.newCache(100, Duration.ofMinutes(1)).segmentCount());
+        final InMemoryEntityCache cache = InMemoryEntityCache.newCache(1000, Duration.ofMinutes(1));
+        assertEquals(8, cache.segmentCount());
+        assertEquals(16, InMemoryEntityCache.newCache(100_000, Duration.ofMinutes(1)).segmentCount());
+
+        final EntityKeyExtractor extractor = EntityKeyExtractor.compile("Product", Arrays.asList("upc"));
+        for (int i = 0; i < 2000; i++) {
+            cache.put(extractor.extract(entity("Product", "upc", String.valueOf(i))), i);
+        }
+        assertTrue(cache.size() <= 1000);
+        assertEquals(2000 - cache.size(), cache.getEvictionCount());
+        assertEquals(1999, cache.get(extractor.extract(entity("Product", "upc", "1999"))));
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testInMemoryEntityCacheEviction() {
+        final AtomicLong now = new AtomicLong();
+        final InMemoryEntityCache cache = new InMemoryEntityCache(2, Duration.ofNanos(10), now::get);
+        final EntityKeyExtractor extractor = EntityKeyExtractor.compile("Product", Arrays.asList("upc"));
+        final EntityKey one = extractor.extract(entity("Product", "upc", "1"));
+        final EntityKey two = extractor.extract(entity("Product", "upc", "2"));
+        final EntityKey three = extractor.extract(entity("Product", "upc", "3"));
+
+        cache.put(one, "one");
+        cache.put(two, "two");
+        assertEquals("one", cache.get(one));
+        // "two" is now the least recently used entity.
+        cache.put(three, "three");
+        assertNull(cache.get(two));
+        assertEquals("one", cache.get(one));
+        assertEquals("three", cache.get(three));
+
+        now.addAndGet(10);
+        assertNull(cache.get(one));
+        assertEquals(1, cache.size());
+        assertEquals(3, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, cache.getEvictionCount());
+    }
+
+    @Test
+    void testEntityKeyExtractor() {
+        final EntityKeyExtractor extractor = EntityKeyExtractor.compile("User",
+                Arrays.asList("id organization { id }", "email"));
+
+        final Map<String, Object> organization = new HashMap<>();
+        organization.put("id", "acme");
+        final Map<String, Object> representation = entity("User", "id", "7");
+        representation.put("organization", organization);
+        representation.put("username", "ignored");
+
+        final EntityKey key = extractor.extract(representation);
+        assertNotNull(key);
+        assertEquals(0, key.getKeyIndex());
+        assertIterableEquals(Arrays.asList("7", "acme"), key.getValues());
+
+        // Fields outside the key do not affect its identity.
+        representation.put("username", "other");
+        assertEquals(key, extractor.extract(representation));
+        assertEquals(key.hashCode(), extractor.extract(representation).hashCode());
+
+        // Representations missing the first key fall back to the next one.
+        final EntityKey byEmail = extractor.extract(entity("User", "email", "a@b.c"));
+        assertNotNull(byEmail);
+        assertEquals(1, byEmail.getKeyIndex());
+        assertIterableEquals(Arrays.asList("a@b.c"), byEmail.getValues());
+
+        assertNull(extractor.extract(entity("User", "username", "x")));
+    }
+
+    @Test
+    void testEntityRepresentationCoercing() {
+        final List<Map<String, Object>> loaded = new ArrayList<>();
+        final GraphQLSchema federated = Federation.transform(entitiesSDL)
+                .coercingForAny(_Any.entityRepresentationCoercing())
+                .fetchEntities("Product", representations -> {
+                    loaded.addAll(representations);
+                    return CompletableFuture.completedFuture(representations.stream()
+                            .map(rep -> entity("Product", "name", "Product " + rep.get("upc")))
+                            .collect(Collectors.toList()));
+                })
+                .resolveEntityType(env -> env.getSchema().getObjectType("Product"))
+                .build();
+
+        // Representations passed inline are decoded from the literal...
+        ExecutionResult result = SchemaUtils.execute(federated, "{\n" +
+                "  _entities(representations: [{__typename:\"Product\", upc:\"1\", name:\"x\"}]) { ... on Product { name } }\n" +
+                "}");
+        assertEquals(0, result.getErrors().size(), "No errors");
+
+        // ...and those passed as variables from the variable's value.
+        final Map<String, Object> variables = new HashMap<>();
+        variables.put("representations", Arrays.asList(entity("Product", "upc", "2")));
+        result = GraphQL.newGraphQL(federated).build().execute(ExecutionInput.newExecutionInput()
+                .query("query($representations: [_Any!]!) {\n" +
+                        "  _entities(representations: $representations) { ... on Product { name } }\n" +
+                        "}")
+                .variables(variables)
+                .build());
+        assertEquals(0, result.getErrors().size(), "No errors");
+        Map<String, List<Map<String, Object>>> data = result.getData();
+        assertEquals("Product 2", data.get("_entities").get(0).get("name"));
+
+        assertEquals(2, loaded.size());
+        final EntityRepresentation first = (EntityRepresentation) loaded.get(0);
+        assertEquals("Product", first.getTypename());
+        assertIterableEquals(Arrays.asList("1"), first.getKey().getValues());
+        assertEquals("x", first.get("name"));
+        final Map<String, Object> expected = new HashMap<>();
+        expected.put("__typename", "Product");
+        expected.put("upc", "1");
+        expected.put("name", "x");
+        assertEquals(expected, first);
+        assertIterableEquals(Arrays.asList("2"), ((EntityRepresentation) loaded.get(1)).getKey().getValues());
+    }
+
+    @Test
+    void testInvalidKeyFieldSets() {
+        for (String fieldSet : Arrays.asList("", "upc(first: 1)", "upc {", "... on Product { upc }", "id: upc")) {
+            final String sdl = "type Product @key(fields: \"" + fieldSet + "\") { upc: String }\n" +
+                    "type Query { product: Product }";
+
+            // Keys only need to be compiled for the features relying on them.
+            final GraphQLSchema federated = Federation.transform(sdl)
+                    .fetchEntities(env -> Collections.singletonList(entity("Product", "upc", "1")))
+                    .resolveEntityType(env -> env.getSchema().getObjectType("Product"))
+                    .build();
+            final GraphQLUnionType entityType = (GraphQLUnionType) federated.getType(_Entity.typeName);
+            assertEquals("Product", entityType.getTypes().get(0).getName());
+            assertNull(EntityCatalog.from(federated).getKeyExtractor("Product"));
+
+            assertThrows(SchemaProblem.class, () -> Federation.transform(sdl)
+                    .fetchEntities("Product", representations -> CompletableFuture.completedFuture(null))
+                    .resolveEntityType(env -> null)
+                    .build());
+            assertThrows(SchemaProblem.class, () -> Federation.transform(sdl)
+                    .fetchEntities(env -> null)
+                    .resolveEntityType(env -> null)
+                    .coercingForAny(_Any.entityRepresentationCoercing())
+                    .build());
+        }
+    }
+
+    private static List<Object> awaitOthers(CountDownLatch started, List<Map<String, Object>> representations, String typename) {
+        started.countDown();
+        try {
+            if (!started.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Batch loaders did not run concurrently");
+            }
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        return representations.stream()
+                .map(rep -> entity(typename, "name", null))
+                .collect(Collectors.toList());
+    }
+
+    private static Map<String, Object> entity(String typename, String field, Object value) {
+        final Map<String, Object> entity = new HashMap<>();
+        entity.put("__typename", typename);
+        entity.put(field, value);
+        return entity;
+    }
+
     // From https://github.com/apollographql/federation-jvm/issues/7
     @Test
     void testSchemaTransformationIsolated() {
@@ -135,6 +678,51 @@ class FederationTest {
                 .build();
     }
 
+    @Test
+    void testTypeRegistryIsLeftAsIs() {
+        final TypeDefinitionRegistry typeRegistry = new SchemaParser().parse(productSDL);
+        final Set<String> typeNames = new HashSet<>(typeRegistry.types().keySet());
+        final RuntimeWiring wiring = RuntimeWiring.newRuntimeWiring()
+                .type(TypeRuntimeWiring.newTypeWiring(_Entity.typeName)
+                        .typeResolver(env -> env.getSchema().getObjectType("Product")))
+                .type(TypeRuntimeWiring.newTypeWiring("Query")
+                        .dataFetcher(_Entity.fieldName, env -> Collections.singletonList(Product.PLANCK)))
+                .build();
+
+        final SchemaTransformer transformer = Federation.transform(typeRegistry, wiring);
+        assertNotNull(transformer.build());
+        final GraphQLSchema federated = transformer.build();
+
+        assertEquals(typeNames, typeRegistry.types().keySet());
+        assertFalse(typeRegistry.getDirectiveDefinition(FederationDirectives.keyName).isPresent());
+        SchemaUtils.assertSDL(federated, productSDL);
+
+        final ExecutionResult result = SchemaUtils.execute(federated, "{\n" +
+                "  _entities(representations: [{__typename:\"Product\"}]) {\n" +
+                "    ... on Product { price }\n" +
+                "  }" +
+                "}");
+        assertEquals(0, result.getErrors().size(), "No errors");
+    }
+
+    @Test
+    void testEntityTypeResolverFromCodeRegistry() {
+        final RuntimeWiring wiring = RuntimeWiring.newRuntimeWiring()
+                .codeRegistry(GraphQLCodeRegistry.newCodeRegistry()
+                        .typeResolver(_Entity.typeName, env -> env.getSchema().getObjectType("Product")))
+                .build();
+        final GraphQLSchema federated = Federation.transform(productSDL, wiring)
+                .fetchEntities(env -> Collections.singletonList(Product.PLANCK))
+                .build();
+
+        final ExecutionResult result = SchemaUtils.execute(federated, "{\n" +
+                "  _entities(representations: [{__typename:\"Product\"}]) {\n" +
+                "    ... on Product { price }\n" +
+                "  }" +
+                "}");
+        assertEquals(0, result.getErrors().size(), "No errors");
+    }
+
     @Test
     void testInterfacesAreCovered() {
         final RuntimeWiring wiring = RuntimeWiring.newRuntimeWiring()
@@ -160,6 +748,59 @@ class FederationTest {
         assertIterableEquals(Arrays.asList("Book", "Movie", "Page"), unionTypes);
     }
 
+    @Test
+    void testEntityCatalog() {
+        final String sdl = interfacesSDL + "\ntype Review @key(fields: \"id\") @extends {\n  id: ID! @external\n}\n";
+        final RuntimeWiring wiring = RuntimeWiring.newRuntimeWiring()
+                .type(TypeRuntimeWiring.newTypeWiring("Product")
+                        .typeResolver(env -> null)
+                        .build())
+                .build();
+        final GraphQLSchema generated = Federation.transform(sdl, wiring)
+                .resolveEntityType(env -> null)
+                .fetchEntities(environment -> null)
+                .build();
+        final GraphQLSchema transformed = Federation.transform(generated)
+                .resolveEntityType(env -> null)
+                .fetchEntities(environment -> null)
+                .build();
+
+        for (GraphQLSchema schema : Arrays.asList(generated, transformed)) {
+            final EntityCatalog catalog = EntityCatalog.from(schema);
+            assertNotNull(catalog);
+            assertIterableEquals(Arrays.asList("Book", "Movie", "Page", "Review"), catalog.getConcreteTypeNames());
+            assertIterableEquals(Arrays.asList("Page", "Product", "Review"), catalog.getEntityTypes()
+                    .stream()
+                    .map(EntityCatalog.EntityType::getName)
+                    .collect(Collectors.toList()));
+
+            final EntityCatalog.EntityType product = catalog.getEntityType("Product");
+            assertNotNull(product);
+            assertTrue(product.isInterface());
+            assertFalse(product.isExtension());
+            assertEquals(Collections.singletonList("id"), product.getKeyFieldSets());
+            assertIterableEquals(Arrays.asList("Book", "Movie"), product.getConcreteTypeNames());
+
+            final EntityCatalog.EntityType review = catalog.getEntityType("Review");
+            assertNotNull(review);
+            assertFalse(review.isInterface());
+            assertTrue(review.isExtension());
+            assertIterableEquals(Collections.singletonList("Review"), review.getConcreteTypeNames());
+
+            assertNull(catalog.getEntityType("Book"));
+            assertEquals(Collections.singletonList("id"), catalog.getKeyExtractor("Book").getFieldSets());
+            assertEquals(Collections.singletonList("url"), catalog.getKeyExtractor("Page").getFieldSets());
+            assertNull(catalog.getKeyExtractor("Query"));
+        }
+
+        final EntityCatalog empty = EntityCatalog.from(Federation.transform(emptySDL).build());
+        assertNotNull(empty);
+        assertTrue(empty.getEntityTypes().isEmpty());
+        assertNull(EntityCatalog.from(new SchemaGenerator().makeExecutableSchema(
+                new SchemaParser().parse("type Query { hello: String }"),
+                RuntimeWiring.newRuntimeWiring().build())));
+    }
+
     @Test
     void testPrinterEmpty() {
         TypeDefinitionRegistry typeDefinitionRegistry = new SchemaParser().parse(printerEmptySDL);
@@ -234,4 +875,86 @@ class FederationTest {
                 ).print(graphQLSchema).trim()
         );
     }
+
+    @Test
+    void testPrinterStreaming() {
+        TypeDefinitionRegistry typeDefinitionRegistry = new SchemaParser().parse(printerEscapingSDL);
+        GraphQLSchema graphQLSchema = new SchemaGenerator().makeExecutableSchema(
+                typeDefinitionRegistry,
+                RuntimeWiring.newRuntimeWiring().build()
+        );
+        FederationSdlPrinter printer = new FederationSdlPrinter(FederationSdlPrinter.Options.defaultOptions()
+                .includeDirectiveDefinitions(def -> !standardDirectives.contains(def.getName()))
+        );
+        String expected = printer.print(graphQLSchema);
+
+        StringBuilder appendable = new StringBuilder();
+        printer.print(graphQLSchema, appendable);
+        Assertions.assertEquals(expected, appendable.toString());
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        printer.print(graphQLSchema, stream);
+        Assertions.assertEquals(expected, new String(stream.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testPrinterParallel() {
+        StringBuilder sdl = new StringBuilder("type Query {\n  node: Node\n}\n\n" +
+                "interface Node {\n  id: ID!\n}\n\n");
+        for (int i = 0; i < 100; i++) {
+            sdl.append("\"Type ").append(i).append("\"\n")
+                    .append("type Type").append(i).append(" implements Node {\n  id: ID!\n")
+                    .append("  field(arg: Input").append(i).append(" = {value: ").append(i).append("}): Enum").append(i).append(" @deprecated\n}\n\n")
+                    .append("input Input").append(i).append(" {\n  value: Int\n}\n\n")
+                    .append("enum Enum").append(i).append(" {\n  A\n  B\n}\n\n");
+        }
+        GraphQLSchema graphQLSchema = new SchemaGenerator().makeExecutableSchema(
+                new SchemaParser().parse(sdl.toString()),
+                RuntimeWiring.newRuntimeWiring()
+                        .type("Node", typeWiring -> typeWiring.typeResolver(env -> null))
+                        .build()
+        );
+        FederationSdlPrinter.Options options = FederationSdlPrinter.Options.defaultOptions()
+                .includeDirectiveDefinitions(def -> !standardDirectives.contains(def.getName()));
+        String sequential = new FederationSdlPrinter(options).print(graphQLSchema);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Assertions.assertEquals(sequential,
+                    new FederationSdlPrinter(options.printTypesInParallel(pool)).print(graphQLSchema));
+            Assertions.assertEquals(sequential,
+                    new FederationSdlPrinter(options.printTypesInParallel(true)).print(graphQLSchema));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testSyntheticSchema() {
+        final SyntheticSchema synthetic = SyntheticSchema.newBuilder().seed(7).entityTypes(200).build();
+        final SyntheticSchema same = SyntheticSchema.newBuilder().seed(7).entityTypes(200).build();
+        assertEquals(synthetic.getSdl(), same.getSdl());
+        assertEquals(synthetic.representations(100), same.representations(100));
+        assertFalse(synthetic.getSdl().equals(SyntheticSchema.newBuilder().seed(8).entityTypes(200).build().getSdl()));
+
+        assertEquals(200, synthetic.getEntityTypeNames().size());
+        for (String feature : Arrays.asList("@key(fields: \"id sku\")", "owner { id region }", "implements Node",
+                "@requires(fields: \"weight\")", "@provides(fields: \"name\")")) {
+            assertTrue(synthetic.getSdl().contains(feature), feature);
+        }
+
+        final List<Map<String, Object>> representations = synthetic.representations(2000);
+        final ExecutionResult result = GraphQL.newGraphQL(synthetic.build()).build().execute(
+                ExecutionInput.newExecutionInput(synthetic.entitiesQuery())
+                        .variables(Collections.singletonMap("representations", representations))
+                        .build());
+        assertEquals(Collections.emptyList(), result.getErrors());
+        final List<Map<String, Object>> entities = result.<Map<String, List<Map<String, Object>>>>getData().get("_entities");
+        assertEquals(representations.size(), entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            assertEquals(representations.get(i).get("__typename"), entities.get(i).get("__typename"));
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> synthetic.representations(1, Arrays.asList("Owner")));
+    }
 }
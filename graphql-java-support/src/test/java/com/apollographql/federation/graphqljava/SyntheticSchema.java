@@ -0,0 +1,330 @@
+package com.apollographql.federation.graphqljava;
+
+import graphql.schema.GraphQLSchema;
+import graphql.schema.TypeResolver;
+import graphql.schema.idl.RuntimeWiring;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * A generated federated schema of any number of entity types, along with matching
+ * {@code _entities} representations, to reproduce the behavior of large schemas in tests and
+ * benchmarks. Everything is derived from the seed, so the same builder settings always produce the
+ * same SDL and representations.
+ * <p>
+ * Entity types are keyed in one of several ways: by {@code id}, by a compound key, by a key nesting
+ * an object's fields, by two alternative keys, or through a keyed interface that they implement.
+ * Some types require an external field, which their representations then carry, and some provide
+ * fields of the entity they reference.
+ */
+public final class SyntheticSchema {
+    private enum KeyKind {
+        ID,
+        COMPOUND,
+        NESTED,
+        ALTERNATIVE,
+        INTERFACE,
+    }
+
+    private static final class EntityType {
+        private final String name;
+        private final KeyKind keyKind;
+        private final boolean requiresWeight;
+
+        private EntityType(String name, KeyKind keyKind, boolean requiresWeight) {
+            this.name = name;
+            this.keyKind = keyKind;
+            this.requiresWeight = requiresWeight;
+        }
+    }
+
+    private final long seed;
+    private final String sdl;
+    private final List<EntityType> entityTypes;
+    private final Map<String, EntityType> entityTypesByName;
+    private final List<String> interfaceNames;
+
+    private SyntheticSchema(long seed, String sdl, List<EntityType> entityTypes, List<String> interfaceNames) {
+        this.seed = seed;
+        this.sdl = sdl;
+        this.entityTypes = entityTypes;
+        this.interfaceNames = interfaceNames;
+        this.entityTypesByName = entityTypes.stream()
+                .collect(Collectors.toMap(type -> type.name, type -> type, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    @NotNull
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the schema's SDL, without the definitions of the federation directives
+     */
+    @NotNull
+    public String getSdl() {
+        return sdl;
+    }
+
+    /**
+     * @return the names of the concrete entity types, i.e. the members of {@code _Entity}
+     */
+    @NotNull
+    public List<String> getEntityTypeNames() {
+        return new ArrayList<>(entityTypesByName.keySet());
+    }
+
+    /**
+     * @return a transformer of the SDL with a batch loader for every entity type, which resolves
+     * each representation to an entity with the representation's fields
+     */
+    @NotNull
+    public SchemaTransformer transformer() {
+        final TypeResolver byTypename = env -> env.getSchema().getObjectType(
+                (String) env.<Map<String, Object>>getObject().get("__typename"));
+        final RuntimeWiring.Builder wiring = RuntimeWiring.newRuntimeWiring();
+        for (String interfaceName : interfaceNames) {
+            wiring.type(interfaceName, type -> type.typeResolver(byTypename));
+        }
+        final SchemaTransformer transformer = Federation.transform(sdl, wiring.build())
+                .resolveEntityType(byTypename);
+        for (EntityType type : entityTypes) {
+            transformer.fetchEntities(type.name, representations -> CompletableFuture.completedFuture(
+                    representations.stream()
+                            .map(SyntheticSchema::entity)
+                            .collect(Collectors.toList())));
+        }
+        return transformer;
+    }
+
+    @NotNull
+    public GraphQLSchema build() {
+        return transformer().build();
+    }
+
+    /**
+     * @return an {@code _entities} query, with a {@code $representations} variable, that selects
+     * the fields every entity type has
+     */
+    @NotNull
+    public String entitiesQuery() {
+        final StringBuilder query = new StringBuilder("query($representations: [_Any!]!) {\n")
+                .append("  _entities(representations: $representations) {\n")
+                .append("    __typename\n");
+        for (EntityType type : entityTypes) {
+            query.append("    ... on ").append(type.name).append(" { id name }\n");
+        }
+        return query.append("  }\n}\n").toString();
+    }
+
+    /**
+     * @return representations spread uniformly over all entity types
+     */
+    @NotNull
+    public List<Map<String, Object>> representations(int count) {
+        return representations(count, getEntityTypeNames());
+    }
+
+    /**
+     * Generate representations of the given types. Types are picked uniformly from the mix, so
+     * listing a type several times makes it more frequent. Ids are drawn from {@code [0, count)},
+     * so that larger batches repeat some entities, as gateways do.
+     *
+     * @param typeMix names of concrete entity types
+     * @throws IllegalArgumentException if the mix is empty or names a type that is not an entity
+     */
+    @NotNull
+    public List<Map<String, Object>> representations(int count, @NotNull List<String> typeMix) {
+        if (typeMix.isEmpty()) {
+            throw new IllegalArgumentException("The type mix is empty");
+        }
+        final EntityType[] types = new EntityType[typeMix.size()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = entityTypesByName.get(typeMix.get(i));
+            if (types[i] == null) {
+                throw new IllegalArgumentException("Not an entity type: " + typeMix.get(i));
+            }
+        }
+
+        final Random random = new Random(seed);
+        final List<Map<String, Object>> representations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final EntityType type = types[random.nextInt(types.length)];
+            final String id = Integer.toString(random.nextInt(count));
+            final Map<String, Object> representation = new LinkedHashMap<>();
+            representation.put("__typename", type.name);
+            switch (type.keyKind) {
+                case ID:
+                case INTERFACE:
+                    representation.put("id", id);
+                    break;
+                case COMPOUND:
+                    representation.put("id", id);
+                    representation.put("sku", "sku-" + id);
+                    break;
+                case NESTED:
+                    final Map<String, Object> owner = new LinkedHashMap<>();
+                    owner.put("id", "owner-" + random.nextInt(16));
+                    owner.put("region", "region-" + random.nextInt(4));
+                    representation.put("id", id);
+                    representation.put("owner", owner);
+                    break;
+                case ALTERNATIVE:
+                    if (random.nextBoolean()) {
+                        representation.put("id", id);
+                    } else {
+                        representation.put("sku", "sku-" + id);
+                    }
+                    break;
+            }
+            if (type.requiresWeight) {
+                representation.put("weight", random.nextInt(100));
+            }
+            representations.add(representation);
+        }
+        return representations;
+    }
+
+    private static Map<String, Object> entity(Map<String, Object> representation) {
+        final Map<String, Object> entity = new LinkedHashMap<>(representation);
+        entity.putIfAbsent("id", representation.get("sku"));
+        entity.put("name", representation.get("__typename") + " " + entity.get("id"));
+        if (representation.containsKey("weight")) {
+            entity.put("shippingEstimate", 2 * (Integer) representation.get("weight"));
+        }
+        return entity;
+    }
+
+    public static final class Builder {
+        private long seed;
+        private int entityTypes = 10;
+        private int typesPerInterface = 4;
+
+        private Builder() {
+        }
+
+        @NotNull
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * @param entityTypes the number of concrete entity types, 10 by default
+         */
+        @NotNull
+        public Builder entityTypes(int entityTypes) {
+            if (entityTypes < 1) {
+                throw new IllegalArgumentException("At least one entity type is required");
+            }
+            this.entityTypes = entityTypes;
+            return this;
+        }
+
+        /**
+         * @param typesPerInterface the largest number of entity types implementing each keyed
+         *                          interface, 4 by default, or 0 for no interfaces
+         */
+        @NotNull
+        public Builder typesPerInterface(int typesPerInterface) {
+            if (typesPerInterface < 0) {
+                throw new IllegalArgumentException("The number of types per interface cannot be negative");
+            }
+            this.typesPerInterface = typesPerInterface;
+            return this;
+        }
+
+        @NotNull
+        public SyntheticSchema build() {
+            final Random random = new Random(seed);
+            final KeyKind[] keyKinds = KeyKind.values();
+            final int kindCount = typesPerInterface > 0 ? keyKinds.length : keyKinds.length - 1;
+
+            final List<EntityType> types = new ArrayList<>(entityTypes);
+            final StringBuilder typeDefinitions = new StringBuilder();
+            boolean hasOwner = false;
+            final List<String> interfaceNames = new ArrayList<>();
+            for (int i = 0; i < entityTypes; ) {
+                final KeyKind keyKind = keyKinds[random.nextInt(kindCount)];
+                final int implementations = keyKind == KeyKind.INTERFACE
+                        ? Math.min(1 + random.nextInt(typesPerInterface), entityTypes - i)
+                        : 1;
+                String interfaceName = null;
+                if (keyKind == KeyKind.INTERFACE) {
+                    interfaceName = "Node" + interfaceNames.size();
+                    interfaceNames.add(interfaceName);
+                    typeDefinitions.append("\ninterface ").append(interfaceName).append(" @key(fields: \"id\") {\n")
+                            .append("  id: ID!\n")
+                            .append("  name: String\n")
+                            .append("}\n");
+                }
+                for (int j = 0; j < implementations; j++, i++) {
+                    final EntityType type = new EntityType("Entity" + i, keyKind, random.nextInt(3) == 0);
+                    types.add(type);
+                    hasOwner |= keyKind == KeyKind.NESTED;
+                    typeDefinitions.append('\n').append(typeDefinition(type, i, interfaceName, random));
+                }
+            }
+
+            final StringBuilder sdl = new StringBuilder("type Query {\n")
+                    .append("  first: ").append(types.get(0).name).append('\n')
+                    .append("}\n");
+            if (hasOwner) {
+                sdl.append("\ntype Owner {\n")
+                        .append("  id: ID!\n")
+                        .append("  region: String!\n")
+                        .append("}\n");
+            }
+            sdl.append(typeDefinitions);
+            return new SyntheticSchema(seed, sdl.toString(), Collections.unmodifiableList(types), interfaceNames);
+        }
+
+        private String typeDefinition(EntityType type, int index, String interfaceName, Random random) {
+            final StringBuilder definition = new StringBuilder("type ").append(type.name);
+            switch (type.keyKind) {
+                case ID:
+                    definition.append(" @key(fields: \"id\")");
+                    break;
+                case COMPOUND:
+                    definition.append(" @key(fields: \"id sku\")");
+                    break;
+                case NESTED:
+                    definition.append(" @key(fields: \"id owner { id region }\")");
+                    break;
+                case ALTERNATIVE:
+                    definition.append(" @key(fields: \"id\") @key(fields: \"sku\")");
+                    break;
+                case INTERFACE:
+                    definition.append(" implements ").append(interfaceName);
+                    break;
+            }
+            definition.append(" {\n")
+                    .append("  id: ID!\n")
+                    .append("  name: String\n");
+            if (type.keyKind == KeyKind.COMPOUND || type.keyKind == KeyKind.ALTERNATIVE) {
+                definition.append("  sku: String!\n");
+            }
+            if (type.keyKind == KeyKind.NESTED) {
+                definition.append("  owner: Owner!\n");
+            }
+            if (type.requiresWeight) {
+                definition.append("  weight: Int @external\n")
+                        .append("  shippingEstimate: Int @requires(fields: \"weight\")\n");
+            }
+            // Reference an earlier type, or this one, which is all that exists yet.
+            definition.append("  related: Entity").append(random.nextInt(index + 1));
+            if (random.nextBoolean()) {
+                definition.append(" @provides(fields: \"name\")");
+            }
+            return definition.append("\n}\n").toString();
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.apollographql.federation.springexample;
 
 import com.apollographql.federation.graphqljava.Federation;
-import com.apollographql.federation.graphqljava._Entity;
 import graphql.servlet.config.DefaultGraphQLSchemaProvider;
 import graphql.servlet.config.GraphQLSchemaProvider;
 import org.jetbrains.annotations.NotNull;
@@ -13,26 +12,23 @@ import java.io.IOException;
 import java.math.BigInteger;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Component
 public class InventorySchemaProvider extends DefaultGraphQLSchemaProvider implements GraphQLSchemaProvider {
     public InventorySchemaProvider(@Value("classpath:schemas/inventory.graphql") Resource sdl) throws IOException {
         super(Federation.transform(sdl.getFile())
-                .fetchEntities(env -> env.<List<Map<String, Object>>>getArgument(_Entity.argumentName)
-                        .stream()
-                        .map(values -> {
-                            if ("Product".equals(values.get("__typename"))) {
-                                final Object upc = values.get("upc");
-                                if (upc instanceof String) {
-                                    return lookupProduct((String) upc);
-                                }
-                            }
-                            return null;
-                        })
-                        .collect(Collectors.toList()))
+                .fetchEntities("Product", representations -> CompletableFuture.completedFuture(
+                        representations.stream()
+                                .map(values -> {
+                                    final Object upc = values.get("upc");
+                                    if (upc instanceof String) {
+                                        return lookupProduct((String) upc);
+                                    }
+                                    return null;
+                                })
+                                .collect(Collectors.toList())))
                 .resolveEntityType(env -> {
                     final Object src = env.getObject();
                     if (src instanceof Product) {